@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2013-2025 Craig Thomas
+ * This project uses an MIT style license - see LICENSE for details.
+ */
+package ca.craigthomas.chip8java.emulator.common;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for copying a ROM image from a stream into memory, for a
+ * typical small Chip 8 ROM and for a ROM that fills 64K of memory.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class IOBenchmark
+{
+    @Param({"3584", "65024"})
+    public int romSize;
+
+    private byte[] rom;
+
+    private short[] target;
+
+    private byte[] byteTarget;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        rom = new byte[romSize];
+        new Random(0x5EED).nextBytes(rom);
+        target = new short[65536];
+        byteTarget = new byte[65536];
+    }
+
+    @Benchmark
+    public boolean copyStreamToShortArray() {
+        return IO.copyStreamToShortArray(new ByteArrayInputStream(rom), target, 0x200);
+    }
+
+    @Benchmark
+    public boolean copyStreamToByteArray() {
+        return IO.copyStreamToByteArray(new ByteArrayInputStream(rom), byteTarget, 0x200);
+    }
+}
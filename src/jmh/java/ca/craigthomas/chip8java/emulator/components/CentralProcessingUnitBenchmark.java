@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2013-2025 Craig Thomas
+ * This project uses an MIT style license - see LICENSE for details.
+ */
+package ca.craigthomas.chip8java.emulator.components;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the instruction loop of the CPU. The fetchIncrementExecute
+ * benchmark runs a single instruction per operation, so the reported
+ * throughput is the number of emulated instructions per second. The runFrame
+ * benchmark runs a full frame, with or without compiling hot basic blocks.
+ * Each mix is a small looping program that stands in for a common kind of
+ * ROM workload.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CentralProcessingUnitBenchmark
+{
+    // Register arithmetic, comparisons and jumps
+    private static final int[] ARITHMETIC = {
+            0x60, 0x05,     // LOAD V0, 05
+            0x71, 0x01,     // ADD V1, 01
+            0x80, 0x14,     // ADD V0, V1
+            0x82, 0x05,     // SUBN V2, V0
+            0x83, 0x01,     // OR V3, V0
+            0x84, 0x06,     // SHR V4, V0
+            0x31, 0x00,     // SKE V1, 00
+            0x45, 0x00,     // SKNE V5, 00
+            0x12, 0x00,     // JUMP 200
+    };
+
+    // Sprite drawing with a moving position
+    private static final int[] SPRITES = {
+            0xA3, 0x00,     // LOAD I, 300
+            0x70, 0x03,     // ADD V0, 03
+            0x71, 0x01,     // ADD V1, 01
+            0xD0, 0x15,     // DRAW V0, V1
+            0xD0, 0x18,     // DRAW V0, V1
+            0x12, 0x00,     // JUMP 200
+    };
+
+    // Memory transfers, subroutine calls and timers
+    private static final int[] MIXED = {
+            0xA3, 0x00,     // LOAD I, 300
+            0x72, 0x07,     // ADD V2, 07
+            0xF2, 0x33,     // BCD V2
+            0xF3, 0x55,     // STOR 3
+            0xF3, 0x65,     // READ 3
+            0x22, 0x12,     // CALL 212
+            0xF2, 0x15,     // LOAD DELAY, V2
+            0xF4, 0x07,     // LOAD V4, DELAY
+            0x12, 0x00,     // JUMP 200
+            0x60, 0x05,     // LOAD V0, 05
+            0xD0, 0x15,     // DRAW V0, V1
+            0x00, 0xEE,     // RTS
+    };
+
+    @Param({"arithmetic", "sprites", "mixed"})
+    public String mix;
+
+    @Param({"true", "false"})
+    public boolean blocks;
+
+    private CentralProcessingUnit cpu;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int[] program;
+        switch (mix) {
+            case "sprites":
+                program = SPRITES;
+                break;
+
+            case "mixed":
+                program = MIXED;
+                break;
+
+            default:
+                program = ARITHMETIC;
+                break;
+        }
+
+        Memory memory = new Memory();
+        for (int i = 0; i < program.length; i++) {
+            memory.write(program[i], CentralProcessingUnit.PROGRAM_COUNTER_START + i);
+        }
+        for (int i = 0; i < 16; i++) {
+            memory.write((0xA5 ^ (i * 0x1F)) & 0xFF, 0x300 + i);
+        }
+        cpu = new CentralProcessingUnit(memory, new Keyboard(), new Screen());
+        cpu.setMaxTicks(60000);
+        cpu.setVirtualClock(true);
+        cpu.blockCompilation = blocks;
+    }
+
+    @Benchmark
+    public void fetchIncrementExecute() {
+        cpu.fetchIncrementExecute();
+    }
+
+    @Benchmark
+    public int runFrame() {
+        return cpu.runFrame();
+    }
+}
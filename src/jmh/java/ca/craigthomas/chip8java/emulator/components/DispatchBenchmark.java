@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2013-2025 Craig Thomas
+ * This project uses an MIT style license - see LICENSE for details.
+ */
+package ca.craigthomas.chip8java.emulator.components;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares dispatching an operand through the decoding switch statements
+ * against looking it up in the precomputed operation table. Operands are
+ * taken from a random sequence of register, skip and index instructions so
+ * that the dispatch target changes on every call.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class DispatchBenchmark
+{
+    private static final int OPERAND_COUNT = 4096;
+
+    // Instruction families that only touch registers, the index and the pc
+    private static final int[] TEMPLATES = {
+            0x3000, 0x4000, 0x5000, 0x6000, 0x7000, 0x8000, 0x8001, 0x8002,
+            0x8003, 0x8004, 0x8005, 0x8006, 0x8007, 0x800E, 0x9000, 0xA000,
+            0xF007, 0xF015, 0xF01E,
+    };
+
+    private CentralProcessingUnit cpu;
+
+    private int[] operands;
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        cpu = new CentralProcessingUnit(new Memory(), new Keyboard(), new Screen());
+        cpu.setVirtualClock(true);
+        Random random = new Random(0x5EED);
+        operands = new int[OPERAND_COUNT];
+        for (int i = 0; i < OPERAND_COUNT; i++) {
+            int template = TEMPLATES[random.nextInt(TEMPLATES.length)];
+            int x = random.nextInt(16) << 8;
+            if ((template & 0xF000) == 0x8000 || (template & 0xF000) == 0x5000 || template == 0x9000) {
+                operands[i] = template | x | (random.nextInt(16) << 4);
+            } else if ((template & 0xF000) == 0xF000) {
+                operands[i] = template | x;
+            } else {
+                operands[i] = template | x | random.nextInt(256);
+            }
+        }
+    }
+
+    @Benchmark
+    public int decodeSwitch() {
+        next = (next + 1) & (OPERAND_COUNT - 1);
+        cpu.operand = operands[next];
+        CentralProcessingUnit.decodeOperation(cpu.operand).execute(cpu);
+        return cpu.pc;
+    }
+
+    @Benchmark
+    public int operationTable() {
+        next = (next + 1) & (OPERAND_COUNT - 1);
+        cpu.operand = operands[next];
+        CentralProcessingUnit.OPERATIONS[cpu.operand].execute(cpu);
+        return cpu.pc;
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2013-2025 Craig Thomas
+ * This project uses an MIT style license - see LICENSE for details.
+ */
+package ca.craigthomas.chip8java.emulator.components;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the sprite drawing instruction. Normal mode draws a
+ * 15 byte high, 8 pixel wide sprite, while extended mode draws a 16 x 16
+ * sprite. The position moves on every draw so that aligned, unaligned and
+ * wrapped sprites are all measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class DrawSpriteBenchmark
+{
+    @Param({"normal", "extended"})
+    public String mode;
+
+    @Param({"1", "3"})
+    public int bitplane;
+
+    private CentralProcessingUnit cpu;
+
+    private int drawOperand;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Memory memory = new Memory();
+        for (int i = 0; i < 64; i++) {
+            memory.write((0xA5 ^ (i * 0x1F)) & 0xFF, 0x300 + i);
+        }
+        cpu = new CentralProcessingUnit(memory, new Keyboard(), new Screen());
+        if (mode.equals("extended")) {
+            cpu.enableExtendedMode();
+            drawOperand = 0xD010;
+        } else {
+            drawOperand = 0xD01F;
+        }
+        cpu.bitplane = bitplane;
+        cpu.index = 0x300;
+    }
+
+    @Benchmark
+    public short drawSprite() {
+        cpu.v[0] = (short) ((cpu.v[0] + 3) & 0xFF);
+        cpu.v[1] = (short) ((cpu.v[1] + 1) & 0xFF);
+        cpu.operand = drawOperand;
+        cpu.drawSprite();
+        return cpu.v[0xF];
+    }
+}
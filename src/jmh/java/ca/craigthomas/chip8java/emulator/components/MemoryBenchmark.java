@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2013-2025 Craig Thomas
+ * This project uses an MIT style license - see LICENSE for details.
+ */
+package ca.craigthomas.chip8java.emulator.components;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for single byte memory reads and writes. Addresses are taken
+ * from a precomputed random sequence so that the access pattern is not
+ * predictable.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class MemoryBenchmark
+{
+    private static final int ADDRESS_COUNT = 4096;
+
+    private Memory memory;
+
+    private int[] addresses;
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        memory = new Memory();
+        Random random = new Random(0x5EED);
+        addresses = new int[ADDRESS_COUNT];
+        for (int i = 0; i < ADDRESS_COUNT; i++) {
+            addresses[i] = random.nextInt(memory.getSize());
+            memory.write(random.nextInt(256), addresses[i]);
+        }
+    }
+
+    @Benchmark
+    public short read() {
+        next = (next + 1) & (ADDRESS_COUNT - 1);
+        return memory.read(addresses[next]);
+    }
+
+    @Benchmark
+    public void write() {
+        next = (next + 1) & (ADDRESS_COUNT - 1);
+        memory.write(next, addresses[next]);
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2013-2025 Craig Thomas
+ * This project uses an MIT style license - see LICENSE for details.
+ */
+package ca.craigthomas.chip8java.emulator.components;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of recording a frame into the rewind buffer, and of
+ * rewinding by a single frame, for a machine with 64K of memory running a
+ * program that draws and writes to memory every frame.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class RewindBufferBenchmark
+{
+    // Draws a moving sprite and stores BCD values
+    private static final int[] PROGRAM = {
+            0xA0, 0x00,     // LOAD I, 000
+            0xD0, 0x15,     // DRAW V0, V1, 5
+            0x70, 0x03,     // ADD V0, 03
+            0x71, 0x01,     // ADD V1, 01
+            0xA3, 0x00,     // LOAD I, 300
+            0xF0, 0x33,     // BCD V0
+            0x12, 0x00,     // JUMP 200
+    };
+
+    private CentralProcessingUnit cpu;
+
+    private RewindBuffer buffer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Memory memory = new Memory();
+        cpu = new CentralProcessingUnit(memory, new Keyboard(), new Screen(), true);
+        for (int i = 0; i < PROGRAM.length; i++) {
+            memory.write(PROGRAM[i], 0x200 + i);
+        }
+        buffer = new RewindBuffer(600);
+        buffer.record(cpu);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        cpu.kill();
+    }
+
+    @Benchmark
+    public int recordFrame() {
+        cpu.runFrame();
+        buffer.record(cpu);
+        return buffer.size();
+    }
+
+    @Benchmark
+    public boolean recordAndRewindFrame() {
+        cpu.runFrame();
+        buffer.record(cpu);
+        return buffer.rewind(cpu);
+    }
+}
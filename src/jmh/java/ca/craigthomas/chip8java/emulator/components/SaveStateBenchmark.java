@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2013-2025 Craig Thomas
+ * This project uses an MIT style license - see LICENSE for details.
+ */
+package ca.craigthomas.chip8java.emulator.components;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long it takes to save and restore the full state of a
+ * machine with 4K and 64K of memory.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SaveStateBenchmark
+{
+    @Param({"true", "false"})
+    public boolean memSize4k;
+
+    private CentralProcessingUnit cpu;
+
+    private byte[] state;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Memory memory = new Memory(memSize4k);
+        cpu = new CentralProcessingUnit(memory, new Keyboard(), new Screen(), true);
+        state = cpu.saveState();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        cpu.kill();
+    }
+
+    @Benchmark
+    public byte[] saveState() {
+        return cpu.saveState();
+    }
+
+    @Benchmark
+    public CentralProcessingUnit restoreState() {
+        cpu.restoreState(state);
+        return cpu;
+    }
+}
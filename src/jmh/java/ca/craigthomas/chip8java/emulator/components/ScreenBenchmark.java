@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2013-2025 Craig Thomas
+ * This project uses an MIT style license - see LICENSE for details.
+ */
+package ca.craigthomas.chip8java.emulator.components;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the screen scrolling operations for each bitplane. The
+ * screen is refilled with a random pattern before every invocation so that
+ * scrolling never runs over an empty screen.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ScreenBenchmark
+{
+    @Param({"1", "2", "3"})
+    public int bitplane;
+
+    private Screen screen;
+
+    private long[][] pattern;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        screen = new Screen();
+        screen.setExtendedScreenMode();
+        Random random = new Random(0x5EED);
+        pattern = new long[screen.bitplanes.length][screen.bitplanes[0].length];
+        for (long[] plane : pattern) {
+            for (int word = 0; word < plane.length; word++) {
+                plane[word] = random.nextLong();
+            }
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void fillScreen() {
+        for (int plane = 0; plane < pattern.length; plane++) {
+            System.arraycopy(pattern[plane], 0, screen.bitplanes[plane], 0, pattern[plane].length);
+        }
+    }
+
+    @Benchmark
+    public Screen scrollLeft() {
+        screen.scrollLeft(bitplane);
+        return screen;
+    }
+
+    @Benchmark
+    public Screen scrollRight() {
+        screen.scrollRight(bitplane);
+        return screen;
+    }
+
+    @Benchmark
+    public Screen scrollUp() {
+        screen.scrollUp(4, bitplane);
+        return screen;
+    }
+
+    @Benchmark
+    public Screen scrollDown() {
+        screen.scrollDown(4, bitplane);
+        return screen;
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2013-2025 Craig Thomas
+ * This project uses an MIT style license - see LICENSE for details.
+ */
+package ca.craigthomas.chip8java.emulator.components;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the per-frame cost of getting the screen contents out of
+ * the emulator, either as the scaled back buffer or as raw pixels. A pixel
+ * is toggled before every render so that the back buffer is always redrawn,
+ * either just the row holding the pixel, or every row after a clear.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ScreenRenderBenchmark
+{
+    @Param({"1", "7"})
+    public int scale;
+
+    private Screen screen;
+
+    private int[] pixels;
+
+    private boolean toggle;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        screen = new Screen(scale);
+        pixels = new int[Screen.WIDTH * Screen.HEIGHT];
+        for (int x = 0; x < Screen.WIDTH / 2; x += 3) {
+            screen.drawPixel(x, x % (Screen.HEIGHT / 2), true, 1);
+        }
+    }
+
+    @Benchmark
+    public Object getBuffer() {
+        toggle = !toggle;
+        screen.drawPixel(1, 1, toggle, 1);
+        return screen.getBuffer();
+    }
+
+    @Benchmark
+    public Object getBufferAllRows() {
+        screen.clearScreen(2);
+        return screen.getBuffer();
+    }
+
+    @Benchmark
+    public int[] copyPixels() {
+        screen.copyPixels(pixels);
+        return pixels;
+    }
+}
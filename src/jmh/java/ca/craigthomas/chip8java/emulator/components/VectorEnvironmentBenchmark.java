@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2013-2025 Craig Thomas
+ * This project uses an MIT style license - see LICENSE for details.
+ */
+package ca.craigthomas.chip8java.emulator.components;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how many steps per second a VectorEnvironment can run. Each
+ * operation steps every session once, so the reported throughput multiplied
+ * by the number of sessions is the number of environment steps per second,
+ * and dividing that by the number of threads gives the steps per second per
+ * core. The ROM reads the keyboard and draws a moving sprite every frame.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class VectorEnvironmentBenchmark
+{
+    // Moves a sprite right while key 5 is held down, and down otherwise
+    private static final byte[] ROM = {
+            (byte) 0xA0, 0x00,      // LOAD I, 000
+            0x62, 0x05,             // LOAD V2, 05
+            (byte) 0xD0, 0x15,      // DRAW V0, V1, 5
+            (byte) 0xE2, (byte) 0x9E, // SKPR V2
+            0x71, 0x01,             // ADD V1, 01
+            (byte) 0xE2, (byte) 0xA1, // SKNP V2
+            0x70, 0x01,             // ADD V0, 01
+            (byte) 0xD0, 0x15,      // DRAW V0, V1, 5
+            0x12, 0x02,             // JUMP 202
+    };
+
+    @Param({"64", "1024"})
+    public int sessions;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    private VectorEnvironment environment;
+
+    private int[] actions;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        environment = new VectorEnvironment(ROM, sessions, 4, CentralProcessingUnit.DEFAULT_MAX_TICKS, 0,
+                session -> session.getCPU().v[0], threads);
+        actions = new int[sessions];
+        for (int i = 0; i < sessions; i += 2) {
+            actions[i] = 1 << 5;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        environment.close();
+    }
+
+    @Benchmark
+    public long[] step() throws InterruptedException {
+        return environment.step(actions);
+    }
+}
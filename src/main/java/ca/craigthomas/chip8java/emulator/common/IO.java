@@ -61,6 +61,56 @@ public class IO
         }
     }
 
+    /**
+     * Reads the rest of a stream into a new array of bytes.
+     *
+     * @param stream the stream to read
+     * @return the bytes read, or null if there is an error
+     */
+    public static byte[] readStreamToByteArray(InputStream stream) {
+        if (stream == null) {
+            return null;
+        }
+
+        try {
+            return IOUtils.toByteArray(stream);
+        } catch (Exception e) {
+            LOGGER.severe("Error reading stream: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Copies the bytes of a stream into an array of bytes, starting at the
+     * offset in the target memory array.
+     *
+     * @param stream the stream with the bytes to copy
+     * @param target the target byte array
+     * @param offset where in the target array to copy bytes to
+     * @return true if the source was not null, false otherwise
+     */
+    public static boolean copyStreamToByteArray(InputStream stream, byte[] target, int offset) {
+        byte[] source;
+
+        if (target == null) {
+            return false;
+        }
+
+        try {
+            source = IOUtils.toByteArray(stream);
+        } catch (Exception e) {
+            LOGGER.severe("Error copying stream: " + e.getMessage());
+            return false;
+        }
+
+        if (source.length > (target.length - offset)) {
+            return false;
+        }
+
+        System.arraycopy(source, 0, target, offset, source.length);
+        return true;
+    }
+
     /**
      * Copies an array of bytes to an array of shorts, starting at the offset
      * in the target memory array.
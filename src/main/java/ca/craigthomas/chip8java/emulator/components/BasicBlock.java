@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2013-2025 Craig Thomas
+ * This project uses an MIT style license - see LICENSE for details.
+ */
+package ca.craigthomas.chip8java.emulator.components;
+
+import java.util.Arrays;
+
+/**
+ * A straight-line run of instructions that always executes in order. A block
+ * starts at a given address and ends with the first instruction that can
+ * change the flow of control (jumps, calls, returns, skips and key waits),
+ * draw to the screen, or write to memory - see BlockCompiler.getKind. Blocks
+ * are also limited to MAX_INSTRUCTIONS instructions so that they fit
+ * comfortably within a frame, and stop before any instruction that the
+ * BlockCompiler does not handle.
+ * <p>
+ * A block remembers the bytes it was decoded from, so that the CPU can tell
+ * when the program has written over it. Once a block has been entered
+ * COMPILE_THRESHOLD times it is compiled by the BlockCompiler. A block that
+ * keeps being rewritten is self modifying code, and after MAX_REWRITES
+ * rewrites it is never compiled again.
+ */
+class BasicBlock
+{
+    // The maximum number of instructions in a single block
+    static final int MAX_INSTRUCTIONS = 32;
+
+    // The number of times a block is entered before it is compiled
+    static final int COMPILE_THRESHOLD = 8;
+
+    // The number of times a block can be rewritten before it is always interpreted
+    static final int MAX_REWRITES = 4;
+
+    // The address of the first instruction in the block
+    final int address;
+
+    // The bytes the block was decoded from
+    final byte[] code;
+
+    // The number of instructions in the block
+    final int length;
+
+    // The address of the last instruction in the block
+    final int lastInstruction;
+
+    // Whether every instruction in the block is register only
+    final boolean registerOnly;
+
+    // The number of times the block at this address has been rewritten
+    final int rewrites;
+
+    // The number of times the block has been entered
+    int entries;
+
+    // The compiled block, null until the block has been compiled
+    CentralProcessingUnit.Operation compiled;
+
+    private BasicBlock(int address, byte[] code, boolean registerOnly, int rewrites) {
+        this.address = address;
+        this.code = code;
+        this.length = code.length / 2;
+        this.lastInstruction = address + code.length - 2;
+        this.registerOnly = registerOnly;
+        this.rewrites = rewrites;
+    }
+
+    /**
+     * Decodes the block of instructions that starts at the specified
+     * address. The block stops early if it reaches the end of memory, and
+     * is empty if the first instruction can not be part of a block.
+     *
+     * @param memory the memory to read instructions from
+     * @param start the address of the first instruction
+     * @param rewrites the number of times the block at this address has been rewritten
+     * @return the decoded block
+     */
+    static BasicBlock decode(Memory memory, int start, int rewrites) {
+        int count = 0;
+        boolean registerOnly = true;
+        int address = start;
+        while ((count < MAX_INSTRUCTIONS) && (address < memory.getSize() - 1)) {
+            int operand = memory.readWord(address);
+            int kind = BlockCompiler.getKind(operand);
+            if (kind == BlockCompiler.UNSUPPORTED) {
+                break;
+            }
+            registerOnly &= CentralProcessingUnit.isRegisterOnly(operand);
+            count++;
+            address += 2;
+            if (kind == BlockCompiler.EXIT) {
+                break;
+            }
+        }
+        byte[] code = Arrays.copyOfRange(memory.memory, start, start + count * 2);
+        return new BasicBlock(start, code, registerOnly, rewrites);
+    }
+
+    /**
+     * Returns true if memory still holds the instructions the block was
+     * decoded from.
+     *
+     * @param memory the memory to check
+     * @return true if the block is unchanged
+     */
+    boolean matches(Memory memory) {
+        return Arrays.equals(memory.memory, address, address + code.length, code, 0, code.length);
+    }
+
+    /**
+     * Records an entry into the block, and returns the compiled block once
+     * it has been entered often enough to be worth compiling.
+     *
+     * @param quirkProfile the active quirk profile
+     * @return the compiled block, or null if the block should be interpreted
+     */
+    CentralProcessingUnit.Operation enter(int quirkProfile) {
+        if (compiled == null) {
+            if ((length < 2) || (rewrites > MAX_REWRITES) || (++entries < COMPILE_THRESHOLD)) {
+                return null;
+            }
+            compiled = BlockCompiler.compile(this, quirkProfile);
+        }
+        return compiled;
+    }
+}
@@ -0,0 +1,776 @@
+/*
+ * Copyright (C) 2013-2025 Craig Thomas
+ * This project uses an MIT style license - see LICENSE for details.
+ */
+package ca.craigthomas.chip8java.emulator.components;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compiles a BasicBlock into JVM bytecode, defined as a hidden class that
+ * implements CentralProcessingUnit.Operation. Executing the operation has
+ * the same effect as executing every instruction in the block in turn.
+ * <p>
+ * Register arithmetic, loads of the index register and reads of the delay
+ * timer are compiled inline. The V registers and the index register they
+ * use are read into locals the first time they are needed, and are only
+ * written back to the CPU when the block exits, or before an instruction
+ * that the block hands to the interpreter. Such instructions are executed
+ * through executeOperand, and every register is read again from the CPU
+ * after them. The last instruction of a block - a jump, call, return, skip,
+ * draw, key wait, exit or write to memory - is always handed over the same
+ * way, except for a plain jump, which is compiled inline.
+ * <p>
+ * The generated code has no branches, so the class file needs no stack map
+ * frames. Compiled blocks only depend on their address, their instructions
+ * and the shift and logic quirks, so they are shared by every CPU.
+ */
+final class BlockCompiler
+{
+    // Instructions that can not be part of a block
+    static final int UNSUPPORTED = 0;
+
+    // Instructions compiled to bytecode working on the registers held in locals
+    static final int INLINE = 1;
+
+    // Instructions handed to the interpreter from within a block
+    static final int CALL = 2;
+
+    // Instructions that end a block, handed to the interpreter unless they are a plain jump
+    static final int EXIT = 3;
+
+    // The quirks that change the code compiled for a block
+    static final int QUIRKS = CentralProcessingUnit.SHIFT_QUIRKS | CentralProcessingUnit.LOGIC_QUIRKS;
+
+    // The class file version for Java 17
+    private static final int CLASS_VERSION = 61;
+
+    private static final String CPU = "ca/craigthomas/chip8java/emulator/components/CentralProcessingUnit";
+    private static final String OPERATION = CPU + "$Operation";
+    private static final String NAME = "ca/craigthomas/chip8java/emulator/components/CompiledBlock";
+
+    // The local holding the CPU
+    private static final int CPU_LOCAL = 1;
+
+    // The local holding the V register array of the CPU
+    private static final int V_LOCAL = 2;
+
+    // The local holding register V0, followed by the other fifteen registers
+    private static final int REGISTER_LOCAL = 3;
+
+    // The local holding the index register
+    private static final int INDEX_LOCAL = REGISTER_LOCAL + 16;
+
+    // The local holding intermediate results
+    private static final int TEMP_LOCAL = INDEX_LOCAL + 1;
+
+    // Bytecode instructions
+    private static final int ICONST_0 = 0x03;
+    private static final int BIPUSH = 0x10;
+    private static final int SIPUSH = 0x11;
+    private static final int LDC_W = 0x13;
+    private static final int ILOAD = 0x15;
+    private static final int ALOAD_0 = 0x2A;
+    private static final int ALOAD_1 = 0x2B;
+    private static final int ALOAD_2 = 0x2C;
+    private static final int SALOAD = 0x35;
+    private static final int ISTORE = 0x36;
+    private static final int ASTORE_2 = 0x4D;
+    private static final int SASTORE = 0x56;
+    private static final int IADD = 0x60;
+    private static final int ISUB = 0x64;
+    private static final int IREM = 0x70;
+    private static final int ISHL = 0x78;
+    private static final int ISHR = 0x7A;
+    private static final int IUSHR = 0x7C;
+    private static final int IAND = 0x7E;
+    private static final int IOR = 0x80;
+    private static final int IXOR = 0x82;
+    private static final int I2S = 0x93;
+    private static final int RETURN = 0xB1;
+    private static final int GETFIELD = 0xB4;
+    private static final int PUTFIELD = 0xB5;
+    private static final int INVOKEVIRTUAL = 0xB6;
+    private static final int INVOKESPECIAL = 0xB7;
+
+    // The number of compiled blocks kept before the cache is emptied
+    private static final int MAX_COMPILED = 4096;
+
+    // Every block compiled so far, by address, quirks and instructions
+    private static final Map<Key, CentralProcessingUnit.Operation> COMPILED = new ConcurrentHashMap<>();
+
+    // The constant pool of the class being generated
+    private final ClassBytes constants = new ClassBytes();
+
+    // The index of each entry in the constant pool
+    private final Map<String, Integer> constantIndexes = new HashMap<>();
+
+    // The number of slots used in the constant pool so far, starting at 1
+    private int constantCount = 1;
+
+    // The code of the execute method being generated
+    private final ClassBytes code = new ClassBytes();
+
+    // Whether each V register has been read into its local
+    private final boolean[] loaded = new boolean[16];
+
+    // Whether each V register local has been changed since it was read
+    private final boolean[] dirty = new boolean[16];
+
+    // Whether the index register has been read into its local
+    private boolean indexLoaded;
+
+    // Whether the index register local has been changed since it was read
+    private boolean indexDirty;
+
+    private BlockCompiler() {
+    }
+
+    /**
+     * Returns how an instruction is handled in a block. Instructions are
+     * classified the same way decodeOperation decodes them.
+     *
+     * @param operand the instruction
+     * @return UNSUPPORTED, INLINE, CALL or EXIT
+     */
+    static int getKind(int operand) {
+        switch ((operand & 0xF000) >> 12) {
+            case 0x0:
+                switch (operand & 0x00FF) {
+                    case 0xE0:
+                    case 0xFB:
+                    case 0xFC:
+                    case 0xFE:
+                    case 0xFF:
+                        return CALL;
+
+                    case 0xEE:
+                    case 0xFD:
+                        return EXIT;
+
+                    default:
+                        return (((operand & 0xF0) == 0xC0) || ((operand & 0xF0) == 0xD0)) ? CALL : UNSUPPORTED;
+                }
+
+            case 0x1:
+            case 0x2:
+            case 0x3:
+            case 0x4:
+            case 0x9:
+            case 0xB:
+            case 0xD:
+                return EXIT;
+
+            case 0x5:
+                switch (operand & 0x000F) {
+                    case 0x0:
+                    case 0x2:
+                        return EXIT;
+
+                    case 0x3:
+                        return CALL;
+
+                    default:
+                        return UNSUPPORTED;
+                }
+
+            case 0x6:
+            case 0x7:
+            case 0xA:
+                return INLINE;
+
+            case 0x8:
+                return (((operand & 0x000F) <= 0x7) || ((operand & 0x000F) == 0xE)) ? INLINE : UNSUPPORTED;
+
+            case 0xC:
+                return CALL;
+
+            case 0xE:
+                return (((operand & 0x00FF) == 0x9E) || ((operand & 0x00FF) == 0xA1)) ? EXIT : UNSUPPORTED;
+
+            case 0xF:
+                switch (operand & 0x00FF) {
+                    case 0x07:
+                    case 0x1E:
+                        return INLINE;
+
+                    case 0x01:
+                    case 0x02:
+                    case 0x15:
+                    case 0x18:
+                    case 0x29:
+                    case 0x30:
+                    case 0x3A:
+                    case 0x65:
+                    case 0x75:
+                    case 0x85:
+                        return CALL;
+
+                    case 0x0A:
+                    case 0x33:
+                    case 0x55:
+                        return EXIT;
+
+                    default:
+                        return UNSUPPORTED;
+                }
+
+            default:
+                return UNSUPPORTED;
+        }
+    }
+
+    /**
+     * Returns the compiled code for a block, compiling it if no CPU has
+     * compiled the same block with the same quirks before. Once the cache
+     * holds MAX_COMPILED blocks it is emptied, so that ROMs loaded one after
+     * the other do not keep every block they ever compiled alive.
+     *
+     * @param block the block to compile
+     * @param quirkProfile the active quirk profile
+     * @return the compiled block
+     */
+    static CentralProcessingUnit.Operation compile(BasicBlock block, int quirkProfile) {
+        Key key = new Key(block.address, quirkProfile & QUIRKS, block.code);
+        if (COMPILED.size() >= MAX_COMPILED) {
+            COMPILED.clear();
+        }
+        return COMPILED.computeIfAbsent(key, k -> new BlockCompiler().define(k.address, k.code, k.quirks));
+    }
+
+    /**
+     * Generates the class for a block and creates an instance of it.
+     *
+     * @param address the address of the first instruction
+     * @param instructions the instructions of the block
+     * @param quirks the shift and logic quirks to compile for
+     * @return the compiled block
+     */
+    private CentralProcessingUnit.Operation define(int address, byte[] instructions, int quirks) {
+        byte[] bytes = generate(address, instructions, quirks);
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+            return (CentralProcessingUnit.Operation) lookup.findConstructor(lookup.lookupClass(),
+                    MethodType.methodType(void.class)).invoke();
+        } catch (Throwable e) {
+            throw new IllegalStateException("could not compile block at " + Integer.toHexString(address), e);
+        }
+    }
+
+    /**
+     * Generates the class file for a block.
+     *
+     * @param address the address of the first instruction
+     * @param instructions the instructions of the block
+     * @param quirks the shift and logic quirks to compile for
+     * @return the class file
+     */
+    private byte[] generate(int address, byte[] instructions, int quirks) {
+        code.u1(ALOAD_1);
+        code.u1(GETFIELD);
+        code.u2(fieldConstant("v", "[S"));
+        code.u1(ASTORE_2);
+
+        int count = instructions.length / 2;
+        for (int i = 0; i < count; i++) {
+            int operand = ((instructions[i * 2] & 0xFF) << 8) | (instructions[i * 2 + 1] & 0xFF);
+            int next = address + (i + 1) * 2;
+            boolean last = i == count - 1;
+            if (getKind(operand) == INLINE) {
+                compileInline(operand, quirks);
+                if (last) {
+                    exit(next, operand);
+                }
+            } else if ((operand & 0xF000) == 0x1000) {
+                exit(operand & 0x0FFF, operand);
+            } else {
+                call(next, operand);
+                if (!last) {
+                    reload();
+                }
+            }
+        }
+        code.u1(RETURN);
+
+        int codeAttribute = utf8Constant("Code");
+        int objectInit = methodConstant("java/lang/Object", "<init>", "()V");
+        int thisClass = classConstant(NAME);
+        int superClass = classConstant("java/lang/Object");
+        int operationClass = classConstant(OPERATION);
+        int initName = utf8Constant("<init>");
+        int initType = utf8Constant("()V");
+        int executeName = utf8Constant("execute");
+        int executeType = utf8Constant("(L" + CPU + ";)V");
+
+        ClassBytes output = new ClassBytes();
+        output.u4(0xCAFEBABE);
+        output.u2(0);
+        output.u2(CLASS_VERSION);
+        output.u2(constantCount);
+        constants.writeTo(output);
+        output.u2(0x0030);
+        output.u2(thisClass);
+        output.u2(superClass);
+        output.u2(1);
+        output.u2(operationClass);
+        output.u2(0);
+        output.u2(2);
+
+        output.u2(0x0001);
+        output.u2(initName);
+        output.u2(initType);
+        output.u2(1);
+        output.u2(codeAttribute);
+        output.u4(12 + 5);
+        output.u2(1);
+        output.u2(1);
+        output.u4(5);
+        output.u1(ALOAD_0);
+        output.u1(INVOKESPECIAL);
+        output.u2(objectInit);
+        output.u1(RETURN);
+        output.u2(0);
+        output.u2(0);
+
+        output.u2(0x0001);
+        output.u2(executeName);
+        output.u2(executeType);
+        output.u2(1);
+        output.u2(codeAttribute);
+        output.u4(12 + code.size());
+        output.u2(4);
+        output.u2(TEMP_LOCAL + 1);
+        output.u4(code.size());
+        code.writeTo(output);
+        output.u2(0);
+        output.u2(0);
+
+        output.u2(0);
+        return output.toByteArray();
+    }
+
+    /**
+     * Compiles an instruction that works on the registers held in locals.
+     *
+     * @param operand the instruction
+     * @param quirks the shift and logic quirks to compile for
+     */
+    private void compileInline(int operand, int quirks) {
+        int x = (operand & 0x0F00) >> 8;
+        int y = (operand & 0x00F0) >> 4;
+        switch ((operand & 0xF000) >> 12) {
+            case 0x6:
+                push(operand & 0x00FF);
+                storeRegister(x);
+                break;
+
+            case 0x7:
+                loadRegister(x);
+                push(operand & 0x00FF);
+                code.u1(IADD);
+                push(256);
+                code.u1(IREM);
+                storeRegister(x);
+                break;
+
+            case 0x8:
+                compileArithmetic(operand & 0x000F, x, y, quirks);
+                break;
+
+            case 0xA:
+                push(operand & 0x0FFF);
+                storeIndex();
+                break;
+
+            default:
+                if ((operand & 0x00FF) == 0x07) {
+                    code.u1(ALOAD_1);
+                    code.u1(GETFIELD);
+                    code.u2(fieldConstant("delay", "S"));
+                    storeRegister(x);
+                } else {
+                    loadIndex();
+                    loadRegister(x);
+                    code.u1(IADD);
+                    storeIndex();
+                }
+                break;
+        }
+    }
+
+    /**
+     * Compiles an 8xyN register arithmetic instruction. Flags are computed
+     * with shifts rather than comparisons, and VF is always written after
+     * Vx, so that VF holds the flag when x is F.
+     *
+     * @param function the low nibble of the instruction
+     * @param x the target register
+     * @param y the source register
+     * @param quirks the shift and logic quirks to compile for
+     */
+    private void compileArithmetic(int function, int x, int y, int quirks) {
+        boolean logic = (quirks & CentralProcessingUnit.LOGIC_QUIRKS) != 0;
+        boolean shift = (quirks & CentralProcessingUnit.SHIFT_QUIRKS) != 0;
+        switch (function) {
+            case 0x0:
+                loadRegister(y);
+                storeRegister(x);
+                break;
+
+            case 0x1:
+            case 0x2:
+            case 0x3:
+                loadRegister(x);
+                loadRegister(y);
+                code.u1((function == 0x1) ? IOR : (function == 0x2) ? IAND : IXOR);
+                storeRegister(x);
+                if (logic) {
+                    code.u1(ICONST_0);
+                    storeRegister(0xF);
+                }
+                break;
+
+            case 0x4:
+                // VF = 1 if the sum is over 255, from the sign of 255 - sum
+                loadRegister(x);
+                loadRegister(y);
+                code.u1(IADD);
+                storeTemp();
+                loadTemp();
+                push(256);
+                code.u1(IREM);
+                storeRegister(x);
+                push(255);
+                loadTemp();
+                code.u1(ISUB);
+                push(31);
+                code.u1(IUSHR);
+                storeRegister(0xF);
+                break;
+
+            case 0x5:
+            case 0x7:
+                // VF = 1 unless the difference is negative, and a negative difference wraps by 256
+                loadRegister((function == 0x5) ? x : y);
+                loadRegister((function == 0x5) ? y : x);
+                code.u1(ISUB);
+                storeTemp();
+                loadTemp();
+                loadTemp();
+                push(31);
+                code.u1(ISHR);
+                push(256);
+                code.u1(IAND);
+                code.u1(IADD);
+                code.u1(I2S);
+                storeRegister(x);
+                loadTemp();
+                push(31);
+                code.u1(ISHR);
+                push(1);
+                code.u1(IADD);
+                storeRegister(0xF);
+                break;
+
+            case 0x6:
+                loadRegister(shift ? x : y);
+                storeTemp();
+                loadTemp();
+                push(1);
+                code.u1(ISHR);
+                storeRegister(x);
+                loadTemp();
+                push(1);
+                code.u1(IAND);
+                storeRegister(0xF);
+                break;
+
+            default:
+                loadRegister(shift ? x : y);
+                storeTemp();
+                loadTemp();
+                push(1);
+                code.u1(ISHL);
+                push(0xFF);
+                code.u1(IAND);
+                storeRegister(x);
+                loadTemp();
+                push(0x80);
+                code.u1(IAND);
+                push(7);
+                code.u1(ISHR);
+                storeRegister(0xF);
+                break;
+        }
+    }
+
+    /**
+     * Ends the block after an instruction compiled inline, writing back the
+     * registers, the program counter and the operand.
+     *
+     * @param pc the address of the next instruction to execute
+     * @param operand the last instruction executed
+     */
+    private void exit(int pc, int operand) {
+        writeBack();
+        putIntField("pc", pc);
+        putIntField("operand", operand);
+    }
+
+    /**
+     * Hands an instruction to the interpreter, after writing back the
+     * registers and setting the program counter to the next instruction.
+     *
+     * @param pc the address of the next instruction
+     * @param operand the instruction
+     */
+    private void call(int pc, int operand) {
+        writeBack();
+        putIntField("pc", pc);
+        code.u1(ALOAD_1);
+        push(operand);
+        code.u1(INVOKEVIRTUAL);
+        code.u2(methodConstant(CPU, "executeOperand", "(I)V"));
+    }
+
+    /**
+     * Forgets every register held in a local, so that each is read from the
+     * CPU again the next time it is needed.
+     */
+    private void reload() {
+        Arrays.fill(loaded, false);
+        indexLoaded = false;
+        code.u1(ALOAD_1);
+        code.u1(GETFIELD);
+        code.u2(fieldConstant("v", "[S"));
+        code.u1(ASTORE_2);
+    }
+
+    /**
+     * Writes every register changed in a local back to the CPU.
+     */
+    private void writeBack() {
+        for (int register = 0; register < 16; register++) {
+            if (dirty[register]) {
+                code.u1(ALOAD_2);
+                push(register);
+                code.u1(ILOAD);
+                code.u1(REGISTER_LOCAL + register);
+                code.u1(SASTORE);
+                dirty[register] = false;
+            }
+        }
+        if (indexDirty) {
+            code.u1(ALOAD_1);
+            code.u1(ILOAD);
+            code.u1(INDEX_LOCAL);
+            code.u1(PUTFIELD);
+            code.u2(fieldConstant("index", "I"));
+            indexDirty = false;
+        }
+    }
+
+    private void loadRegister(int register) {
+        if (!loaded[register]) {
+            code.u1(ALOAD_2);
+            push(register);
+            code.u1(SALOAD);
+            code.u1(ISTORE);
+            code.u1(REGISTER_LOCAL + register);
+            loaded[register] = true;
+        }
+        code.u1(ILOAD);
+        code.u1(REGISTER_LOCAL + register);
+    }
+
+    private void storeRegister(int register) {
+        code.u1(ISTORE);
+        code.u1(REGISTER_LOCAL + register);
+        loaded[register] = true;
+        dirty[register] = true;
+    }
+
+    private void loadIndex() {
+        if (!indexLoaded) {
+            code.u1(ALOAD_1);
+            code.u1(GETFIELD);
+            code.u2(fieldConstant("index", "I"));
+            code.u1(ISTORE);
+            code.u1(INDEX_LOCAL);
+            indexLoaded = true;
+        }
+        code.u1(ILOAD);
+        code.u1(INDEX_LOCAL);
+    }
+
+    private void storeIndex() {
+        code.u1(ISTORE);
+        code.u1(INDEX_LOCAL);
+        indexLoaded = true;
+        indexDirty = true;
+    }
+
+    private void loadTemp() {
+        code.u1(ILOAD);
+        code.u1(TEMP_LOCAL);
+    }
+
+    private void storeTemp() {
+        code.u1(ISTORE);
+        code.u1(TEMP_LOCAL);
+    }
+
+    private void putIntField(String name, int value) {
+        code.u1(ALOAD_1);
+        push(value);
+        code.u1(PUTFIELD);
+        code.u2(fieldConstant(name, "I"));
+    }
+
+    /**
+     * Pushes an int constant with the shortest instruction that holds it.
+     *
+     * @param value the value to push
+     */
+    private void push(int value) {
+        if ((value >= -1) && (value <= 5)) {
+            code.u1(ICONST_0 + value);
+        } else if ((value >= Byte.MIN_VALUE) && (value <= Byte.MAX_VALUE)) {
+            code.u1(BIPUSH);
+            code.u1(value);
+        } else if ((value >= Short.MIN_VALUE) && (value <= Short.MAX_VALUE)) {
+            code.u1(SIPUSH);
+            code.u2(value);
+        } else {
+            code.u1(LDC_W);
+            code.u2(intConstant(value));
+        }
+    }
+
+    private int utf8Constant(String value) {
+        Integer index = constantIndexes.get("U" + value);
+        if (index == null) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            constants.u1(1);
+            constants.u2(bytes.length);
+            constants.write(bytes, 0, bytes.length);
+            index = addConstant("U" + value);
+        }
+        return index;
+    }
+
+    private int intConstant(int value) {
+        Integer index = constantIndexes.get("I" + value);
+        if (index == null) {
+            constants.u1(3);
+            constants.u4(value);
+            index = addConstant("I" + value);
+        }
+        return index;
+    }
+
+    private int classConstant(String name) {
+        Integer index = constantIndexes.get("C" + name);
+        if (index == null) {
+            int nameIndex = utf8Constant(name);
+            constants.u1(7);
+            constants.u2(nameIndex);
+            index = addConstant("C" + name);
+        }
+        return index;
+    }
+
+    private int memberConstant(int tag, String owner, String name, String type) {
+        String key = tag + owner + "." + name + ":" + type;
+        Integer index = constantIndexes.get(key);
+        if (index == null) {
+            int ownerIndex = classConstant(owner);
+            int nameIndex = utf8Constant(name);
+            int typeIndex = utf8Constant(type);
+            constants.u1(12);
+            constants.u2(nameIndex);
+            constants.u2(typeIndex);
+            int nameAndType = addConstant("N" + key);
+            constants.u1(tag);
+            constants.u2(ownerIndex);
+            constants.u2(nameAndType);
+            index = addConstant(key);
+        }
+        return index;
+    }
+
+    private int fieldConstant(String name, String type) {
+        return memberConstant(9, CPU, name, type);
+    }
+
+    private int methodConstant(String owner, String name, String type) {
+        return memberConstant(10, owner, name, type);
+    }
+
+    private int addConstant(String key) {
+        int index = constantCount++;
+        constantIndexes.put(key, index);
+        return index;
+    }
+
+    /**
+     * A buffer for building big-endian class file structures.
+     */
+    private static final class ClassBytes extends ByteArrayOutputStream
+    {
+        void u1(int value) {
+            write(value);
+        }
+
+        void u2(int value) {
+            write(value >> 8);
+            write(value);
+        }
+
+        void u4(int value) {
+            u2(value >> 16);
+            u2(value);
+        }
+
+        void writeTo(ClassBytes output) {
+            output.write(buf, 0, count);
+        }
+    }
+
+    /**
+     * Identifies a compiled block by everything its code depends on.
+     */
+    private static final class Key
+    {
+        final int address;
+        final int quirks;
+        final byte[] code;
+
+        Key(int address, int quirks, byte[] code) {
+            this.address = address;
+            this.quirks = quirks;
+            this.code = code;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return (address == key.address) && (quirks == key.quirks) && Arrays.equals(code, key.code);
+        }
+
+        @Override
+        public int hashCode() {
+            return (address * 31 + quirks) * 31 + Arrays.hashCode(code);
+        }
+    }
+}
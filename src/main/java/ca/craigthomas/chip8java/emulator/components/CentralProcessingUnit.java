@@ -5,6 +5,8 @@
 package ca.craigthomas.chip8java.emulator.components;
 
 import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.Random;
 import java.util.Timer;
 import java.util.TimerTask;
@@ -42,6 +44,9 @@ public class CentralProcessingUnit extends Thread
     // The start location of the stack pointer
     private static final int STACK_POINTER_START = 0x52;
 
+    // The number of bytes the CPU registers take up in a save state
+    static final int STATE_BYTES = 4 * 4 + NUM_REGISTERS * 2 + 6 + 16 + 4 + 1;
+
     // The audio playback rate
     private static final int AUDIO_PLAYBACK_RATE = 48000;
 
@@ -62,6 +67,24 @@ public class CentralProcessingUnit extends Thread
     // The maximum number of cycles per second allowed
     public static final int DEFAULT_MAX_TICKS = 1000;
 
+    // The quirk profile bit for shift quirks
+    public static final int SHIFT_QUIRKS = 0x01;
+
+    // The quirk profile bit for logic quirks
+    public static final int LOGIC_QUIRKS = 0x02;
+
+    // The quirk profile bit for jump quirks
+    public static final int JUMP_QUIRKS = 0x04;
+
+    // The quirk profile bit for index quirks
+    public static final int INDEX_QUIRKS = 0x08;
+
+    // The quirk profile bit for clip quirks
+    public static final int CLIP_QUIRKS = 0x10;
+
+    // The number of distinct quirk profiles
+    private static final int NUM_QUIRK_PROFILES = 0x20;
+
     // The internal 8-bit registers
     protected short[] v;
 
@@ -107,9 +130,6 @@ public class CentralProcessingUnit extends Thread
     // A Random number generator used for the class
     private final Random random;
 
-    // A description of the last operation
-    protected String lastOpDesc;
-
     // The current operating mode for the CPU
     protected int mode;
 
@@ -140,27 +160,156 @@ public class CentralProcessingUnit extends Thread
     // Stores the generated sound clip
     Clip generatedClip = null;
 
-    // How many ticks have passed
-    private int tickCounter = 0;
-
-    // The maximum number of ticks allowed per cycle
+    // The maximum number of ticks allowed per frame
     private int maxTicks = 1000;
 
+    // The number of instructions executed so far in the current frame
+    private int frameTicks;
+
+    // Whether the CPU has stopped executing instructions, see kill
+    private volatile boolean halted = false;
+
+    // Decrements the delay and sound timers in real time, null when using the virtual clock
+    private Timer timer;
+
+    // Whether the delay and sound timers are decremented once per emulated frame
+    private volatile boolean virtualClock = false;
+
+    /**
+     * A single CPU operation. Operations are unbound references to the CPU
+     * methods that implement them, so that an instruction can be decoded once
+     * and then executed against the CPU as many times as needed.
+     */
+    @FunctionalInterface
+    protected interface Operation
+    {
+        void execute(CentralProcessingUnit cpu);
+    }
+
+    // The operation tables built so far, indexed by quirk profile
+    private static final Operation[][] OPERATION_TABLES = new Operation[NUM_QUIRK_PROFILES][];
+
+    // The operation that implements every possible 16-bit operand with no quirks, indexed by operand
+    protected static final Operation[] OPERATIONS = getOperationTable(0);
+
+    // The operation table for the active quirk profile
+    private Operation[] operations = OPERATIONS;
+
+    // Whether each operand is register only, see isRegisterOnly, indexed by operand
+    private static final boolean[] REGISTER_ONLY = new boolean[0x10000];
+
+    static {
+        for (int operand = 0; operand < REGISTER_ONLY.length; operand++) {
+            REGISTER_ONLY[operand] = isRegisterOnly(operand);
+        }
+    }
+
+    // Whether runFrame skips the rest of the frame when the CPU is in an idle loop
+    protected boolean idleLoopSkipping = true;
+
+    // Whether runFrame executes hot basic blocks as compiled code, see BlockCompiler
+    protected boolean blockCompilation = true;
+
+    // The number of entries in the basic block cache, a power of two
+    private static final int BLOCK_CACHE_SIZE = 1024;
+
+    // The basic blocks decoded so far, indexed by the low bits of their address
+    private final BasicBlock[] blocks = new BasicBlock[BLOCK_CACHE_SIZE];
+
+    // The total number of instructions skipped in idle loops
+    private long skippedInstructions;
+
+    // The registers at the start of the current idle loop candidate
+    private final short[] idleRegisters = new short[NUM_REGISTERS];
+
+    // The index, stack, delay and sound registers at the start of the current idle loop candidate
+    private int idleIndex;
+    private int idleStack;
+    private short idleDelay;
+    private short idleSound;
+
     CentralProcessingUnit(Memory memory, Keyboard keyboard, Screen screen) {
+        this(memory, keyboard, screen, false);
+    }
+
+    /**
+     * Creates a CPU that starts out using either the wall clock or the
+     * virtual clock. Starting on the virtual clock means no timer thread is
+     * ever created for the CPU, which matters when many CPUs are running
+     * side by side. See setVirtualClock.
+     *
+     * @param memory the memory to run from
+     * @param keyboard the keyboard to read keys from
+     * @param screen the screen to draw to
+     * @param virtualClock true to start with the virtual clock
+     */
+    CentralProcessingUnit(Memory memory, Keyboard keyboard, Screen screen, boolean virtualClock) {
         this.random = new Random();
         this.memory = memory;
         this.screen = screen;
         this.keyboard = keyboard;
-        Timer timer = new Timer("Delay Timer");
+        this.virtualClock = virtualClock;
+        if (!virtualClock) {
+            startTimer();
+        }
+        mode = MODE_NORMAL;
+        reset();
+    }
+
+    /**
+     * Starts the thread that decrements the delay and sound timers at 60Hz
+     * of wall clock time.
+     */
+    private void startTimer() {
+        timer = new Timer("Delay Timer");
         timer.schedule(new TimerTask() {
             @Override
             public void run() {
                 decrementTimers();
-                tickCounter = 0;
             }
-        }, 0, 17L);
-        mode = MODE_NORMAL;
-        reset();
+        }, 17L, 17L);
+    }
+
+    /**
+     * Stops the thread that decrements the delay and sound timers, if it
+     * is running.
+     */
+    private void stopTimer() {
+        if (timer != null) {
+            timer.cancel();
+            timer = null;
+        }
+    }
+
+    /**
+     * Sets whether the CPU uses a virtual clock. With the virtual clock, the
+     * delay and sound timers are decremented at the end of every frame run
+     * by runFrame, on the thread running the CPU, instead of by a separate
+     * wall clock timer thread. Every frame is then the same number of
+     * instructions long, which makes runs reproducible and lets them execute
+     * as fast as the host allows.
+     *
+     * @param enableVirtualClock true to use the virtual clock, false to use the wall clock
+     */
+    public void setVirtualClock(boolean enableVirtualClock) {
+        if (enableVirtualClock == virtualClock) {
+            return;
+        }
+        virtualClock = enableVirtualClock;
+        if (virtualClock) {
+            stopTimer();
+        } else {
+            startTimer();
+        }
+    }
+
+    /**
+     * Returns whether the CPU uses a virtual clock.
+     *
+     * @return true if the timers are decremented once per emulated frame
+     */
+    public boolean isVirtualClock() {
+        return virtualClock;
     }
 
     /**
@@ -174,6 +323,26 @@ public class CentralProcessingUnit extends Thread
         maxTicks = maxTicksAllowed / 60;
     }
 
+    /**
+     * Returns the number of operations that may be executed in a single
+     * 60Hz frame.
+     *
+     * @return the number of operations allowed per frame
+     */
+    public int getTicksPerFrame() {
+        return maxTicks;
+    }
+
+    /**
+     * Seeds the random number generator used by the RAND instruction, so
+     * that the sequence of random numbers it produces is reproducible.
+     *
+     * @param seed the seed to use
+     */
+    public void setRandomSeed(long seed) {
+        random.setSeed(seed);
+    }
+
     /**
      * Sets the shiftQuirks to true or false.
      *
@@ -181,6 +350,7 @@ public class CentralProcessingUnit extends Thread
      */
     public void setShiftQuirks(boolean enableQuirk) {
         shiftQuirks = enableQuirk;
+        useQuirkProfile(getQuirkProfile());
     }
 
     /**
@@ -190,6 +360,7 @@ public class CentralProcessingUnit extends Thread
      */
     public void setLogicQuirks(boolean enableQuirk) {
         logicQuirks = enableQuirk;
+        useQuirkProfile(getQuirkProfile());
     }
 
     /**
@@ -199,6 +370,7 @@ public class CentralProcessingUnit extends Thread
      */
     public void setJumpQuirks(boolean enableQuirk) {
         jumpQuirks = enableQuirk;
+        useQuirkProfile(getQuirkProfile());
     }
 
     /**
@@ -208,6 +380,7 @@ public class CentralProcessingUnit extends Thread
      */
     public void setIndexQuirks(boolean enableQuirk) {
         indexQuirks = enableQuirk;
+        useQuirkProfile(getQuirkProfile());
     }
 
     /**
@@ -217,23 +390,292 @@ public class CentralProcessingUnit extends Thread
      */
     public void setClipQuirks(boolean enableQuirk) {
         clipQuirks = enableQuirk;
+        useQuirkProfile(getQuirkProfile());
+    }
+
+    /**
+     * Switches to the operation table for the specified quirk profile. The
+     * basic blocks decoded so far are discarded, since compiled blocks are
+     * specific to the quirks they were compiled for.
+     *
+     * @param quirkProfile the quirk profile to use
+     */
+    private void useQuirkProfile(int quirkProfile) {
+        operations = getOperationTable(quirkProfile);
+        Arrays.fill(blocks, null);
+    }
+
+    /**
+     * Returns the active quirk profile. Each enabled quirk sets its bit in
+     * the profile - see SHIFT_QUIRKS, LOGIC_QUIRKS, JUMP_QUIRKS, INDEX_QUIRKS
+     * and CLIP_QUIRKS.
+     *
+     * @return the active quirk profile
+     */
+    public int getQuirkProfile() {
+        return (shiftQuirks ? SHIFT_QUIRKS : 0) |
+                (logicQuirks ? LOGIC_QUIRKS : 0) |
+                (jumpQuirks ? JUMP_QUIRKS : 0) |
+                (indexQuirks ? INDEX_QUIRKS : 0) |
+                (clipQuirks ? CLIP_QUIRKS : 0);
+    }
+
+    /**
+     * Enables exactly the quirks in the specified profile, and disables all
+     * others. The profile can be changed at any time, for example when a
+     * new ROM is loaded - instructions executed after the change use the
+     * new quirks.
+     *
+     * @param quirkProfile the quirk profile to use
+     */
+    public void setQuirkProfile(int quirkProfile) {
+        shiftQuirks = (quirkProfile & SHIFT_QUIRKS) != 0;
+        logicQuirks = (quirkProfile & LOGIC_QUIRKS) != 0;
+        jumpQuirks = (quirkProfile & JUMP_QUIRKS) != 0;
+        indexQuirks = (quirkProfile & INDEX_QUIRKS) != 0;
+        clipQuirks = (quirkProfile & CLIP_QUIRKS) != 0;
+        useQuirkProfile(getQuirkProfile());
+    }
+
+    /**
+     * Runs the rest of the current frame, up to getTicksPerFrame instructions
+     * in all. If the CPU is waiting for a keypress and none is available, the
+     * rest of the frame is spent waiting. When using the virtual clock, the
+     * delay and sound timers are decremented once the frame is complete. If
+     * the CPU is halted, nothing is executed and the frame is not completed.
+     *
+     * @return the number of instructions executed
+     */
+    public int runFrame() {
+        int executed = runTicks(maxTicks - frameTicks);
+        if (!halted) {
+            endFrame();
+        }
+        return executed;
+    }
+
+    /**
+     * Runs the specified number of frames, stopping early if the CPU halts
+     * or finishes a frame still waiting for a keypress. Each frame is run by
+     * runFrame.
+     *
+     * @param count the number of frames to run
+     * @return the number of instructions and frames run, and why the run stopped
+     */
+    public RunResult runFrames(int count) {
+        long instructions = 0;
+        int frames = 0;
+        while ((frames < count) && !halted) {
+            instructions += runFrame();
+            if (halted) {
+                break;
+            }
+            frames++;
+            if (awaitingKeypress) {
+                return new RunResult(instructions, frames, HaltReason.AWAITING_KEYPRESS);
+            }
+        }
+        return new RunResult(instructions, frames, halted ? HaltReason.EXIT : HaltReason.COMPLETED);
+    }
+
+    /**
+     * Runs the specified number of instructions, stopping early if the CPU
+     * halts or is waiting for a keypress that is not available. Frames are
+     * completed whenever getTicksPerFrame instructions have been executed
+     * in them, exactly as if the instructions were run with runFrame, and a
+     * frame left incomplete is continued by the next run.
+     *
+     * @param count the number of instructions to run
+     * @return the number of instructions and frames run, and why the run stopped
+     */
+    public RunResult runInstructions(long count) {
+        long instructions = 0;
+        int frames = 0;
+        while ((instructions < count) && !halted) {
+            int budget = (int) Math.min(count - instructions, maxTicks - frameTicks);
+            instructions += runTicks(budget);
+            if (frameTicks >= maxTicks) {
+                endFrame();
+                frames++;
+            } else if (awaitingKeypress) {
+                return new RunResult(instructions, frames, HaltReason.AWAITING_KEYPRESS);
+            }
+        }
+        return new RunResult(instructions, frames, halted ? HaltReason.EXIT : HaltReason.COMPLETED);
+    }
+
+    /**
+     * Executes up to the specified number of instructions within the current
+     * frame. Stops early if the CPU halts, or is waiting for a keypress that
+     * is not available.
+     * <p>
+     * The target of a backward jump made by a register only instruction is
+     * treated as the start of a possible idle loop. When a loop made up of
+     * register only instructions comes back around to its start with every
+     * register unchanged, the CPU is idle - usually polling the delay timer
+     * or the keyboard. Every further pass through the loop would do exactly
+     * the same thing until the timer or the keyboard changes, so the
+     * remaining whole passes within the budget are skipped and counted as
+     * executed. With the virtual clock the timers only change between
+     * frames, and a keypress arriving during the frame is simply seen once
+     * the frame is over. See getSkippedInstructions.
+     * <p>
+     * Basic blocks that have been compiled run as a whole when they fit in
+     * what is left of the budget - see BlockCompiler. Everything else is
+     * interpreted one instruction at a time. A block can only branch with
+     * its last instruction, so idle loops are detected exactly as if its
+     * instructions had been interpreted.
+     *
+     * @param budget the maximum number of instructions to execute
+     * @return the number of instructions executed
+     */
+    private int runTicks(int budget) {
+        int executed = 0;
+        int loopStart = -1;
+        int loopStartExecuted = 0;
+        while ((executed < budget) && !halted) {
+            if (awaitingKeypress) {
+                decodeKeypressAndContinue();
+                if (awaitingKeypress) {
+                    break;
+                }
+            }
+
+            if (idleLoopSkipping && (pc == loopStart) && (executed > loopStartExecuted)) {
+                if (isIdleSinceLoopStart()) {
+                    int loopLength = executed - loopStartExecuted;
+                    int skipped = ((budget - executed) / loopLength) * loopLength;
+                    executed += skipped;
+                    skippedInstructions += skipped;
+                    loopStart = -1;
+                    continue;
+                }
+                loopStartExecuted = executed;
+                saveIdleLoopStart();
+            }
+
+            int instructionStart = pc;
+            boolean registerOnly;
+            BasicBlock block = blockCompilation ? getCompiledBlock() : null;
+            if ((block != null) && (block.length <= budget - executed)) {
+                block.compiled.execute(this);
+                executed += block.length;
+                instructionStart = block.lastInstruction;
+                registerOnly = block.registerOnly;
+            } else {
+                fetchIncrementExecute();
+                executed++;
+                registerOnly = REGISTER_ONLY[operand];
+            }
+
+            if (!idleLoopSkipping) {
+                continue;
+            }
+            if (!registerOnly) {
+                loopStart = -1;
+            }
+            if (REGISTER_ONLY[operand] && (pc <= instructionStart) && (pc != loopStart)) {
+                loopStart = pc;
+                loopStartExecuted = executed;
+                saveIdleLoopStart();
+            }
+        }
+
+        frameTicks += executed;
+        return executed;
+    }
+
+    /**
+     * Returns the compiled basic block that starts at the program counter,
+     * decoding the block again if memory no longer holds the instructions
+     * it was decoded from. Returns null while the block is interpreted -
+     * until it is hot enough to compile, or if it is self modifying.
+     *
+     * @return the compiled block at the program counter, or null
+     */
+    private BasicBlock getCompiledBlock() {
+        if (pc > memory.getSize() - 2) {
+            return null;
+        }
+        int slot = (pc >> 1) & (BLOCK_CACHE_SIZE - 1);
+        BasicBlock block = blocks[slot];
+        if ((block == null) || (block.address != pc)) {
+            block = BasicBlock.decode(memory, pc, 0);
+            blocks[slot] = block;
+        } else if (!block.matches(memory)) {
+            block = BasicBlock.decode(memory, pc, block.rewrites + 1);
+            blocks[slot] = block;
+        }
+        return (block.enter(getQuirkProfile()) != null) ? block : null;
+    }
+
+    /**
+     * Completes the current frame. When using the virtual clock, the delay
+     * and sound timers are decremented.
+     */
+    private void endFrame() {
+        frameTicks = 0;
+        if (virtualClock) {
+            decrementTimers();
+        }
+    }
+
+    /**
+     * Saves the registers at the start of a possible idle loop.
+     */
+    private void saveIdleLoopStart() {
+        System.arraycopy(v, 0, idleRegisters, 0, NUM_REGISTERS);
+        idleIndex = index;
+        idleStack = stack;
+        idleDelay = delay;
+        idleSound = sound;
+    }
+
+    /**
+     * Returns true if the registers are the same as they were at the start
+     * of the possible idle loop.
+     *
+     * @return true if no register has changed since the loop started
+     */
+    private boolean isIdleSinceLoopStart() {
+        return Arrays.equals(v, idleRegisters) && (index == idleIndex) && (stack == idleStack) &&
+                (delay == idleDelay) && (sound == idleSound);
+    }
+
+    /**
+     * Returns the total number of instructions that were skipped because
+     * the CPU was in an idle loop. Skipped instructions are still counted
+     * as executed by runFrame.
+     *
+     * @return the number of skipped instructions
+     */
+    public long getSkippedInstructions() {
+        return skippedInstructions;
     }
 
     /**
      * Fetch the next instruction from memory, increment the program counter
-     * to the next instruction, and execute the instruction.
+     * to the next instruction, and execute the instruction. The operation is
+     * looked up directly in the operation table for the active quirk profile
+     * using the operand. Pacing the number of instructions per frame is up to
+     * the caller - see runFrame.
      */
     public void fetchIncrementExecute() {
-        if (tickCounter < maxTicks) {
-            operand = memory.read(pc);
-            operand = operand << 8;
-            operand += memory.read(pc + 1);
-            operand = operand & 0x0FFFF;
-            pc += 2;
-            int opcode = (operand & 0x0F000) >> 12;
-            executeInstruction(opcode);
-            tickCounter++;
-        }
+        operand = memory.readWord(pc);
+        pc += 2;
+        operations[operand].execute(this);
+    }
+
+    /**
+     * Executes a single instruction that has already been fetched, with the
+     * program counter already past it. Used by compiled blocks to hand
+     * instructions back to the interpreter.
+     *
+     * @param operand the instruction to execute
+     */
+    void executeOperand(int operand) {
+        this.operand = operand;
+        operations[operand].execute(this);
     }
 
     /**
@@ -242,265 +684,316 @@ public class CentralProcessingUnit extends Thread
      * @param opcode The operation to execute
      */
     protected void executeInstruction(int opcode) {
-        switch (opcode) {
+        if ((opcode < 0) || (opcode > 0xF)) {
+            operationNotSupported();
+            return;
+        }
+        operations[(opcode << 12) | (operand & 0x0FFF)].execute(this);
+    }
+
+    /**
+     * Returns the operation table for the specified quirk profile. Every
+     * possible 16-bit operand is decoded once, so that executing an
+     * instruction takes a single table lookup instead of a series of
+     * switch statements. Tables are only built the first time a quirk
+     * profile is used, and are then shared by every CPU.
+     *
+     * @param quirkProfile the quirk profile to build the table for
+     * @return the operation for each operand, indexed by operand
+     */
+    protected static synchronized Operation[] getOperationTable(int quirkProfile) {
+        Operation[] operations = OPERATION_TABLES[quirkProfile];
+        if (operations == null) {
+            operations = new Operation[0x10000];
+            for (int operand = 0; operand < operations.length; operand++) {
+                operations[operand] = decodeOperation(operand, quirkProfile);
+            }
+            OPERATION_TABLES[quirkProfile] = operations;
+        }
+        return operations;
+    }
+
+    /**
+     * Returns true if the instruction only reads and writes the V registers,
+     * the index register and the program counter, and reads nothing else
+     * but the delay timer and the keyboard. Given the same register values
+     * and inputs, a register only instruction always has the same effect,
+     * which is what idle loop detection relies on.
+     *
+     * @param operand the instruction to check
+     * @return true if the instruction is register only
+     */
+    static boolean isRegisterOnly(int operand) {
+        switch ((operand & 0xF000) >> 12) {
+            case 0x1:
+            case 0x3:
+            case 0x4:
+            case 0x6:
+            case 0x7:
+            case 0x9:
+            case 0xA:
+            case 0xB:
+                return true;
+
+            case 0x5:
+                return (operand & 0x000F) == 0x0;
+
+            case 0x8:
+                return ((operand & 0x000F) <= 0x7) || ((operand & 0x000F) == 0xE);
+
+            case 0xE:
+                return ((operand & 0x00FF) == 0x9E) || ((operand & 0x00FF) == 0xA1);
+
+            case 0xF:
+                return (operand & 0x00FF) == 0x07;
+
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Given a 16-bit operand, returns the operation that implements it when
+     * no quirks are enabled.
+     *
+     * @param operand the operand to decode
+     * @return the operation to execute for the operand
+     */
+    protected static Operation decodeOperation(int operand) {
+        return decodeOperation(operand, 0);
+    }
+
+    /**
+     * Given a 16-bit operand, returns the operation that implements it for
+     * the specified quirk profile. Operations affected by a quirk are bound
+     * to the behaviour the profile selects, so they never need to check the
+     * quirk settings when they are executed.
+     *
+     * @param operand the operand to decode
+     * @param quirkProfile the quirk profile to decode the operand for
+     * @return the operation to execute for the operand
+     */
+    protected static Operation decodeOperation(int operand, int quirkProfile) {
+        boolean shift = (quirkProfile & SHIFT_QUIRKS) != 0;
+        boolean logic = (quirkProfile & LOGIC_QUIRKS) != 0;
+        boolean jump = (quirkProfile & JUMP_QUIRKS) != 0;
+        boolean index = (quirkProfile & INDEX_QUIRKS) != 0;
+        boolean clip = (quirkProfile & CLIP_QUIRKS) != 0;
+
+        switch ((operand & 0xF000) >> 12) {
             case 0x0:
                 switch (operand & 0x00FF) {
                     case 0xE0:
-                        screen.clearScreen(bitplane);
-                        lastOpDesc = "CLS";
-                        break;
+                        return CentralProcessingUnit::clearScreen;
 
                     case 0xEE:
-                        returnFromSubroutine();
-                        break;
+                        return CentralProcessingUnit::returnFromSubroutine;
 
                     case 0xFB:
-                        scrollRight();
-                        break;
+                        return CentralProcessingUnit::scrollRight;
 
                     case 0xFC:
-                        scrollLeft();
-                        break;
+                        return CentralProcessingUnit::scrollLeft;
 
                     case 0xFD:
-                        kill();
-                        break;
+                        return CentralProcessingUnit::kill;
 
                     case 0xFE:
-                        disableExtendedMode();
-                        break;
+                        return CentralProcessingUnit::disableExtendedMode;
 
                     case 0xFF:
-                        enableExtendedMode();
-                        break;
+                        return CentralProcessingUnit::enableExtendedMode;
 
                     default:
                         switch (operand & 0xF0) {
                             case 0xC0:
-                                scrollDown(operand);
-                                break;
+                                return cpu -> cpu.scrollDown(cpu.operand);
 
                             case 0xD0:
-                                scrollUp(operand);
-                                break;
+                                return cpu -> cpu.scrollUp(cpu.operand);
 
                             default:
-                                lastOpDesc = "Operation " + toHex(operand, 4) + " not supported";
-                                break;
+                                return CentralProcessingUnit::operationNotSupported;
                         }
-                        break;
                 }
-                break;
 
             case 0x1:
-                jumpToAddress();
-                break;
+                return CentralProcessingUnit::jumpToAddress;
 
             case 0x2:
-                jumpToSubroutine();
-                break;
+                return CentralProcessingUnit::jumpToSubroutine;
 
             case 0x3:
-                skipIfRegisterEqualValue();
-                break;
+                return CentralProcessingUnit::skipIfRegisterEqualValue;
 
             case 0x4:
-                skipIfRegisterNotEqualValue();
-                break;
+                return CentralProcessingUnit::skipIfRegisterNotEqualValue;
 
             case 0x5:
-                int op = operand & 0x000F;
-                if (op == 0) {
-                    skipIfRegisterEqualRegister();
-                    return;
-                }
+                switch (operand & 0x000F) {
+                    case 0x0:
+                        return CentralProcessingUnit::skipIfRegisterEqualRegister;
 
-                if (op == 2) {
-                    storeSubsetOfRegistersInMemory();
-                    return;
-                }
+                    case 0x2:
+                        return CentralProcessingUnit::storeSubsetOfRegistersInMemory;
 
-                if (op == 3) {
-                    loadSubsetOfRegistersFromMemory();
-                    return;
-                }
+                    case 0x3:
+                        return CentralProcessingUnit::loadSubsetOfRegistersFromMemory;
 
-                lastOpDesc = "Operation " + toHex(operand, 4) + " not supported";
-                break;
+                    default:
+                        return CentralProcessingUnit::operationNotSupported;
+                }
 
             case 0x6:
-                moveValueToRegister();
-                break;
+                return CentralProcessingUnit::moveValueToRegister;
 
             case 0x7:
-                addValueToRegister();
-                break;
+                return CentralProcessingUnit::addValueToRegister;
 
             case 0x8:
                 switch (operand & 0x000F) {
                     case 0x0:
-                        moveRegisterIntoRegister();
-                        break;
+                        return CentralProcessingUnit::moveRegisterIntoRegister;
 
                     case 0x1:
-                        logicalOr();
-                        break;
+                        return logic ? cpu -> cpu.logicalOr(true) : cpu -> cpu.logicalOr(false);
 
                     case 0x2:
-                        logicalAnd();
-                        break;
+                        return logic ? cpu -> cpu.logicalAnd(true) : cpu -> cpu.logicalAnd(false);
 
                     case 0x3:
-                        exclusiveOr();
-                        break;
+                        return logic ? cpu -> cpu.exclusiveOr(true) : cpu -> cpu.exclusiveOr(false);
 
                     case 0x4:
-                        addRegisterToRegister();
-                        break;
+                        return CentralProcessingUnit::addRegisterToRegister;
 
                     case 0x5:
-                        subtractRegisterFromRegister();
-                        break;
+                        return CentralProcessingUnit::subtractRegisterFromRegister;
 
                     case 0x6:
-                        rightShift();
-                        break;
+                        return shift ? cpu -> cpu.rightShift(true) : cpu -> cpu.rightShift(false);
 
                     case 0x7:
-                        subtractRegisterFromRegister1();
-                        break;
+                        return CentralProcessingUnit::subtractRegisterFromRegister1;
 
                     case 0xE:
-                        leftShift();
-                        break;
+                        return shift ? cpu -> cpu.leftShift(true) : cpu -> cpu.leftShift(false);
 
                     default:
-                        lastOpDesc = "Operation " + toHex(operand, 4) + " not supported";
-                        break;
+                        return CentralProcessingUnit::operationNotSupported;
                 }
-                break;
 
             case 0x9:
-                skipIfRegisterNotEqualRegister();
-                break;
+                return CentralProcessingUnit::skipIfRegisterNotEqualRegister;
 
             case 0xA:
-                loadIndexWithValue();
-                break;
+                return CentralProcessingUnit::loadIndexWithValue;
 
             case 0xB:
-                jumpToRegisterPlusValue();
-                break;
+                return jump ? cpu -> cpu.jumpToRegisterPlusValue(true) : cpu -> cpu.jumpToRegisterPlusValue(false);
 
             case 0xC:
-                generateRandomNumber();
-                break;
+                return CentralProcessingUnit::generateRandomNumber;
 
             case 0xD:
-                drawSprite();
-                break;
+                return clip ? cpu -> cpu.drawSprite(true) : cpu -> cpu.drawSprite(false);
 
             case 0xE:
                 switch (operand & 0x00FF) {
                     case 0x9E:
-                        skipIfKeyPressed();
-                        break;
+                        return CentralProcessingUnit::skipIfKeyPressed;
 
                     case 0xA1:
-                        skipIfKeyNotPressed();
-                        break;
+                        return CentralProcessingUnit::skipIfKeyNotPressed;
 
                     default:
-                        lastOpDesc = "Operation " + toHex(operand, 4) + " not supported";
-                        break;
+                        return CentralProcessingUnit::operationNotSupported;
                 }
-                break;
 
             case 0xF:
                 switch (operand & 0x00FF) {
                     case 0x00:
-                        indexLoadLong();
-                        break;
+                        return CentralProcessingUnit::indexLoadLong;
 
                     case 0x01:
-                        setBitplane();
-                        break;
+                        return CentralProcessingUnit::setBitplane;
 
                     case 0x02:
-                        loadAudioPatternBuffer();
-                        break;
+                        return CentralProcessingUnit::loadAudioPatternBuffer;
 
                     case 0x07:
-                        moveDelayTimerIntoRegister();
-                        break;
+                        return CentralProcessingUnit::moveDelayTimerIntoRegister;
 
                     case 0x0A:
-                        waitForKeypress();
-                        break;
+                        return CentralProcessingUnit::waitForKeypress;
 
                     case 0x15:
-                        moveRegisterIntoDelayRegister();
-                        break;
+                        return CentralProcessingUnit::moveRegisterIntoDelayRegister;
 
                     case 0x18:
-                        moveRegisterIntoSoundRegister();
-                        break;
+                        return CentralProcessingUnit::moveRegisterIntoSoundRegister;
 
                     case 0x1E:
-                        addRegisterIntoIndex();
-                        break;
+                        return CentralProcessingUnit::addRegisterIntoIndex;
 
                     case 0x29:
-                        loadIndexWithSprite();
-                        break;
+                        return CentralProcessingUnit::loadIndexWithSprite;
 
                     case 0x30:
-                        loadIndexWithExtendedSprite();
-                        break;
+                        return CentralProcessingUnit::loadIndexWithExtendedSprite;
 
                     case 0x33:
-                        storeBCDInMemory();
-                        break;
+                        return CentralProcessingUnit::storeBCDInMemory;
 
                     case 0x3A:
-                        loadPitch();
-                        break;
+                        return CentralProcessingUnit::loadPitch;
 
                     case 0x55:
-                        storeRegistersInMemory();
-                        break;
+                        return index
+                                ? cpu -> cpu.storeRegistersInMemory(true)
+                                : cpu -> cpu.storeRegistersInMemory(false);
 
                     case 0x65:
-                        readRegistersFromMemory();
-                        break;
+                        return index
+                                ? cpu -> cpu.readRegistersFromMemory(true)
+                                : cpu -> cpu.readRegistersFromMemory(false);
 
                     case 0x75:
-                        storeRegistersInRPL();
-                        break;
+                        return CentralProcessingUnit::storeRegistersInRPL;
 
                     case 0x85:
-                        readRegistersFromRPL();
-                        break;
+                        return CentralProcessingUnit::readRegistersFromRPL;
 
                     default:
-                        lastOpDesc = "Operation " + toHex(operand, 4) + " not supported";
-                        break;
+                        return CentralProcessingUnit::operationNotSupported;
                 }
-                break;
 
             default:
-                lastOpDesc = "Operation " + toHex(operand, 4) + " not supported";
-                break;
+                return CentralProcessingUnit::operationNotSupported;
         }
     }
 
+    /**
+     * Handles an operand that is not a supported operation. Nothing is
+     * executed; the description is produced on demand by disassemble.
+     */
+    protected void operationNotSupported() {
+    }
+
+    /**
+     * 00E0 - CLS
+     * Clears the screen.
+     */
+    protected void clearScreen() {
+        screen.clearScreen(bitplane);
+    }
+
     /**
      * 00FB - SCRR
      * Scrolls the screen right by 4 pixels.
      */
     private void scrollRight() {
         screen.scrollRight(bitplane);
-        lastOpDesc = "Scroll Right";
     }
 
     /**
@@ -509,7 +1002,6 @@ public class CentralProcessingUnit extends Thread
      */
     private void scrollLeft() {
         screen.scrollLeft(bitplane);
-        lastOpDesc = "Scroll Left";
     }
 
     /**
@@ -519,10 +1011,9 @@ public class CentralProcessingUnit extends Thread
      */
     protected void returnFromSubroutine() {
         stack -= 1;
-        pc = memory.read(stack) << 8;
+        pc = memory.readUnsigned(stack) << 8;
         stack -= 1;
-        pc += memory.read(stack);
-        lastOpDesc = "RTS";
+        pc += memory.readUnsigned(stack);
     }
 
     /**
@@ -531,7 +1022,6 @@ public class CentralProcessingUnit extends Thread
      */
     protected void jumpToAddress() {
         pc = operand & 0x0FFF;
-        lastOpDesc = "JUMP " + toHex(operand & 0x0FFF, 3);
     }
 
     /**
@@ -539,12 +1029,11 @@ public class CentralProcessingUnit extends Thread
      * Jump to subroutine. Save the current program counter on the stack.
      */
     protected void jumpToSubroutine() {
-        memory.write(pc & 0x00FF, stack);
+        memory.writeUnsigned(pc & 0x00FF, stack);
         stack += 1;
-        memory.write((pc & 0xFF00) >> 8, stack);
+        memory.writeUnsigned((pc & 0xFF00) >> 8, stack);
         stack += 1;
         pc = operand & 0x0FFF;
-        lastOpDesc = "CALL " + toHex(operand & 0x0FFF, 3);
     }
 
     /**
@@ -556,11 +1045,10 @@ public class CentralProcessingUnit extends Thread
         int x = (operand & 0x0F00) >> 8;
         if (v[x] == (operand & 0x00FF)) {
             pc += 2;
-            if (memory.read(pc - 2) == 0xF0 && memory.read(pc - 1) == 0x00) {
+            if (memory.readWord(pc - 2) == 0xF000) {
                 pc += 2;
             }
         }
-        lastOpDesc = "SKE V" + toHex(x, 1) + ", " + toHex(operand & 0x00FF, 2);
     }
 
     /**
@@ -573,11 +1061,10 @@ public class CentralProcessingUnit extends Thread
         int x = (operand & 0x0F00) >> 8;
         if (v[x] != (operand & 0x00FF)) {
             pc += 2;
-            if (memory.read(pc - 2) == 0xF0 && memory.read(pc - 1) == 0x00) {
+            if (memory.readWord(pc - 2) == 0xF000) {
                 pc += 2;
             }
         }
-        lastOpDesc = "SKNE V" + toHex(x, 1) + ", " + toHex(operand & 0x00FF, 2);
     }
 
     /**
@@ -590,11 +1077,10 @@ public class CentralProcessingUnit extends Thread
         int y = (operand & 0x00F0) >> 4;
         if (v[x] == v[y]) {
             pc += 2;
-            if (memory.read(pc - 2) == 0xF0 && memory.read(pc - 1) == 0x00) {
+            if (memory.readWord(pc - 2) == 0xF000) {
                 pc += 2;
             }
         }
-        lastOpDesc = "SKE V" + toHex(x, 1) + ", V" + toHex(y, 1);
     }
 
     /**
@@ -608,16 +1094,15 @@ public class CentralProcessingUnit extends Thread
 
         if (y >= x) {
             for (int z = x; z < y + 1; z++) {
-                memory.write(v[z], index + pointer);
+                memory.writeUnsigned(v[z], index + pointer);
                 pointer++;
             }
         } else {
             for (int z = x; z > (y - 1); z--) {
-                memory.write(v[z], index + pointer);
+                memory.writeUnsigned(v[z], index + pointer);
                 pointer++;
             }
         }
-        lastOpDesc = "STORSUB [I], V" + toHex(x, 1) + ", V" + toHex(y, 1);
     }
 
     /**
@@ -631,16 +1116,15 @@ public class CentralProcessingUnit extends Thread
 
         if (y >= x) {
             for (int z = x; z < y + 1; z++) {
-                v[z] = memory.read(index + pointer);
+                v[z] = (short) memory.readUnsigned(index + pointer);
                 pointer++;
             }
         } else {
             for (int z = x; z > (y - 1); z--) {
-                v[z] = memory.read(index + pointer);
+                v[z] = (short) memory.readUnsigned(index + pointer);
                 pointer++;
             }
         }
-        lastOpDesc = "LOADSUB [I], V" + toHex(x, 1) + ", V" + toHex(y, 1);
     }
 
     /**
@@ -650,7 +1134,6 @@ public class CentralProcessingUnit extends Thread
     protected void moveValueToRegister() {
         int x = (operand & 0x0F00) >> 8;
         v[x] = (short) (operand & 0x00FF);
-        lastOpDesc = "LOAD V" + toHex(x, 1) + ", " + toHex(operand & 0x00FF, 2);
     }
 
     /**
@@ -660,7 +1143,6 @@ public class CentralProcessingUnit extends Thread
     protected void addValueToRegister() {
         int x = (operand & 0x0F00) >> 8;
         v[x] = (short) ((v[x] + (operand & 0x00FF)) % 256);
-        lastOpDesc = "ADD V" + toHex(x, 1) + ", " + toHex(operand & 0x00FF, 2);
     }
 
     /**
@@ -672,7 +1154,6 @@ public class CentralProcessingUnit extends Thread
         int x = (operand & 0x0F00) >> 8;
         int y = (operand & 0x00F0) >> 4;
         v[x] = v[y];
-        lastOpDesc = "LOAD V" + toHex(x, 1) + ", V" + toHex(y, 1);
     }
 
     /**
@@ -681,13 +1162,21 @@ public class CentralProcessingUnit extends Thread
      * register, and store the result in the target register.
      */
     protected void logicalOr() {
+        logicalOr(logicQuirks);
+    }
+
+    /**
+     * 8xy1 - OR Vx, Vy, specialized for the logic quirks setting.
+     *
+     * @param clearFlag whether register VF is cleared afterwards (logic quirks)
+     */
+    protected void logicalOr(boolean clearFlag) {
         int x = (operand & 0x0F00) >> 8;
         int y = (operand & 0x00F0) >> 4;
         v[x] |= v[y];
-        if (logicQuirks) {
+        if (clearFlag) {
             v[0xF] = 0;
         }
-        lastOpDesc = "OR V" + toHex(x, 1) + ", V" + toHex(y, 1);
     }
 
     /**
@@ -696,13 +1185,21 @@ public class CentralProcessingUnit extends Thread
      * register, and store the result in the target register.
      */
     protected void logicalAnd() {
+        logicalAnd(logicQuirks);
+    }
+
+    /**
+     * 8xy2 - AND Vx, Vy, specialized for the logic quirks setting.
+     *
+     * @param clearFlag whether register VF is cleared afterwards (logic quirks)
+     */
+    protected void logicalAnd(boolean clearFlag) {
         int x = (operand & 0x0F00) >> 8;
         int y = (operand & 0x00F0) >> 4;
         v[x] &= v[y];
-        if (logicQuirks) {
+        if (clearFlag) {
             v[0xF] = 0;
         }
-        lastOpDesc = "AND V" + toHex(x, 1) + ", V" + toHex(y, 1);
     }
 
     /**
@@ -711,13 +1208,21 @@ public class CentralProcessingUnit extends Thread
      * register, and store the result in the target register.
      */
     protected void exclusiveOr() {
+        exclusiveOr(logicQuirks);
+    }
+
+    /**
+     * 8xy3 - XOR Vx, Vy, specialized for the logic quirks setting.
+     *
+     * @param clearFlag whether register VF is cleared afterwards (logic quirks)
+     */
+    protected void exclusiveOr(boolean clearFlag) {
         int x = (operand & 0x0F00) >> 8;
         int y = (operand & 0x00F0) >> 4;
         v[x] ^= v[y];
-        if (logicQuirks) {
+        if (clearFlag) {
             v[0xF] = 0;
         }
-        lastOpDesc = "XOR V" + toHex(x, 1) + ", V" + toHex(y, 1);
     }
 
     /**
@@ -732,7 +1237,6 @@ public class CentralProcessingUnit extends Thread
         short carry = (v[x] + v[y]) > 255 ? (short) 1 : (short) 0;
         v[x] = (short) ((v[x] + v[y]) % 256);
         v[0xF] = carry;
-        lastOpDesc = "ADD V" + toHex(x, 1) + ", V" + toHex(y, 1);
     }
 
     /**
@@ -747,7 +1251,6 @@ public class CentralProcessingUnit extends Thread
         short borrow = (v[x] >= v[y]) ? (short) 1 : (short) 0;
         v[x] = (v[x] >= v[y]) ? (short) (v[x] - v[y]) : (short) (256 + v[x] - v[y]);
         v[0xF] = borrow;
-        lastOpDesc = "SUBN V" + toHex(x, 1) + ", V" + toHex(y, 1);
     }
 
     /**
@@ -756,10 +1259,19 @@ public class CentralProcessingUnit extends Thread
      * be shifted into register VF.
      */
     protected void rightShift() {
+        rightShift(shiftQuirks);
+    }
+
+    /**
+     * 8xy6 - SHR Vx, Vy, specialized for the shift quirks setting.
+     *
+     * @param shiftInPlace whether Vx is shifted instead of Vy (shift quirks)
+     */
+    protected void rightShift(boolean shiftInPlace) {
         int x = (operand & 0x0F00) >> 8;
         int y = (operand & 0x00F0) >> 4;
         short bit_one;
-        if (shiftQuirks) {
+        if (shiftInPlace) {
             bit_one = (short) (v[x] & 0x1);
             v[x] = (short) (v[x] >> 1);
         } else {
@@ -767,7 +1279,6 @@ public class CentralProcessingUnit extends Thread
             v[x] = (short) (v[y] >> 1);
         }
         v[0xF] = bit_one;
-        lastOpDesc = "SHR V" + toHex(x, 1) + ", V" + toHex(y, 1);
     }
 
     /**
@@ -782,7 +1293,6 @@ public class CentralProcessingUnit extends Thread
         short not_borrow = (v[y] >= v[x]) ? (short) 1 : (short) 0;
         v[x] = (v[y] >= v[x]) ? (short) (v[y] - v[x]) : (short) (256 + v[y] - v[x]);
         v[0xF] = not_borrow;
-        lastOpDesc = "SUBN V" + toHex(x, 1) + ", V" + toHex(y, 1);
     }
 
     /**
@@ -791,10 +1301,19 @@ public class CentralProcessingUnit extends Thread
      * shifted into register VF.
      */
     protected void leftShift() {
+        leftShift(shiftQuirks);
+    }
+
+    /**
+     * 8xyE - SHL Vx, Vy, specialized for the shift quirks setting.
+     *
+     * @param shiftInPlace whether Vx is shifted instead of Vy (shift quirks)
+     */
+    protected void leftShift(boolean shiftInPlace) {
         int x = (operand & 0x0F00) >> 8;
         int y = (operand & 0x00F0) >> 4;
         short bit_seven;
-        if (shiftQuirks) {
+        if (shiftInPlace) {
             bit_seven = (short) ((v[x] & 0x80) >> 7);
             v[x] = (short) ((v[x] << 1) & 0xFF);
         } else {
@@ -802,7 +1321,6 @@ public class CentralProcessingUnit extends Thread
             v[x] = (short) ((v[y] << 1) & 0xFF);
         }
         v[0xF] = bit_seven;
-        lastOpDesc = "SHL V" + toHex(x, 1) + ", V" + toHex(y, 1);
     }
 
     /**
@@ -815,11 +1333,10 @@ public class CentralProcessingUnit extends Thread
         int y = (operand & 0x00F0) >> 4;
         if (v[x] != v[y]) {
             pc += 2;
-            if (memory.read(pc - 2) == 0xF0 && memory.read(pc - 1) == 0x00) {
+            if (memory.readWord(pc - 2) == 0xF000) {
                 pc += 2;
             }
         }
-        lastOpDesc = "SKNE V" + toHex(x, 1) + ", V" + toHex(y, 1);
     }
 
     /**
@@ -828,7 +1345,6 @@ public class CentralProcessingUnit extends Thread
      */
     protected void loadIndexWithValue() {
         index = (short) (operand & 0x0FFF);
-        lastOpDesc = "LOAD I, " + toHex(index, 3);
     }
 
     /**
@@ -837,13 +1353,20 @@ public class CentralProcessingUnit extends Thread
      * operand plus the value of the index register.
      */
     protected void jumpToRegisterPlusValue() {
-        if (jumpQuirks) {
+        jumpToRegisterPlusValue(jumpQuirks);
+    }
+
+    /**
+     * Bnnn - JUMP V0 + nnn, specialized for the jump quirks setting.
+     *
+     * @param useVx whether Vx is added to xnn instead of V0 to nnn (jump quirks)
+     */
+    protected void jumpToRegisterPlusValue(boolean useVx) {
+        if (useVx) {
             int x = (operand & 0xF00) >> 8;
             pc = v[x] + (operand & 0x00FF);
-            lastOpDesc = "JUMP V" + toHex(x, 1) + " + " + toHex(operand & 0x00FF, 4);
         } else {
             pc = v[0] + (operand & 0x0FFF);
-            lastOpDesc = "JUMP V0 + " + toHex(operand & 0x0FFF, 3);
         }
     }
 
@@ -857,7 +1380,6 @@ public class CentralProcessingUnit extends Thread
         int value = operand & 0x00FF;
         int x = (operand & 0x0F00) >> 8;
         v[x] = (short) (value & random.nextInt(256));
-        lastOpDesc = "RAND V" + toHex(x, 1) + ", " + toHex(value, 2);
     }
 
     /**
@@ -875,29 +1397,35 @@ public class CentralProcessingUnit extends Thread
      * will be set to 1.
      */
     protected void drawSprite() {
+        drawSprite(clipQuirks);
+    }
+
+    /**
+     * Dxyn - DRAW x, y, num_bytes, specialized for the clip quirks setting.
+     *
+     * @param clip whether sprites are clipped at the screen edges instead of wrapped (clip quirks)
+     */
+    protected void drawSprite(boolean clip) {
         int x = (operand & 0x0F00) >> 8;
         int y = (operand & 0x00F0) >> 4;
         int numBytes = (operand & 0xF);
         v[0xF] = 0;
 
-        String drawOperation = "DRAW";
         if ((numBytes == 0)) {
             if (bitplane == 3) {
-                drawExtendedSprite(v[x], v[y], 1, index);
-                drawExtendedSprite(v[x], v[y], 2, index + 32);
+                drawExtendedSprite(v[x], v[y], 1, index, clip);
+                drawExtendedSprite(v[x], v[y], 2, index + 32, clip);
             } else {
-                drawExtendedSprite(v[x], v[y], bitplane, index);
+                drawExtendedSprite(v[x], v[y], bitplane, index, clip);
             }
-            drawOperation = "DRAWEX";
         } else {
             if (bitplane == 3) {
-                drawNormalSprite(v[x], v[y], numBytes, 1, index);
-                drawNormalSprite(v[x], v[y], numBytes, 2, index + numBytes);
+                drawNormalSprite(v[x], v[y], numBytes, 1, index, clip);
+                drawNormalSprite(v[x], v[y], numBytes, 2, index + numBytes, clip);
             } else {
-                drawNormalSprite(v[x], v[y], numBytes, bitplane, index);
+                drawNormalSprite(v[x], v[y], numBytes, bitplane, index, clip);
             }
         }
-        lastOpDesc = drawOperation + " V" + toHex(x, 1) + ", V" + toHex(y, 1);
     }
 
     /**
@@ -908,32 +1436,16 @@ public class CentralProcessingUnit extends Thread
      * @param yPos the y position to draw the sprite at
      * @param bitplane the bitplane to draw to
      * @param activeIndex the effective index to use when loading sprite data
+     * @param clip whether to clip the sprite at the right edge of the screen
      */
-    private void drawExtendedSprite(int xPos, int yPos, int bitplane, int activeIndex) {
+    private void drawExtendedSprite(int xPos, int yPos, int bitplane, int activeIndex, boolean clip) {
         for (int yIndex = 0; yIndex < 16; yIndex++) {
-            for (int xByte = 0; xByte < 2; xByte++) {
-                short colorByte = memory.read(activeIndex + (yIndex * 2) + xByte);
-                int yCoord = yPos + yIndex;
-                if (yCoord < screen.getHeight()) {
-                    yCoord = yCoord % screen.getHeight();
-                    short mask = 0x80;
-
-                    for (int xIndex = 0; xIndex < 8; xIndex++) {
-                        int xCoord = xPos + xIndex + (xByte * 8);
-                        if ((!clipQuirks) || (xCoord < screen.getWidth())) {
-                            xCoord = xCoord % screen.getWidth();
-
-                            boolean turnedOn = (colorByte & mask) > 0;
-                            boolean currentOn = screen.getPixel(xCoord, yCoord, bitplane);
-
-                            v[0xF] += (turnedOn && currentOn) ? (short) 1 : (short) 0;
-                            screen.drawPixel(xCoord, yCoord, turnedOn ^ currentOn, bitplane);
-                            mask = (short) (mask >> 1);
-                        }
-                    }
-                } else {
-                    v[0xF] += 1;
-                }
+            int yCoord = yPos + yIndex;
+            if (yCoord < screen.getHeight()) {
+                int spriteRow = memory.readWord(activeIndex + (yIndex * 2));
+                v[0xF] += (short) drawSpriteRow(xPos, yCoord, spriteRow, 16, bitplane, clip);
+            } else {
+                v[0xF] += 2;
             }
         }
     }
@@ -946,31 +1458,50 @@ public class CentralProcessingUnit extends Thread
      * @param numBytes the number of bytes to draw
      * @param bitplane the bitplane to draw to
      * @param activeIndex the effective index to use when loading sprite data
+     * @param clip whether to clip the sprite at the screen edges instead of wrapping it
      */
-    private void drawNormalSprite(int xPos, int yPos, int numBytes, int bitplane, int activeIndex) {
+    private void drawNormalSprite(int xPos, int yPos, int numBytes, int bitplane, int activeIndex, boolean clip) {
         for (int yIndex = 0; yIndex < numBytes; yIndex++) {
-            short colorByte = memory.read(activeIndex + yIndex);
             int yCoord = yPos + yIndex;
-            if ((!clipQuirks) || (yCoord < screen.getHeight())) {
+            if ((!clip) || (yCoord < screen.getHeight())) {
                 yCoord = yCoord % screen.getHeight();
-                short mask = 0x80;
-                for (int xIndex = 0; xIndex < 8; xIndex++) {
-                    int xCoord = xPos + xIndex;
-                    if ((!clipQuirks) || (xCoord < screen.getWidth())) {
-                        xCoord = xCoord % screen.getWidth();
-
-                        boolean turnedOn = (colorByte & mask) > 0;
-                        boolean currentOn = screen.getPixel(xCoord, yCoord, bitplane);
-
-                        v[0xF] |= (turnedOn && currentOn) ? (short) 1 : (short) 0;
-                        screen.drawPixel(xCoord, yCoord, turnedOn ^ currentOn, bitplane);
-                        mask = (short) (mask >> 1);
-                    }
+                int spriteRow = memory.readUnsigned(activeIndex + yIndex);
+                if (drawSpriteRow(xPos, yCoord, spriteRow, 8, bitplane, clip) > 0) {
+                    v[0xF] = 1;
                 }
             }
         }
     }
 
+    /**
+     * Draws a single row of a sprite on the screen. The row is XORed onto the
+     * screen in a single operation. If clipping, any pixels that would fall
+     * past the right edge of the screen are dropped, otherwise they wrap
+     * around to the left edge.
+     *
+     * @param xPos the X position of the sprite
+     * @param yCoord the Y coordinate of the row on the screen
+     * @param spriteRow the sprite pixels, with the left-most pixel in the highest bit
+     * @param spriteWidth the number of pixels in the sprite row
+     * @param bitplane the bitplane to draw to
+     * @param clip whether to clip the row at the right edge of the screen
+     * @return the number of pixels turned off by the row
+     */
+    private int drawSpriteRow(int xPos, int yCoord, int spriteRow, int spriteWidth, int bitplane, boolean clip) {
+        int width = screen.getWidth();
+        if (clip) {
+            int visiblePixels = width - xPos;
+            if (visiblePixels <= 0) {
+                return 0;
+            }
+            if (visiblePixels < spriteWidth) {
+                spriteRow >>= spriteWidth - visiblePixels;
+                spriteWidth = visiblePixels;
+            }
+        }
+        return screen.xorSpriteRow(xPos % width, yCoord, spriteRow, spriteWidth, bitplane);
+    }
+
     /**
      * Ex9E - SKPR Vx
      * Check to see if the key specified in the source register is pressed, and
@@ -981,11 +1512,10 @@ public class CentralProcessingUnit extends Thread
         int keyToCheck = v[x];
         if (keyboard.isKeyPressed(keyToCheck)) {
             pc += 2;
-            if (memory.read(pc - 2) == 0xF0 && memory.read(pc - 1) == 0x00) {
+            if (memory.readWord(pc - 2) == 0xF000) {
                 pc += 2;
             }
         }
-        lastOpDesc = "SKPR V" + toHex(x, 1);
     }
 
     /**
@@ -998,11 +1528,10 @@ public class CentralProcessingUnit extends Thread
         int keyToCheck = v[x];
         if (!keyboard.isKeyPressed(keyToCheck)) {
             pc += 2;
-            if (memory.read(pc - 2) == 0xF0 && memory.read(pc - 1) == 0x00) {
+            if (memory.readWord(pc - 2) == 0xF000) {
                 pc += 2;
             }
         }
-        lastOpDesc = "SKUP V" + toHex(x, 1);
     }
 
     /**
@@ -1011,9 +1540,8 @@ public class CentralProcessingUnit extends Thread
      * bytes from memory and increments the PC by two bytes.
      */
     protected void indexLoadLong() {
-        index = (memory.read(pc) << 8) + memory.read(pc + 1);
+        index = memory.readWord(pc);
         pc += 2;
-        lastOpDesc = "LOADLONG " + toHex(index, 4);
     }
 
     /**
@@ -1024,11 +1552,11 @@ public class CentralProcessingUnit extends Thread
      *       1 - first bitplane selected
      *       2 - second bitplane selected
      *       3 - first and second bitplane selected
+     * Only the low two bits of n select the bitplane - the rest are ignored.
      */
     protected void setBitplane() {
-        int bitplane = (operand & 0x0F00) >> 8;
+        int bitplane = ((operand & 0x0F00) >> 8) & 0x3;
         this.bitplane = bitplane;
-        lastOpDesc = "BITPLANE " + toHex(bitplane, 1);
     }
 
     /**
@@ -1038,14 +1566,13 @@ public class CentralProcessingUnit extends Thread
      */
     protected void loadAudioPatternBuffer() {
         for (int x = 0; x < 16; x++) {
-            audioPatternBuffer[x] = memory.read(index + x);
+            audioPatternBuffer[x] = memory.readUnsigned(index + x);
         }
         try {
             calculateAudioWaveform();
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
-        lastOpDesc = "AUDIO " + toHex(index, 4);
     }
 
     /**
@@ -1055,7 +1582,6 @@ public class CentralProcessingUnit extends Thread
     protected void moveDelayTimerIntoRegister() {
         int x = (operand & 0x0F00) >> 8;
         v[x] = delay;
-        lastOpDesc = "LOAD V" + toHex(x, 1) + ", DELAY";
     }
 
     /**
@@ -1088,7 +1614,6 @@ public class CentralProcessingUnit extends Thread
 
         int x = (operand & 0x0F00) >> 8;
         v[x] = (short) currentKey;
-        lastOpDesc = "KEYD V" + toHex(x, 1);
         awaitingKeypress = false;
     }
 
@@ -1100,7 +1625,6 @@ public class CentralProcessingUnit extends Thread
     protected void moveRegisterIntoDelayRegister() {
         int x = (operand & 0x0F00) >> 8;
         delay = v[x];
-        lastOpDesc = "LOAD DELAY, V" + toHex(x, 1);
     }
 
     /**
@@ -1111,7 +1635,6 @@ public class CentralProcessingUnit extends Thread
     protected void moveRegisterIntoSoundRegister() {
         int x = (operand & 0x0F00) >> 8;
         sound = v[x];
-        lastOpDesc = "LOAD SOUND, V" + toHex(x, 1);
     }
 
     /**
@@ -1121,7 +1644,6 @@ public class CentralProcessingUnit extends Thread
     protected void addRegisterIntoIndex() {
         int x = (operand & 0x0F00) >> 8;
         index += v[x];
-        lastOpDesc = "ADD I, V" + toHex(x, 1);
     }
 
     /**
@@ -1133,7 +1655,6 @@ public class CentralProcessingUnit extends Thread
     protected void loadIndexWithSprite() {
         int x = (operand & 0x0F00) >> 8;
         index = v[x] * 5;
-        lastOpDesc = "LOAD I, V" + toHex(x, 1);
     }
 
     /**
@@ -1145,7 +1666,6 @@ public class CentralProcessingUnit extends Thread
     protected void loadIndexWithExtendedSprite() {
         int x = (operand & 0x0F00) >> 8;
         index = v[x] * 10;
-        lastOpDesc = "LOADEXT I, V" + toHex(x, 1);
     }
 
     /**
@@ -1165,10 +1685,9 @@ public class CentralProcessingUnit extends Thread
     protected void storeBCDInMemory() {
         int x = (operand & 0x0F00) >> 8;
         int bcdValue = v[x];
-        memory.write(bcdValue / 100, index);
-        memory.write((bcdValue % 100) / 10, index + 1);
-        memory.write((bcdValue % 100) % 10, index + 2);
-        lastOpDesc = "BCD V" + toHex(x, 1) + " (" + bcdValue + ")";
+        memory.writeUnsigned(bcdValue / 100, index);
+        memory.writeUnsigned((bcdValue % 100) / 10, index + 1);
+        memory.writeUnsigned((bcdValue % 100) % 10, index + 2);
     }
 
     /**
@@ -1179,7 +1698,6 @@ public class CentralProcessingUnit extends Thread
         int x = (operand & 0x0F00) >> 8;
         pitch = v[x];
         playbackRate = 4000 * Math.pow(2.0, (((float) pitch - 64.0) / 48.0));
-        lastOpDesc = "PITCH V" + toHex(x, 1) + " (" + v[x] + ")";
     }
 
     /**
@@ -1188,14 +1706,22 @@ public class CentralProcessingUnit extends Thread
      * register.
      */
     protected void storeRegistersInMemory() {
+        storeRegistersInMemory(indexQuirks);
+    }
+
+    /**
+     * Fn55 - STOR [I], specialized for the index quirks setting.
+     *
+     * @param keepIndex whether the index register is left unchanged (index quirks)
+     */
+    protected void storeRegistersInMemory(boolean keepIndex) {
         int n = (operand & 0x0F00) >> 8;
         for (int counter = 0; counter <= n; counter++) {
-            memory.write(v[counter], index + counter);
+            memory.writeUnsigned(v[counter], index + counter);
         }
-        if (!indexQuirks) {
+        if (!keepIndex) {
             index += n + 1;
         }
-        lastOpDesc = "STOR " + toHex(n, 1);
     }
 
     /**
@@ -1204,14 +1730,22 @@ public class CentralProcessingUnit extends Thread
      * register.
      */
     protected void readRegistersFromMemory() {
+        readRegistersFromMemory(indexQuirks);
+    }
+
+    /**
+     * Fn65 - LOAD V, I, specialized for the index quirks setting.
+     *
+     * @param keepIndex whether the index register is left unchanged (index quirks)
+     */
+    protected void readRegistersFromMemory(boolean keepIndex) {
         int n = (operand & 0x0F00) >> 8;
         for (int counter = 0; counter <= n; counter++) {
-            v[counter] = memory.read(index + counter);
+            v[counter] = (short) memory.readUnsigned(index + counter);
         }
-        if (!indexQuirks) {
+        if (!keepIndex) {
             index += n + 1;
         }
-        lastOpDesc = "READ " + toHex(n, 1);
     }
 
     /**
@@ -1221,7 +1755,6 @@ public class CentralProcessingUnit extends Thread
     protected void storeRegistersInRPL() {
         int n = (operand & 0x0F00) >> 8;
         System.arraycopy(v, 0, rpl, 0, n + 1);
-        lastOpDesc = "STORRPL " + toHex(n, 1);
     }
 
     /**
@@ -1231,12 +1764,12 @@ public class CentralProcessingUnit extends Thread
     protected void readRegistersFromRPL() {
         int n = (operand & 0x0F00) >> 8;
         System.arraycopy(rpl, 0, v, 0, n + 1);
-        lastOpDesc = "READRPL " + toHex(n, 1);
     }
 
     /**
      * Reset the CPU by blanking out all registers, and resetting the stack
-     * pointer and program counter to their starting values.
+     * pointer and program counter to their starting values. A halted CPU
+     * is ready to run again once it is reset.
      */
     public void reset() {
         v = new short[NUM_REGISTERS];
@@ -1255,7 +1788,169 @@ public class CentralProcessingUnit extends Thread
         awaitingKeypress = false;
         audioPatternBuffer = new int[16];
         soundPlaying = false;
-        tickCounter = 0;
+        frameTicks = 0;
+        restart();
+    }
+
+    /**
+     * Lets a halted CPU run again.
+     */
+    private void restart() {
+        if (halted) {
+            halted = false;
+            if (!virtualClock) {
+                startTimer();
+            }
+        }
+    }
+
+    /**
+     * Captures the full state of the machine - the CPU registers, the screen
+     * and the memory - as a compact binary save state. See restoreState.
+     * The CPU must not be running instructions on another thread.
+     *
+     * @return the save state
+     */
+    public byte[] saveState() {
+        return SaveState.save(this, screen, memory);
+    }
+
+    /**
+     * Captures the full state of the machine into an existing array, so
+     * that states can be saved repeatedly without allocating. See saveState.
+     *
+     * @param state the array to fill, exactly getSaveStateSize bytes long
+     * @throws IllegalArgumentException if the array is the wrong size
+     */
+    public void saveState(byte[] state) {
+        SaveState.save(this, screen, memory, state);
+    }
+
+    /**
+     * Returns the size of a save state for this machine.
+     *
+     * @return the size of a save state in bytes
+     */
+    public int getSaveStateSize() {
+        return SaveState.getSize(memory.getSize());
+    }
+
+    /**
+     * Restores the machine to a state captured by saveState. A halted CPU
+     * is ready to run again once the state is restored. The CPU must not be
+     * running instructions on another thread.
+     *
+     * @param state the save state to restore
+     * @throws IllegalArgumentException if the state was not saved from a machine with the same memory size
+     */
+    public void restoreState(byte[] state) {
+        SaveState.restore(state, this, screen, memory);
+        restart();
+    }
+
+    /**
+     * Writes the CPU registers, the progress through the current frame and
+     * whether the virtual clock is used to a save state.
+     *
+     * @param buffer the buffer to write to
+     */
+    void writeState(ByteBuffer buffer) {
+        buffer.putInt(pc);
+        buffer.putInt(index);
+        buffer.putInt(stack);
+        buffer.putInt(operand);
+        for (int register = 0; register < NUM_REGISTERS; register++) {
+            buffer.put((byte) v[register]);
+        }
+        for (int register = 0; register < NUM_REGISTERS; register++) {
+            buffer.put((byte) rpl[register]);
+        }
+        buffer.put((byte) delay);
+        buffer.put((byte) sound);
+        buffer.put((byte) pitch);
+        buffer.put((byte) bitplane);
+        buffer.put((byte) mode);
+        buffer.put((byte) (awaitingKeypress ? 1 : 0));
+        for (int x = 0; x < 16; x++) {
+            buffer.put((byte) audioPatternBuffer[x]);
+        }
+        buffer.putInt(frameTicks);
+        buffer.put((byte) (virtualClock ? 1 : 0));
+    }
+
+    /**
+     * Checks the CPU registers in a save state without reading them. The
+     * selected bitplane must be 0 to 3, the mode must be a known screen mode,
+     * and the progress through the current frame must not be negative.
+     *
+     * @param buffer the buffer to check, positioned at the CPU registers
+     * @throws IllegalArgumentException if the registers are not valid
+     */
+    static void checkState(ByteBuffer buffer) {
+        int start = buffer.position() + 4 * 4 + NUM_REGISTERS * 2 + 3;
+        int bitplane = buffer.get(start);
+        if ((bitplane < 0) || (bitplane > 3)) {
+            throw new IllegalArgumentException("save state has bitplane " + bitplane);
+        }
+
+        int mode = buffer.get(start + 1);
+        if ((mode != MODE_NORMAL) && (mode != MODE_EXTENDED)) {
+            throw new IllegalArgumentException("save state has unknown screen mode " + mode);
+        }
+
+        int frameTicks = buffer.getInt(start + 3 + 16);
+        if (frameTicks < 0) {
+            throw new IllegalArgumentException("save state has " + frameTicks + " ticks into the frame");
+        }
+    }
+
+    /**
+     * Reads the CPU registers, the progress through the current frame and
+     * whether the virtual clock is used from a save state. The audio
+     * waveform is generated again if the audio pattern or the pitch in the
+     * state differ from the ones in use. The registers must have been
+     * checked with checkState.
+     *
+     * @param buffer the buffer to read from
+     */
+    void readState(ByteBuffer buffer) {
+        int[] previousPattern = audioPatternBuffer.clone();
+        int previousPitch = pitch;
+        pc = buffer.getInt();
+        index = buffer.getInt();
+        stack = buffer.getInt();
+        operand = buffer.getInt();
+        for (int register = 0; register < NUM_REGISTERS; register++) {
+            v[register] = (short) (buffer.get() & 0xFF);
+        }
+        for (int register = 0; register < NUM_REGISTERS; register++) {
+            rpl[register] = (short) (buffer.get() & 0xFF);
+        }
+        delay = (short) (buffer.get() & 0xFF);
+        sound = (short) (buffer.get() & 0xFF);
+        pitch = buffer.get() & 0xFF;
+        playbackRate = 4000 * Math.pow(2.0, (((float) pitch - 64.0) / 48.0));
+        bitplane = buffer.get();
+        mode = buffer.get();
+        awaitingKeypress = buffer.get() != 0;
+        for (int x = 0; x < 16; x++) {
+            audioPatternBuffer[x] = buffer.get() & 0xFF;
+        }
+        frameTicks = buffer.getInt();
+        boolean savedVirtualClock = buffer.get() != 0;
+        if (halted) {
+            virtualClock = savedVirtualClock;
+        } else {
+            setVirtualClock(savedVirtualClock);
+        }
+
+        if ((pitch != previousPitch) || !Arrays.equals(audioPatternBuffer, previousPattern)) {
+            try {
+                calculateAudioWaveform();
+            } catch (Exception e) {
+                LOGGER.warning("Could not generate the audio waveform from the save state: " + e.getMessage());
+            }
+        }
     }
 
     /**
@@ -1305,7 +2000,6 @@ public class CentralProcessingUnit extends Thread
     private void scrollDown(int operand) {
         int numPixels = operand & 0xF;
         screen.scrollDown(numPixels, bitplane);
-        lastOpDesc = "Scroll Down " + numPixels;
     }
 
     /**
@@ -1317,7 +2011,6 @@ public class CentralProcessingUnit extends Thread
     private void scrollUp(int operand) {
         int numPixels = operand & 0xF;
         screen.scrollUp(numPixels, bitplane);
-        lastOpDesc = "Scroll Up " + numPixels;
     }
 
     /**
@@ -1330,7 +2023,7 @@ public class CentralProcessingUnit extends Thread
      * happening) is stopped, the new waveform is loaded, and then playback
      * is starts again (if the emulator had previously been playing a sound).
      */
-    private void calculateAudioWaveform() throws Exception {
+    protected void calculateAudioWaveform() throws Exception {
         // Convert the 16-byte value into an array of 128-bit samples
         ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
         for (int x = 0; x < 16; x++) {
@@ -1391,12 +2084,130 @@ public class CentralProcessingUnit extends Thread
     }
 
     /**
-     * Return the string of the last operation that occurred.
+     * Return the string of the last operation that occurred. The description
+     * is not recorded while executing - it is disassembled from the saved
+     * operand only when asked for, so the instruction loop never builds it.
      *
      * @return A string containing the last operation
      */
     protected String getOpShortDesc() {
-        return lastOpDesc;
+        return disassemble(operand);
+    }
+
+    /**
+     * Returns a short mnemonic description of the specified operand. Register
+     * values shown in parentheses and the index-based operands are read from
+     * the current CPU state.
+     *
+     * @param operand the operand to disassemble
+     * @return A string describing the operation
+     */
+    protected String disassemble(int operand) {
+        int x = (operand & 0x0F00) >> 8;
+        int y = (operand & 0x00F0) >> 4;
+        String vx = "V" + toHex(x, 1);
+        String vy = "V" + toHex(y, 1);
+        String nn = toHex(operand & 0x00FF, 2);
+        String nnn = toHex(operand & 0x0FFF, 3);
+
+        switch ((operand & 0xF000) >> 12) {
+            case 0x0:
+                if ((operand & 0x00F0) == 0x00C0) {
+                    return "Scroll Down " + (operand & 0xF);
+                }
+                if ((operand & 0x00F0) == 0x00D0) {
+                    return "Scroll Up " + (operand & 0xF);
+                }
+                switch (operand & 0x00FF) {
+                    case 0xE0: return "CLS";
+                    case 0xEE: return "RTS";
+                    case 0xFB: return "Scroll Right";
+                    case 0xFC: return "Scroll Left";
+                    case 0xFD: return "EXIT";
+                    case 0xFE: return "Disable Extended Mode";
+                    case 0xFF: return "Enable Extended Mode";
+                    default: break;
+                }
+                break;
+
+            case 0x1: return "JUMP " + nnn;
+            case 0x2: return "CALL " + nnn;
+            case 0x3: return "SKE " + vx + ", " + nn;
+            case 0x4: return "SKNE " + vx + ", " + nn;
+
+            case 0x5:
+                switch (operand & 0x000F) {
+                    case 0x0: return "SKE " + vx + ", " + vy;
+                    case 0x2: return "STORSUB [I], " + vx + ", " + vy;
+                    case 0x3: return "LOADSUB [I], " + vx + ", " + vy;
+                    default: break;
+                }
+                break;
+
+            case 0x6: return "LOAD " + vx + ", " + nn;
+            case 0x7: return "ADD " + vx + ", " + nn;
+
+            case 0x8:
+                switch (operand & 0x000F) {
+                    case 0x0: return "LOAD " + vx + ", " + vy;
+                    case 0x1: return "OR " + vx + ", " + vy;
+                    case 0x2: return "AND " + vx + ", " + vy;
+                    case 0x3: return "XOR " + vx + ", " + vy;
+                    case 0x4: return "ADD " + vx + ", " + vy;
+                    case 0x5: return "SUBN " + vx + ", " + vy;
+                    case 0x6: return "SHR " + vx + ", " + vy;
+                    case 0x7: return "SUBN " + vx + ", " + vy;
+                    case 0xE: return "SHL " + vx + ", " + vy;
+                    default: break;
+                }
+                break;
+
+            case 0x9: return "SKNE " + vx + ", " + vy;
+            case 0xA: return "LOAD I, " + nnn;
+
+            case 0xB:
+                if (jumpQuirks) {
+                    return "JUMP " + vx + " + " + toHex(operand & 0x00FF, 4);
+                }
+                return "JUMP V0 + " + nnn;
+
+            case 0xC: return "RAND " + vx + ", " + nn;
+            case 0xD: return ((operand & 0xF) == 0 ? "DRAWEX " : "DRAW ") + vx + ", " + vy;
+
+            case 0xE:
+                switch (operand & 0x00FF) {
+                    case 0x9E: return "SKPR " + vx;
+                    case 0xA1: return "SKUP " + vx;
+                    default: break;
+                }
+                break;
+
+            case 0xF:
+                switch (operand & 0x00FF) {
+                    case 0x00: return "LOADLONG " + toHex(index, 4);
+                    case 0x01: return "BITPLANE " + toHex(x, 1);
+                    case 0x02: return "AUDIO " + toHex(index, 4);
+                    case 0x07: return "LOAD " + vx + ", DELAY";
+                    case 0x0A: return "KEYD " + vx;
+                    case 0x15: return "LOAD DELAY, " + vx;
+                    case 0x18: return "LOAD SOUND, " + vx;
+                    case 0x1E: return "ADD I, " + vx;
+                    case 0x29: return "LOAD I, " + vx;
+                    case 0x30: return "LOADEXT I, " + vx;
+                    case 0x33: return "BCD " + vx + " (" + v[x] + ")";
+                    case 0x3A: return "PITCH " + vx + " (" + v[x] + ")";
+                    case 0x55: return "STOR " + toHex(x, 1);
+                    case 0x65: return "READ " + toHex(x, 1);
+                    case 0x75: return "STORRPL " + toHex(x, 1);
+                    case 0x85: return "READRPL " + toHex(x, 1);
+                    default: break;
+                }
+                break;
+
+            default:
+                break;
+        }
+        return "Operation " + toHex(operand, 4) + " not supported";
     }
 
     /**
@@ -1459,8 +2270,21 @@ public class CentralProcessingUnit extends Thread
     }
 
     /**
-     * Stops CPU execution.
+     * Stops CPU execution, and stops the wall clock timer thread if one
+     * is running. The CPU stays halted until it is reset.
      */
     public void kill() {
+        halted = true;
+        stopTimer();
+    }
+
+    /**
+     * Returns whether the CPU has stopped executing instructions, either by
+     * executing an EXIT instruction or by being killed.
+     *
+     * @return true if the CPU is halted
+     */
+    public boolean isHalted() {
+        return halted;
     }
 }
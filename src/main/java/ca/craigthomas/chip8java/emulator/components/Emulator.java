@@ -9,10 +9,11 @@ import ca.craigthomas.chip8java.emulator.listeners.*;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.BufferCapabilities.FlipContents;
 import java.awt.event.KeyEvent;
+import java.awt.image.BufferStrategy;
+import java.awt.image.BufferedImage;
 import java.io.InputStream;
-import java.util.*;
-import java.util.Timer;
 import java.util.logging.Logger;
 
 /**
@@ -32,6 +33,12 @@ public class Emulator
     // The font file for the Chip 8
     private static final String FONT_FILE = "FONTS.chip8";
 
+    // The number of frames the emulator runs per second
+    public static final int FRAMES_PER_SECOND = 60;
+
+    // How often the emulated speed is measured, in nanoseconds
+    private static final long SPEED_SAMPLE_PERIOD = 250_000_000L;
+
     // The Chip8 components
     private CentralProcessingUnit cpu;
     private Screen screen;
@@ -42,19 +49,66 @@ public class Emulator
     private JMenuBar menuBar;
     private Canvas canvas;
     private JFrame container;
+    private JCheckBoxMenuItem turboMenuItem;
+
+    // Completed frames handed from the CPU thread to the render thread
+    private final TripleBuffer<Screen> completedFrames = new TripleBuffer<>(Screen::new);
+
+    // The latest completed frame, owned by the render thread and drawn to the window
+    private Screen displayScreen;
+
+    // Draws completed frames to the window at 60Hz while the emulator is started
+    private Thread renderThread;
+
+    // Whether every row must be drawn at the next refresh, for example after the window was uncovered
+    private volatile boolean fullRedraw = true;
+
+    // The rows drawn at the last refresh, which the other buffer of a PRIOR page flipping strategy has not seen
+    private long lastDrawnRows;
+
+    // Whether the emulator runs without a window
+    private final boolean headless;
+
+    // Receives the screen contents once per frame, may be null
+    private volatile FrameListener frameListener;
+
+    // Whether frames the same as the last one passed to the frame listener are skipped
+    private volatile boolean skipDuplicateFrames;
+
+    // Whether a frame has been passed to the frame listener yet
+    private boolean frameDelivered;
+
+    // The hash of the last frame passed to the frame listener
+    private long deliveredFrameHash;
+
+    // Whether frames run as fast as possible instead of at 60Hz
+    private volatile boolean turbo;
+
+    // Whether the CPU used the virtual clock before turbo mode was turned on
+    private boolean virtualClockBeforeTurbo;
+
+    // Keeps the recent frames for rewinding, null when rewinding is off
+    private RewindBuffer rewindBuffer;
+
+    // Records the keys pressed in every frame, null when not recording
+    private MovieRecorder movieRecorder;
+
+    // Sets the keys pressed in every frame, null when not playing a movie
+    private MoviePlayer moviePlayer;
+
+    // The emulated frames per second as a multiple of real time, as last measured
+    private volatile double speedMultiple = 1.0;
 
     // The current state of the emulator and associated tasks
     private volatile EmulatorState state;
     private int cpuCycleTime;
-    private Timer timer;
-    private TimerTask timerTask;
 
     /**
      * Convenience constructor that sets the emulator running with a 1x
      * screen scale, a cycle time of 0, a null rom, and trace mode off.
      */
     public Emulator() {
-        this(1, 0, null, false, "#000000", "#666666", "#BBBBBB", "#FFFFFF", false, false, false, false, false);
+        this(1, 0, null, false, "#000000", "#666666", "#BBBBBB", "#FFFFFF", false, false, false, false, false, false);
     }
 
     /**
@@ -72,6 +126,7 @@ public class Emulator
      * @param logicQuirks whether to enable logic quirks or not
      * @param jumpQuirks whether to enable logic quirks or not
      * @param clipQuirks whether to enable clip quirks or not
+     * @param headless whether to run without creating a window
      */
     public Emulator(
             int scale,
@@ -86,7 +141,8 @@ public class Emulator
             boolean logicQuirks,
             boolean jumpQuirks,
             boolean indexQuirks,
-            boolean clipQuirks
+            boolean clipQuirks,
+            boolean headless
     ) {
         if (color0.length() != 6) {
             System.out.println("color_0 parameter must be 6 characters long");
@@ -108,47 +164,49 @@ public class Emulator
             System.exit(1);
         }
 
-        Color converted_color0 = null;
+        int converted_color0 = 0;
         try {
-            converted_color0 = Color.decode("#" + color0);
+            converted_color0 = Integer.decode("#" + color0);
         } catch (NumberFormatException e) {
             System.out.println("color_0 parameter could not be decoded (" + e.getMessage() +")");
             System.exit(1);
         }
 
-        Color converted_color1 = null;
+        int converted_color1 = 0;
         try {
-            converted_color1 = Color.decode("#" + color1);
+            converted_color1 = Integer.decode("#" + color1);
         } catch (NumberFormatException e) {
             System.out.println("color_1 parameter could not be decoded (" + e.getMessage() +")");
             System.exit(1);
         }
 
-        Color converted_color2 = null;
+        int converted_color2 = 0;
         try {
-            converted_color2 = Color.decode("#" + color2);
+            converted_color2 = Integer.decode("#" + color2);
         } catch (NumberFormatException e) {
             System.out.println("color_2 parameter could not be decoded (" + e.getMessage() +")");
             System.exit(1);
         }
 
-        Color converted_color3 = null;
+        int converted_color3 = 0;
         try {
-            converted_color3 = Color.decode("#" + color3);
+            converted_color3 = Integer.decode("#" + color3);
         } catch (NumberFormatException e) {
             System.out.println("color_3 parameter could not be decoded (" + e.getMessage() +")");
             System.exit(1);
         }
 
+        this.headless = headless;
         keyboard = new Keyboard();
         memory = new Memory(memSize4k);
         screen = new Screen(scale, converted_color0, converted_color1, converted_color2, converted_color3);
+        displayScreen = new Screen(scale, converted_color0, converted_color1, converted_color2, converted_color3);
         cpu = new CentralProcessingUnit(memory, keyboard, screen);
-        cpu.setShiftQuirks(shiftQuirks);
-        cpu.setLogicQuirks(logicQuirks);
-        cpu.setJumpQuirks(jumpQuirks);
-        cpu.setIndexQuirks(indexQuirks);
-        cpu.setClipQuirks(clipQuirks);
+        cpu.setQuirkProfile((shiftQuirks ? CentralProcessingUnit.SHIFT_QUIRKS : 0) |
+                (logicQuirks ? CentralProcessingUnit.LOGIC_QUIRKS : 0) |
+                (jumpQuirks ? CentralProcessingUnit.JUMP_QUIRKS : 0) |
+                (indexQuirks ? CentralProcessingUnit.INDEX_QUIRKS : 0) |
+                (clipQuirks ? CentralProcessingUnit.CLIP_QUIRKS : 0));
         cpu.setMaxTicks(maxTicks);
 
         // Load the font file into memory
@@ -173,38 +231,324 @@ public class Emulator
         }
 
         // Initialize the screen
-        initEmulatorJFrame();
-        start();
+        if (!headless) {
+            initEmulatorJFrame();
+        }
     }
 
     /**
      * Starts the main emulator loop running. Fires at the rate of 60Hz,
-     * will repaint the screen and listen for any debug key presses.
+     * will repaint the screen and listen for any debug key presses. Each
+     * frame executes the CPU's per-frame instruction budget, and the thread
+     * then sleeps until the next frame is due, so an idle or paused emulator
+     * does not keep a core busy. In turbo mode, frames run back to back
+     * without sleeping, and the screen is still only refreshed at 60Hz. When
+     * running headless, returns once the emulator is killed instead of
+     * exiting the JVM.
+     * <p>
+     * The screen is drawn by a separate render thread. After every frame,
+     * the CPU thread copies the screen into a triple buffer, and the render
+     * thread takes the latest copy 60 times a second, so neither thread
+     * ever waits for the other and a frame is never drawn half finished.
      */
     public void start() {
-        timer = new Timer();
-        timerTask = new TimerTask() {
-            public void run() {
-                refreshScreen();
-            }
-        };
-        timer.scheduleAtFixedRate(timerTask, 0L, 17L);
-
+        renderThread = new Thread(this::render, "Render");
+        renderThread.setDaemon(true);
+        renderThread.start();
+
+        FramePacer pacer = new FramePacer(FRAMES_PER_SECOND);
+        long sampleStart = System.nanoTime();
+        long sampleFrames = 0;
+        long frames = 0;
         while (state != EmulatorState.KILLED) {
-            if (state != EmulatorState.PAUSED) {
-                if (!cpu.isAwaitingKeypress()) {
-                    cpu.fetchIncrementExecute();
-                } else {
-                    cpu.decodeKeypressAndContinue();
+            synchronized (this) {
+                if (state != EmulatorState.PAUSED) {
+                    if ((rewindBuffer != null) && (movieRecorder == null) && (moviePlayer == null) &&
+                            keyboard.isRewindPressed()) {
+                        rewindBuffer.rewind(cpu);
+                    } else {
+                        beforeFrame();
+                        cpu.runFrame();
+                        afterFrame();
+                    }
+                    frames++;
                 }
+                screen.copyTo(completedFrames.getBack());
             }
+            // Only this thread touches the back slot, so the lock is not needed to publish it
+            completedFrames.publish();
 
             if (keyboard.getRawKeyPressed() == Keyboard.CHIP8_QUIT) {
                 break;
             }
+
+            long now = System.nanoTime();
+            if (now - sampleStart >= SPEED_SAMPLE_PERIOD) {
+                speedMultiple = (double) ((frames - sampleFrames) * pacer.getFramePeriod()) / (now - sampleStart);
+                sampleStart = now;
+                sampleFrames = frames;
+                updateTitle();
+            }
+
+            if (turbo && state == EmulatorState.RUNNING) {
+                // Frames run back to back, so give threads waiting on the
+                // emulator - such as the EDT saving state - a chance to
+                // take the monitor before the next frame does
+                pacer.reset();
+                Thread.yield();
+            } else {
+                pacer.awaitNextFrame();
+            }
         }
         kill();
-        System.exit(0);
+        if (Thread.currentThread() != renderThread) {
+            try {
+                renderThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (!headless) {
+            System.exit(0);
+        }
+    }
+
+    /**
+     * Runs on the render thread until the emulator is killed. 60 times a
+     * second, takes the latest completed frame, if there is a new one, and
+     * passes it to the frame listener. The frame is drawn to the window
+     * only if its frame hash shows that it differs from the frame drawn
+     * before it.
+     */
+    private void render() {
+        FramePacer pacer = new FramePacer(FRAMES_PER_SECOND);
+        while (state != EmulatorState.KILLED) {
+            Screen frame = completedFrames.acquire();
+            if (frame != null) {
+                long previousHash = displayScreen.getFrameHash();
+                frame.copyTo(displayScreen);
+                deliverFrame(displayScreen);
+                if (!headless && (fullRedraw || (displayScreen.getFrameHash() != previousHash))) {
+                    refreshScreen();
+                }
+            }
+            pacer.awaitNextFrame();
+        }
+    }
+
+    /**
+     * Passes a frame to the frame listener, if one is set. When duplicate
+     * frames are skipped, a frame with the same frame hash as the last one
+     * passed to the listener is not passed again.
+     *
+     * @param frame the screen holding the frame
+     */
+    private void deliverFrame(Screen frame) {
+        FrameListener listener = frameListener;
+        if (listener == null) {
+            return;
+        }
+
+        long hash = frame.getFrameHash();
+        if (skipDuplicateFrames && frameDelivered && (hash == deliveredFrameHash)) {
+            return;
+        }
+        frameDelivered = true;
+        deliveredFrameHash = hash;
+        listener.frameReady(frame);
+    }
+
+    /**
+     * Runs the specified number of frames as fast as possible, on the calling
+     * thread. Nothing is drawn and no Swing components are touched - the
+     * frame listener, if one is set, receives the screen after every frame
+     * completed. If rewinding is on, every frame completed is recorded, and
+     * movies are recorded or played one frame at a time as usual. Stops
+     * early if the CPU halts, or if it is left waiting for a keypress while
+     * no movie is playing. A movie replays frames spent waiting for a
+     * keypress like any other frame, since the key it waits for comes from a
+     * later frame of the movie. See CentralProcessingUnit.runFrames.
+     *
+     * @param count the number of frames to run
+     * @return the number of instructions and frames run, and why the run stopped
+     */
+    public RunResult runFrames(int count) {
+        long instructions = 0;
+        int frames = 0;
+        HaltReason haltReason = HaltReason.COMPLETED;
+        while ((frames < count) && (haltReason == HaltReason.COMPLETED)) {
+            RunResult result;
+            boolean playing;
+            synchronized (this) {
+                playing = moviePlayer != null;
+                beforeFrame();
+                result = cpu.runFrames(1);
+                afterFrame();
+            }
+            instructions += result.getInstructions();
+            frames += result.getFrames();
+            haltReason = result.getHaltReason();
+            if (playing && (haltReason == HaltReason.AWAITING_KEYPRESS)) {
+                haltReason = HaltReason.COMPLETED;
+            }
+            if (result.getFrames() > 0) {
+                deliverFrame(screen);
+            }
+        }
+        return new RunResult(instructions, frames, haltReason);
+    }
+
+    /**
+     * Gets the keyboard ready for the next frame when recording or playing
+     * a movie. Must be called with the emulator locked.
+     */
+    private void beforeFrame() {
+        if (movieRecorder != null) {
+            movieRecorder.beforeFrame();
+        }
+        if (moviePlayer != null) {
+            moviePlayer.beforeFrame();
+        }
+    }
+
+    /**
+     * Counts a frame towards the movie being recorded or played, and records
+     * it for rewinding, unless the CPU halted during the frame. A movie that
+     * has finished playing is stopped. Must be called with the emulator
+     * locked.
+     */
+    private void afterFrame() {
+        if (cpu.isHalted()) {
+            return;
+        }
+        if (movieRecorder != null) {
+            movieRecorder.afterFrame();
+        }
+        if (moviePlayer != null) {
+            moviePlayer.afterFrame();
+            if (moviePlayer.isFinished()) {
+                moviePlayer.finish();
+                moviePlayer = null;
+            }
+        }
+        if (rewindBuffer != null) {
+            rewindBuffer.record(cpu);
+        }
+    }
+
+    /**
+     * Starts recording a movie from the current frame. The timers switch to
+     * the virtual clock, and the random number generator is reseeded. Any
+     * movie being played or recorded is stopped. See MovieRecorder.
+     *
+     * @param seed the seed for the random number generator
+     */
+    public synchronized void startRecording(long seed) {
+        stopMovie();
+        setVirtualClock(true);
+        movieRecorder = new MovieRecorder(cpu, keyboard, seed);
+    }
+
+    /**
+     * Stops recording a movie.
+     *
+     * @return the recorded movie, or null if no movie was being recorded
+     */
+    public synchronized Movie stopRecording() {
+        if (movieRecorder == null) {
+            return null;
+        }
+        Movie movie = movieRecorder.finish();
+        movieRecorder = null;
+        return movie;
+    }
+
+    /**
+     * Starts playing a movie from its first frame. The machine is restored
+     * to the state the movie starts from, and from then on the keys come
+     * from the movie instead of the keyboard until the movie is over. Any
+     * movie being played or recorded is stopped. See MoviePlayer.
+     *
+     * @param movie the movie to play
+     * @throws IllegalArgumentException if the movie was recorded with a different memory size
+     */
+    public synchronized void playMovie(Movie movie) {
+        stopMovie();
+        setVirtualClock(true);
+        moviePlayer = new MoviePlayer(movie, cpu, keyboard);
+    }
+
+    /**
+     * Returns whether a movie is being played.
+     *
+     * @return true if the keys come from a movie
+     */
+    public synchronized boolean isPlayingMovie() {
+        return moviePlayer != null;
+    }
+
+    /**
+     * Stops any movie being played or recorded.
+     */
+    private void stopMovie() {
+        stopRecording();
+        if (moviePlayer != null) {
+            moviePlayer.finish();
+            moviePlayer = null;
+        }
+    }
+
+    /**
+     * Captures the full state of the machine between frames. See
+     * CentralProcessingUnit.saveState.
+     *
+     * @return the save state
+     */
+    public synchronized byte[] saveState() {
+        return cpu.saveState();
+    }
+
+    /**
+     * Restores the machine to a saved state between frames. See
+     * CentralProcessingUnit.restoreState.
+     *
+     * @param state the save state to restore
+     * @throws IllegalArgumentException if the state does not fit this machine
+     */
+    public synchronized void restoreState(byte[] state) {
+        cpu.restoreState(state);
+    }
+
+    /**
+     * Sets how many seconds of emulated time can be rewound by holding
+     * down the rewind key. Every frame is recorded while rewinding is on.
+     * See RewindBuffer.
+     *
+     * @param seconds the number of seconds to keep, or 0 to turn rewinding off
+     */
+    public synchronized void setRewindSeconds(int seconds) {
+        rewindBuffer = (seconds > 0) ? new RewindBuffer(seconds * FRAMES_PER_SECOND) : null;
+    }
+
+    /**
+     * Rewinds the machine by a single frame.
+     *
+     * @return true if the machine was rewound, false if rewinding is off or there is no earlier frame
+     */
+    public synchronized boolean rewind() {
+        return (rewindBuffer != null) && rewindBuffer.rewind(cpu);
+    }
+
+    /**
+     * Runs the specified number of instructions as fast as possible, on the
+     * calling thread, without touching any Swing components. See
+     * CentralProcessingUnit.runInstructions.
+     *
+     * @param count the number of instructions to run
+     * @return the number of instructions and frames run, and why the run stopped
+     */
+    public synchronized RunResult runInstructions(long count) {
+        return cpu.runInstructions(count);
     }
 
     /**
@@ -224,6 +568,119 @@ public class Emulator
         return memory;
     }
 
+    public Screen getScreen() {
+        return screen;
+    }
+
+    public Keyboard getKeyboard() {
+        return keyboard;
+    }
+
+    /**
+     * Sets the listener that receives the screen contents once per frame.
+     *
+     * @param frameListener the listener to call, or null to stop calling one
+     */
+    public void setFrameListener(FrameListener frameListener) {
+        this.frameListener = frameListener;
+    }
+
+    /**
+     * Sets whether frames that are the same as the last frame passed to the
+     * frame listener are skipped, so that a listener that records, encodes
+     * or sends frames only sees frames that changed. Frames are compared by
+     * their frame hash - see Screen.getFrameHash.
+     *
+     * @param skipDuplicateFrames true to skip duplicate frames
+     */
+    public void setSkipDuplicateFrames(boolean skipDuplicateFrames) {
+        this.skipDuplicateFrames = skipDuplicateFrames;
+    }
+
+    /**
+     * Sets whether the delay and sound timers follow emulated frames
+     * rather than the wall clock. See CentralProcessingUnit.setVirtualClock.
+     * In turbo mode, the setting takes effect once turbo mode is turned off.
+     *
+     * @param virtualClock true to use the virtual clock
+     */
+    public synchronized void setVirtualClock(boolean virtualClock) {
+        if (turbo) {
+            virtualClockBeforeTurbo = virtualClock;
+        } else {
+            cpu.setVirtualClock(virtualClock);
+        }
+    }
+
+    /**
+     * Turns turbo mode on or off. In turbo mode, frames are emulated as fast
+     * as the host allows instead of at 60Hz, and the CPU uses the virtual
+     * clock so that the delay and sound timers keep pace with the emulated
+     * frames. Only the latest frame is drawn at each 60Hz screen refresh.
+     *
+     * @param turbo true to turn turbo mode on
+     */
+    public synchronized void setTurbo(boolean turbo) {
+        if (turbo == this.turbo) {
+            return;
+        }
+
+        if (turbo) {
+            virtualClockBeforeTurbo = cpu.isVirtualClock();
+            cpu.setVirtualClock(true);
+        } else {
+            cpu.setVirtualClock(virtualClockBeforeTurbo);
+        }
+        this.turbo = turbo;
+
+        if (turboMenuItem != null) {
+            SwingUtilities.invokeLater(() -> turboMenuItem.setSelected(turbo));
+        }
+        updateTitle();
+    }
+
+    /**
+     * Turns a single quirk on or off while the emulator is running, leaving
+     * the other quirks as they are. This allows the quirks to be matched to
+     * a newly loaded ROM without restarting the emulator.
+     *
+     * @param quirk the quirk to change, one of the CentralProcessingUnit quirk profile bits
+     * @param enabled true to turn the quirk on
+     */
+    public synchronized void setQuirk(int quirk, boolean enabled) {
+        int quirkProfile = cpu.getQuirkProfile();
+        cpu.setQuirkProfile(enabled ? (quirkProfile | quirk) : (quirkProfile & ~quirk));
+    }
+
+    /**
+     * Returns whether turbo mode is on.
+     *
+     * @return true if frames are emulated as fast as possible
+     */
+    public boolean isTurbo() {
+        return turbo;
+    }
+
+    /**
+     * Returns the number of frames emulated per second, as a multiple of
+     * the 60Hz real time rate. The value is measured four times per second
+     * while the emulator is running.
+     *
+     * @return the last measured speed multiple
+     */
+    public double getSpeedMultiple() {
+        return speedMultiple;
+    }
+
+    /**
+     * Returns whether the emulator is running without a window.
+     *
+     * @return true if the emulator is headless
+     */
+    public boolean isHeadless() {
+        return headless;
+    }
+
     /**
      * Initializes the JFrame that the emulator will use to draw onto. Will set up the menu system and
      * link the action listeners to the menu items. Returns the JFrame that contains all of the emulator
@@ -242,6 +699,15 @@ public class Emulator
         fileMenu.add(openFile);
         fileMenu.addSeparator();
 
+        JMenuItem saveState = new JMenuItem("Save State", KeyEvent.VK_S);
+        saveState.addActionListener(new SaveStateActionListener(this));
+        fileMenu.add(saveState);
+
+        JMenuItem loadState = new JMenuItem("Load State", KeyEvent.VK_L);
+        loadState.addActionListener(new LoadStateActionListener(this));
+        fileMenu.add(loadState);
+        fileMenu.addSeparator();
+
         JMenuItem quitFile = new JMenuItem("Quit", KeyEvent.VK_Q);
         quitFile.addActionListener(new QuitActionListener(this));
         fileMenu.add(quitFile);
@@ -256,11 +722,42 @@ public class Emulator
         resetCPU.addActionListener(new ResetMenuItemActionListener(cpu));
         cpuMenu.add(resetCPU);
         cpuMenu.addSeparator();
+
+        // Turbo mode menu item
+        turboMenuItem = new JCheckBoxMenuItem("Turbo", turbo);
+        turboMenuItem.setMnemonic(KeyEvent.VK_T);
+        turboMenuItem.addActionListener(new TurboMenuItemActionListener(this));
+        cpuMenu.add(turboMenuItem);
+
+        // Quirks menu, applied as soon as they are changed
+        JMenu quirksMenu = new JMenu("Quirks");
+        quirksMenu.setMnemonic(KeyEvent.VK_U);
+        addQuirkMenuItem(quirksMenu, "Shift", KeyEvent.VK_S, CentralProcessingUnit.SHIFT_QUIRKS);
+        addQuirkMenuItem(quirksMenu, "Logic", KeyEvent.VK_L, CentralProcessingUnit.LOGIC_QUIRKS);
+        addQuirkMenuItem(quirksMenu, "Jump", KeyEvent.VK_J, CentralProcessingUnit.JUMP_QUIRKS);
+        addQuirkMenuItem(quirksMenu, "Index", KeyEvent.VK_I, CentralProcessingUnit.INDEX_QUIRKS);
+        addQuirkMenuItem(quirksMenu, "Clip", KeyEvent.VK_C, CentralProcessingUnit.CLIP_QUIRKS);
+        cpuMenu.add(quirksMenu);
         menuBar.add(cpuMenu);
 
         attachCanvas();
     }
 
+    /**
+     * Adds a check box menu item that turns a single quirk on or off.
+     *
+     * @param menu the menu to add the item to
+     * @param name the name of the quirk
+     * @param mnemonic the mnemonic key for the item
+     * @param quirk the quirk profile bit for the quirk
+     */
+    private void addQuirkMenuItem(JMenu menu, String name, int mnemonic, int quirk) {
+        JCheckBoxMenuItem quirkMenuItem = new JCheckBoxMenuItem(name, (cpu.getQuirkProfile() & quirk) != 0);
+        quirkMenuItem.setMnemonic(mnemonic);
+        quirkMenuItem.addActionListener(new QuirkMenuItemActionListener(this, quirk));
+        menu.add(quirkMenuItem);
+    }
+
     /**
      * Generates the canvas of the appropriate size and attaches it to the
      * main jFrame for the emulator.
@@ -275,9 +772,18 @@ public class Emulator
         panel.setPreferredSize(new Dimension(scaledWidth, scaledHeight));
         panel.setLayout(null);
 
-        canvas = new Canvas();
+        canvas = new Canvas() {
+            @Override
+            public void paint(Graphics graphics) {
+                fullRedraw = true;
+            }
+
+            @Override
+            public void update(Graphics graphics) {
+                paint(graphics);
+            }
+        };
         canvas.setBounds(0, 0, scaledWidth, scaledHeight);
-        canvas.setIgnoreRepaint(true);
 
         panel.add(canvas);
 
@@ -286,7 +792,7 @@ public class Emulator
         container.setResizable(false);
         container.setVisible(true);
         container.setDefaultCloseOperation(WindowConstants.EXIT_ON_CLOSE);
-        canvas.createBufferStrategy(DEFAULT_NUMBER_OF_BUFFERS);
+        createBufferStrategy();
         canvas.setFocusable(true);
         canvas.requestFocus();
 
@@ -294,25 +800,119 @@ public class Emulator
     }
 
     /**
-     * Will redraw the contents of the screen to the emulator window. Optionally, if
-     * isInTraceMode is True, will also draw the contents of the overlayScreen to the screen.
+     * Creates the buffer strategy for the canvas. A page flipping strategy
+     * that keeps the contents of the back buffer when it is shown is asked
+     * for first, so that only the rows that changed need to be redrawn. If
+     * there is none, the default strategy is used, and refreshScreen checks
+     * its capabilities to work out how much to redraw.
+     */
+    private void createBufferStrategy() {
+        for (FlipContents contents : new FlipContents[]{FlipContents.COPIED, FlipContents.PRIOR}) {
+            try {
+                canvas.createBufferStrategy(DEFAULT_NUMBER_OF_BUFFERS,
+                        new BufferCapabilities(new ImageCapabilities(true), new ImageCapabilities(true), contents));
+                return;
+            } catch (AWTException e) {
+                // Not supported, try the next one
+            }
+        }
+        canvas.createBufferStrategy(DEFAULT_NUMBER_OF_BUFFERS);
+    }
+
+    /**
+     * Shows the turbo mode speed in the title of the emulator window.
+     */
+    private void updateTitle() {
+        if (container == null) {
+            return;
+        }
+
+        String title = turbo ? String.format("%s - Turbo %.1fx", DEFAULT_TITLE, speedMultiple) : DEFAULT_TITLE;
+        SwingUtilities.invokeLater(() -> container.setTitle(title));
+    }
+
+    /**
+     * Will redraw the contents of the latest completed frame to the emulator
+     * window. Where the buffer strategy allows it, only the rows of the
+     * screen that have changed are copied to the window, and nothing is
+     * shown at all if no rows have changed. See getRowsToDraw.
      */
     private void refreshScreen() {
-        Graphics2D graphics = (Graphics2D) canvas.getBufferStrategy().getDrawGraphics();
-        graphics.drawImage(screen.getBuffer(), null, 0, 0);
+        long changedRows = displayScreen.updateBuffer();
+        BufferStrategy strategy = canvas.getBufferStrategy();
+        long rows = getRowsToDraw(strategy.getCapabilities(), changedRows, lastDrawnRows);
+        lastDrawnRows = changedRows;
+        if (fullRedraw) {
+            fullRedraw = false;
+            rows = -1L;
+            lastDrawnRows = -1L;
+        }
+        if (rows == 0) {
+            return;
+        }
+
+        Graphics2D graphics = (Graphics2D) strategy.getDrawGraphics();
+        drawRows(graphics, displayScreen.backBuffer, rows, displayScreen.getScale());
         graphics.dispose();
-        canvas.getBufferStrategy().show();
+        strategy.show();
+        if (strategy.contentsRestored() || strategy.contentsLost()) {
+            fullRedraw = true;
+        }
     }
 
     /**
-     * Kills the CPU, any emulator based timers, and disposes the main
-     * emulator JFrame before calling System.exit.
+     * Returns the rows that must be drawn into the back buffer of a buffer
+     * strategy for it to hold the whole of the latest frame. A blitting
+     * strategy, or a page flipping strategy whose back buffer becomes a
+     * copy of the front buffer when shown, only needs the rows that changed.
+     * A two buffer page flipping strategy whose back buffer becomes the old
+     * front buffer also needs the rows drawn into the other buffer at the
+     * last refresh. Any other strategy leaves the back buffer undefined, so
+     * every row is drawn whenever something has changed.
+     *
+     * @param capabilities the capabilities of the buffer strategy
+     * @param changedRows the rows changed since the last refresh
+     * @param lastDrawnRows the rows drawn at the last refresh
+     * @return the rows to draw, one bit per row with row 0 in the lowest bit
+     */
+    static long getRowsToDraw(BufferCapabilities capabilities, long changedRows, long lastDrawnRows) {
+        FlipContents contents = capabilities.getFlipContents();
+        if (!capabilities.isPageFlipping() || (contents == FlipContents.COPIED)) {
+            return changedRows;
+        }
+        if (contents == FlipContents.PRIOR) {
+            return changedRows | lastDrawnRows;
+        }
+        return (changedRows == 0) ? 0 : -1L;
+    }
+
+    /**
+     * Copies rows of the back buffer of the screen, with each run of
+     * consecutive rows copied as a single band.
+     *
+     * @param graphics the graphics to draw into
+     * @param buffer the back buffer of the screen
+     * @param rows the rows to copy, one bit per row with row 0 in the lowest bit
+     * @param scale the scale of the back buffer
+     */
+    static void drawRows(Graphics2D graphics, BufferedImage buffer, long rows, int scale) {
+        int width = buffer.getWidth();
+        while (rows != 0) {
+            int first = Long.numberOfTrailingZeros(rows);
+            int end = Math.min(Screen.HEIGHT, first + Long.numberOfTrailingZeros(~(rows >>> first)));
+            int top = first * scale;
+            int bottom = end * scale;
+            graphics.drawImage(buffer, 0, top, width, bottom, 0, top, width, bottom, null);
+            rows = (end == Screen.HEIGHT) ? 0 : rows & (-1L << end);
+        }
+    }
+
+    /**
+     * Kills the CPU, stops the render thread, and disposes the main
+     * emulator JFrame if there is one.
      */
     public void kill() {
         cpu.kill();
-        timer.cancel();
-        timer.purge();
-        timerTask.cancel();
         dispose();
         state = EmulatorState.KILLED;
     }
@@ -321,7 +921,9 @@ public class Emulator
      * Disposes of the main emulator JFrame.
      */
     public void dispose() {
-        container.dispose();
+        if (container != null) {
+            container.dispose();
+        }
     }
 
     /**
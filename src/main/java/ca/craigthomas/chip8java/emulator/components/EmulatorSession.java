@@ -0,0 +1,285 @@
+/*
+ * Copyright (C) 2013-2025 Craig Thomas
+ * This project uses an MIT style license - see LICENSE for details.
+ */
+package ca.craigthomas.chip8java.emulator.components;
+
+import ca.craigthomas.chip8java.emulator.common.IO;
+
+import java.io.ByteArrayInputStream;
+
+/**
+ * A single headless emulator instance run by a SessionHost. Each session has
+ * its own CPU, memory, screen and keyboard, uses the virtual clock, and keeps
+ * count of how much work it has done so that its throughput can be measured.
+ * A session is only ever run by one thread at a time.
+ */
+public class EmulatorSession
+{
+    // The font file for the Chip 8
+    private static final String FONT_FILE = "FONTS.chip8";
+
+    // The identifier of the session within its host
+    private final int id;
+
+    // The Chip8 components
+    private final CentralProcessingUnit cpu;
+    private final Memory memory;
+    private final Screen screen;
+    private final Keyboard keyboard;
+
+    // The font and ROM loaded into memory when the session starts
+    private final byte[] font;
+    private final byte[] rom;
+
+    // Receives the screen contents after every frame, may be null
+    private volatile FrameListener frameListener;
+
+    // The total number of instructions executed, including skipped idle loop passes
+    private volatile long instructions;
+
+    // The total number of frames completed
+    private volatile long frames;
+
+    // The total time spent running the session, in nanoseconds
+    private volatile long runNanos;
+
+    // Why the session stopped at the end of its last slice
+    private volatile HaltReason haltReason = HaltReason.COMPLETED;
+
+    // The exception that stopped the session, if any
+    private volatile RuntimeException error;
+
+    private EmulatorSession(int id, byte[] font, byte[] rom, int maxTicks, int quirkProfile, boolean memSize4k) {
+        this.id = id;
+        this.font = font;
+        this.rom = rom;
+        keyboard = new Keyboard();
+        memory = new Memory(memSize4k);
+        screen = new Screen();
+        cpu = new CentralProcessingUnit(memory, keyboard, screen, true);
+        cpu.setQuirkProfile(quirkProfile);
+        cpu.setMaxTicks(maxTicks);
+    }
+
+    /**
+     * Creates a session with the font and ROM loaded, ready to run. The
+     * arrays are kept by the session and must not be changed afterwards,
+     * but can be shared between sessions.
+     *
+     * @param id the identifier of the session
+     * @param font the bytes of the font, see readFont
+     * @param rom the bytes of the ROM to run
+     * @param maxTicks the maximum number of operations per second to execute
+     * @param quirkProfile the quirks to enable, see CentralProcessingUnit.setQuirkProfile
+     * @param memSize4k whether to set memory size to 4k
+     * @return the new session
+     */
+    static EmulatorSession create(int id, byte[] font, byte[] rom, int maxTicks, int quirkProfile, boolean memSize4k) {
+        EmulatorSession session = new EmulatorSession(id, font, rom, maxTicks, quirkProfile, memSize4k);
+        if (!session.loadMemory()) {
+            session.cpu.kill();
+            throw new IllegalArgumentException("ROM of " + rom.length + " bytes does not fit in memory");
+        }
+        return session;
+    }
+
+    /**
+     * Reads the Chip 8 font.
+     *
+     * @return the bytes of the font
+     */
+    static byte[] readFont() {
+        byte[] font = IO.readStreamToByteArray(IO.openInputStreamFromResource(FONT_FILE));
+        if (font == null) {
+            throw new IllegalStateException("Could not load font file");
+        }
+        return font;
+    }
+
+    /**
+     * Loads the font and the ROM into memory.
+     *
+     * @return true if both fit in memory
+     */
+    private boolean loadMemory() {
+        return memory.loadStreamIntoMemory(new ByteArrayInputStream(font), 0) &&
+                memory.loadStreamIntoMemory(new ByteArrayInputStream(rom), CentralProcessingUnit.PROGRAM_COUNTER_START);
+    }
+
+    /**
+     * Puts the session back the way it was when it was created - memory
+     * holds only the font and the ROM, the screen is blank and in normal
+     * mode, no keys are pressed, and the CPU is reset. The counts of work
+     * done are kept.
+     */
+    void restart() {
+        memory.clear();
+        loadMemory();
+        keyboard.setKeys(0);
+        screen.clearScreen(3);
+        screen.setNormalScreenMode();
+        cpu.mode = CentralProcessingUnit.MODE_NORMAL;
+        cpu.reset();
+        error = null;
+        haltReason = HaltReason.COMPLETED;
+    }
+
+    /**
+     * Runs up to the specified number of frames. Stops early if the CPU
+     * halts. A session waiting for a keypress keeps running, so that a key
+     * pressed between slices is seen. If a frame throws an exception, the
+     * CPU is killed and the exception is kept - see getError.
+     *
+     * @param count the number of frames to run
+     */
+    void run(int count) {
+        long start = System.nanoTime();
+        try {
+            for (int frame = 0; frame < count; frame++) {
+                instructions += cpu.runFrame();
+                if (cpu.isHalted()) {
+                    break;
+                }
+                frames++;
+                FrameListener listener = frameListener;
+                if (listener != null) {
+                    listener.frameReady(screen);
+                }
+            }
+        } catch (RuntimeException e) {
+            error = e;
+            cpu.kill();
+        }
+        runNanos += System.nanoTime() - start;
+
+        if (cpu.isHalted()) {
+            haltReason = HaltReason.EXIT;
+        } else if (cpu.isAwaitingKeypress()) {
+            haltReason = HaltReason.AWAITING_KEYPRESS;
+        } else {
+            haltReason = HaltReason.COMPLETED;
+        }
+    }
+
+    /**
+     * Stops the session for good.
+     */
+    void kill() {
+        cpu.kill();
+        haltReason = HaltReason.EXIT;
+    }
+
+    /**
+     * Returns the identifier of the session within its host.
+     *
+     * @return the session identifier
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Sets the listener that receives the screen contents after every
+     * frame. The listener is called from whichever host thread is running
+     * the session, and must not hold on to the screen between calls.
+     *
+     * @param frameListener the listener to call, or null to stop calling one
+     */
+    public void setFrameListener(FrameListener frameListener) {
+        this.frameListener = frameListener;
+    }
+
+    /**
+     * Returns the total number of instructions the session has executed.
+     *
+     * @return the number of instructions executed
+     */
+    public long getInstructions() {
+        return instructions;
+    }
+
+    /**
+     * Returns the total number of frames the session has completed.
+     *
+     * @return the number of frames completed
+     */
+    public long getFrames() {
+        return frames;
+    }
+
+    /**
+     * Returns the total time the session has spent running.
+     *
+     * @return the running time in nanoseconds
+     */
+    public long getRunNanos() {
+        return runNanos;
+    }
+
+    /**
+     * Returns the number of instructions executed per second of running
+     * time, or 0 if the session has not run yet.
+     *
+     * @return the instruction throughput of the session
+     */
+    public double getInstructionsPerSecond() {
+        long nanos = runNanos;
+        return (nanos == 0) ? 0.0 : instructions * 1_000_000_000.0 / nanos;
+    }
+
+    /**
+     * Returns the number of frames completed per second of running time, or
+     * 0 if the session has not run yet.
+     *
+     * @return the frame throughput of the session
+     */
+    public double getFramesPerSecond() {
+        long nanos = runNanos;
+        return (nanos == 0) ? 0.0 : frames * 1_000_000_000.0 / nanos;
+    }
+
+    /**
+     * Returns why the session stopped at the end of the last slice it ran.
+     *
+     * @return the halt reason
+     */
+    public HaltReason getHaltReason() {
+        return haltReason;
+    }
+
+    /**
+     * Returns whether the session has stopped for good, either because the
+     * ROM exited, the session was removed, or a frame threw an exception.
+     *
+     * @return true if the session is halted
+     */
+    public boolean isHalted() {
+        return cpu.isHalted();
+    }
+
+    /**
+     * Returns the exception that stopped the session, if any.
+     *
+     * @return the exception, or null if the session did not fail
+     */
+    public RuntimeException getError() {
+        return error;
+    }
+
+    public CentralProcessingUnit getCPU() {
+        return cpu;
+    }
+
+    public Memory getMemory() {
+        return memory;
+    }
+
+    public Screen getScreen() {
+        return screen;
+    }
+
+    public Keyboard getKeyboard() {
+        return keyboard;
+    }
+}
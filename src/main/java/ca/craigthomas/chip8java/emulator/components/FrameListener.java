@@ -0,0 +1,26 @@
+/*
+ * Copyright (C) 2013-2025 Craig Thomas
+ * This project uses an MIT style license - see LICENSE for details.
+ */
+package ca.craigthomas.chip8java.emulator.components;
+
+/**
+ * Receives the contents of the screen once per frame, at the 60Hz refresh
+ * rate of the emulator. This is called whether or not the emulator is
+ * attached to a window, so it is the way to capture output when running
+ * headless.
+ */
+public interface FrameListener
+{
+    /**
+     * Called once per frame with the current screen. The screen contents
+     * can be read with {@link Screen#copyPixels(int[])} or
+     * {@link Screen#getPixel(int, int, int)}. When the emulator is started,
+     * the listener is called from the render thread with a copy of the
+     * latest completed frame, which the CPU never changes while the listener
+     * runs. The listener must not hold on to the screen between calls.
+     *
+     * @param screen the screen holding the frame
+     */
+    void frameReady(Screen screen);
+}
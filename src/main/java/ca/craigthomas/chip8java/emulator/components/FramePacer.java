@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2013-2025 Craig Thomas
+ * This project uses an MIT style license - see LICENSE for details.
+ */
+package ca.craigthomas.chip8java.emulator.components;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Paces a loop to a fixed number of frames per second. Each frame has an
+ * absolute deadline measured with System.nanoTime, and the calling thread
+ * is parked until that deadline instead of spinning. Because deadlines are
+ * advanced by exactly one frame period each time, oversleeping in one frame
+ * is made up in the next, so the average rate stays exact under load. If the
+ * loop falls too far behind (for example, after the process was suspended),
+ * the missed frames are dropped rather than run back to back.
+ */
+public class FramePacer
+{
+    // The number of frames the pacer may fall behind before dropping them
+    private static final int MAX_FRAMES_BEHIND = 5;
+
+    // The length of a single frame in nanoseconds
+    private final long framePeriod;
+
+    // The time at which the current frame ends
+    private long deadline;
+
+    /**
+     * Creates a new pacer running at the specified rate. The first frame
+     * starts when the pacer is created.
+     *
+     * @param framesPerSecond the number of frames per second
+     */
+    public FramePacer(int framesPerSecond) {
+        if (framesPerSecond < 1) {
+            throw new IllegalArgumentException("framesPerSecond must be at least 1");
+        }
+        framePeriod = 1_000_000_000L / framesPerSecond;
+        reset();
+    }
+
+    /**
+     * Starts the current frame now, forgetting any earlier deadlines.
+     */
+    public void reset() {
+        deadline = System.nanoTime();
+    }
+
+    /**
+     * Parks the calling thread until the start of the next frame. Returns
+     * immediately if that frame is already due.
+     */
+    public void awaitNextFrame() {
+        deadline += framePeriod;
+        long remaining = deadline - System.nanoTime();
+        if (remaining < -MAX_FRAMES_BEHIND * framePeriod) {
+            reset();
+            return;
+        }
+
+        while (remaining > 0) {
+            LockSupport.parkNanos(remaining);
+            remaining = deadline - System.nanoTime();
+        }
+    }
+
+    /**
+     * Returns the length of a single frame.
+     *
+     * @return the frame period in nanoseconds
+     */
+    public long getFramePeriod() {
+        return framePeriod;
+    }
+}
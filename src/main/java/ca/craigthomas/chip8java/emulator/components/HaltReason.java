@@ -0,0 +1,20 @@
+/*
+ * Copyright (C) 2013-2025 Craig Thomas
+ * This project uses an MIT style license - see LICENSE for details.
+ */
+package ca.craigthomas.chip8java.emulator.components;
+
+/**
+ * The reason a batch run of the CPU stopped.
+ */
+public enum HaltReason
+{
+    // Every requested instruction or frame was run
+    COMPLETED,
+
+    // The CPU is waiting for a keypress that is not available
+    AWAITING_KEYPRESS,
+
+    // The CPU executed an EXIT instruction or was killed
+    EXIT
+}
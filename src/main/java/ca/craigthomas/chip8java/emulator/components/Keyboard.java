@@ -46,27 +46,103 @@ public class Keyboard extends KeyAdapter
     // The key to quit the emulator
     protected static final int CHIP8_QUIT = KeyEvent.VK_ESCAPE;
 
+    // The key to hold down to rewind the emulator
+    protected static final int CHIP8_REWIND = KeyEvent.VK_BACK_SPACE;
+
+    // Whether the rewind key is being held down
+    private volatile boolean rewindPressed;
+
+    // Whether key events are held back until latch is called
+    private boolean latched;
+
+    // The Chip 8 keys held down according to key events, one bit per key
+    private int eventKeys;
+
+    // The current key according to key events, -1 if no key
+    private int eventCurrentKey = -1;
+
     public Keyboard() {}
 
     @Override
-    public void keyPressed(KeyEvent e) {
+    public synchronized void keyPressed(KeyEvent e) {
         rawKeyPressed = e.getKeyCode();
-        for (int x = 0; x < 16; x++) {
-            if (rawKeyPressed == keycodeMap[x]) {
-                keypressMap[x] = true;
-            }
+        int key = mapKeycodeToChip8Key(rawKeyPressed);
+        if (key != -1) {
+            eventKeys |= 1 << key;
+        }
+        eventCurrentKey = key;
+        if (!latched) {
+            latch();
+        }
+        if (rawKeyPressed == CHIP8_REWIND) {
+            rewindPressed = true;
         }
-        currentKeyPressed = mapKeycodeToChip8Key(rawKeyPressed);
     }
 
     @Override
-    public void keyReleased(KeyEvent e) {
+    public synchronized void keyReleased(KeyEvent e) {
         rawKeyPressed = e.getKeyCode();
+        int key = mapKeycodeToChip8Key(rawKeyPressed);
+        if (key != -1) {
+            eventKeys &= ~(1 << key);
+        }
+        if (!latched) {
+            latch();
+        }
+        if (rawKeyPressed == CHIP8_REWIND) {
+            rewindPressed = false;
+        }
+    }
+
+    /**
+     * Sets whether key events are held back until latch is called, instead
+     * of being seen by the CPU straight away. Latching at the start of every
+     * frame means keys only ever change between frames, which is what makes
+     * runs reproducible.
+     *
+     * @param latched true to hold back key events
+     */
+    public synchronized void setLatched(boolean latched) {
+        this.latched = latched;
+    }
+
+    /**
+     * Makes the keys reported by key events so far visible to the CPU.
+     */
+    public synchronized void latch() {
         for (int x = 0; x < 16; x++) {
-            if (rawKeyPressed == keycodeMap[x]) {
-                keypressMap[x] = false;
+            keypressMap[x] = (eventKeys & (1 << x)) != 0;
+        }
+        currentKeyPressed = eventCurrentKey;
+    }
+
+    /**
+     * Returns the keys seen by the CPU packed into a single value - the
+     * pressed keys in the low 16 bits, one bit per key, and the current key
+     * plus one above them. See setKeyState.
+     *
+     * @return the packed key state
+     */
+    public int getKeyState() {
+        int keys = 0;
+        for (int x = 0; x < 16; x++) {
+            if (keypressMap[x]) {
+                keys |= 1 << x;
             }
         }
+        return keys | ((currentKeyPressed + 1) << 16);
+    }
+
+    /**
+     * Sets the keys seen by the CPU from a value returned by getKeyState.
+     *
+     * @param state the packed key state
+     */
+    public void setKeyState(int state) {
+        for (int x = 0; x < 16; x++) {
+            keypressMap[x] = (state & (1 << x)) != 0;
+        }
+        currentKeyPressed = (state >>> 16) - 1;
     }
 
     /**
@@ -110,6 +186,31 @@ public class Keyboard extends KeyAdapter
         return false;
     }
 
+    /**
+     * Sets which Chip 8 keys are pressed, replacing any earlier keypresses.
+     * The lowest numbered key that is pressed becomes the current key.
+     *
+     * @param keys a mask with bit n set if key n is pressed
+     */
+    public void setKeys(int keys) {
+        currentKeyPressed = -1;
+        for (int x = 15; x >= 0; x--) {
+            keypressMap[x] = (keys & (1 << x)) != 0;
+            if (keypressMap[x]) {
+                currentKeyPressed = x;
+            }
+        }
+    }
+
+    /**
+     * Returns true if the rewind key is being held down.
+     *
+     * @return true if the rewind key is pressed
+     */
+    public boolean isRewindPressed() {
+        return rewindPressed;
+    }
+
     /**
      * Returns the currently pressed debug key. Will return 0 if no debug key was
      * pressed.
@@ -7,14 +7,22 @@ package ca.craigthomas.chip8java.emulator.components;
 import ca.craigthomas.chip8java.emulator.common.IO;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 /**
- * Emulates the memory associated with a Chip 8 computer. Note - due to the
- * fact that Java does not have a native unsigned byte, all memory values are
- * stored as shorts instead. While having a separate class for memory access
- * may seem to be unwarranted, other architectures used to perform memory
- * mapped I/O. Since the I/O routines were accessed through memory addresses,
- * it makes more sense to have a separate class responsible for all memory.
+ * Emulates the memory associated with a Chip 8 computer. Memory values are
+ * stored as bytes, and converted to their unsigned value when they are read.
+ * While having a separate class for memory access may seem to be
+ * unwarranted, other architectures used to perform memory mapped I/O. Since
+ * the I/O routines were accessed through memory addresses, it makes more
+ * sense to have a separate class responsible for all memory.
+ * <p>
+ * The public read and write methods check that the location is within
+ * memory. The CPU uses a set of unchecked methods instead, which wrap any
+ * location past the end of memory around to the start, the same way the
+ * address arithmetic of the original hardware did. Memory sizes are
+ * always a power of two, so wrapping is a single mask.
  *
  * @author Craig Thomas
  */
@@ -25,11 +33,14 @@ public class Memory
     public static final int MEMORY_64K = 65536;
 
     // The internal storage array for the emulator's memory
-    protected short[] memory;
+    protected byte[] memory;
 
     // The total size of emulator memory
     private int size;
 
+    // Wraps a location around to the start of memory
+    private int addressMask;
+
     /**
      * Alternate constructor for the memory object. The memory object will default to
      * 64K.
@@ -46,7 +57,8 @@ public class Memory
      */
     public Memory(boolean memorySize4k) {
         this.size = (memorySize4k) ? MEMORY_4K : MEMORY_64K;
-        this.memory = new short[size];
+        this.memory = new byte[size];
+        this.addressMask = size - 1;
     }
 
     /**
@@ -56,15 +68,31 @@ public class Memory
      * @return The value read from memory
      */
     public short read(int location) {
-        if (location > size) {
-            throw new IllegalArgumentException("location must be less than memory size");
-        }
+        checkLocation(location);
+        return (short) (memory[location] & 0xFF);
+    }
 
-        if (location < 0) {
-            throw new IllegalArgumentException("location must be 0 or larger");
-        }
+    /**
+     * Reads a single byte value from memory without checking the location
+     * first. A location outside of memory wraps around.
+     *
+     * @param location The memory location to read from
+     * @return The unsigned value read from memory
+     */
+    int readUnsigned(int location) {
+        return memory[location & addressMask] & 0xFF;
+    }
 
-        return (short) (memory[location] & 0xFF);
+    /**
+     * Reads a 16-bit big-endian word from memory without checking the
+     * location first. A location outside of memory wraps around, and so
+     * does the low byte of a word that starts at the last location.
+     *
+     * @param location The memory location of the high byte of the word
+     * @return The unsigned 16-bit value read from memory
+     */
+    int readWord(int location) {
+        return ((memory[location & addressMask] & 0xFF) << 8) | (memory[(location + 1) & addressMask] & 0xFF);
     }
 
     /**
@@ -74,15 +102,59 @@ public class Memory
      * @param location The memory location to write to
      */
     public void write(int value, int location) {
-        if (location > size) {
+        checkLocation(location);
+        writeUnsigned(value, location);
+    }
+
+    /**
+     * Writes a single byte to memory without checking the location first.
+     * A location outside of memory wraps around.
+     *
+     * @param value    The value to write to memory
+     * @param location The memory location to write to
+     */
+    void writeUnsigned(int value, int location) {
+        memory[location & addressMask] = (byte) value;
+    }
+
+    /**
+     * Throws an IllegalArgumentException if the location is outside of memory.
+     *
+     * @param location The memory location to check
+     */
+    private void checkLocation(int location) {
+        if (location >= size) {
             throw new IllegalArgumentException("location must be less than memory size");
         }
 
         if (location < 0) {
             throw new IllegalArgumentException("location must be 0 or larger");
         }
+    }
 
-        memory[location] = (short) (value & 0xFF);
+    /**
+     * Writes the contents of memory to a save state.
+     *
+     * @param buffer the buffer to write to
+     */
+    void writeState(ByteBuffer buffer) {
+        buffer.put(memory, 0, size);
+    }
+
+    /**
+     * Reads the contents of memory from a save state.
+     *
+     * @param buffer the buffer to read from
+     */
+    void readState(ByteBuffer buffer) {
+        buffer.get(memory, 0, size);
+    }
+
+    /**
+     * Sets every memory location to zero.
+     */
+    void clear() {
+        Arrays.fill(memory, (byte) 0);
     }
 
     /**
@@ -101,6 +173,6 @@ public class Memory
      * @param offset The memory location to start loading the file into
      */
     public boolean loadStreamIntoMemory(InputStream stream, int offset) {
-        return IO.copyStreamToShortArray(stream, memory, offset);
+        return IO.copyStreamToByteArray(stream, memory, offset);
     }
 }
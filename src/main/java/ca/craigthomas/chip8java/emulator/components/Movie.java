@@ -0,0 +1,247 @@
+/*
+ * Copyright (C) 2013-2025 Craig Thomas
+ * This project uses an MIT style license - see LICENSE for details.
+ */
+package ca.craigthomas.chip8java.emulator.components;
+
+import java.io.*;
+import java.util.Arrays;
+
+/**
+ * A recording of a run of the emulator that can be replayed exactly. A movie
+ * holds everything that can make two runs of the same ROM differ - the state
+ * of the machine when recording started, the seed of the random number
+ * generator, the quirks, the number of instructions per frame, and every
+ * change to the keys held down, keyed by the emulated frame it happened on.
+ * Movies are made by a MovieRecorder and played back by a MoviePlayer.
+ * <p>
+ * The file format is a header - the magic number, the format version, the
+ * seed, the quirk profile, the ticks per frame and the number of frames -
+ * followed by the length of the starting save state, the save state itself,
+ * the number of key events and then each event as a frame number and a key
+ * state (see Keyboard.getKeyState). All values are big-endian.
+ */
+public class Movie
+{
+    // Identifies a movie - "C8MV" in ASCII
+    static final int MAGIC = 0x43384D56;
+
+    // The version of the format written by write
+    static final short VERSION = 1;
+
+    // The seed of the random number generator
+    private final long seed;
+
+    // The quirk profile the movie was recorded with
+    private final int quirkProfile;
+
+    // The number of instructions per frame the movie was recorded with
+    private final int ticksPerFrame;
+
+    // The state of the machine when recording started
+    private final byte[] startState;
+
+    // The number of frames recorded
+    private int frameCount;
+
+    // The frame each key event happened on, in order
+    private int[] eventFrames = new int[16];
+
+    // The key state set by each key event
+    private int[] eventKeyStates = new int[16];
+
+    // The number of key events
+    private int eventCount;
+
+    Movie(long seed, int quirkProfile, int ticksPerFrame, byte[] startState) {
+        this.seed = seed;
+        this.quirkProfile = quirkProfile;
+        this.ticksPerFrame = ticksPerFrame;
+        this.startState = startState;
+    }
+
+    /**
+     * Adds a key event. Events must be added in frame order.
+     *
+     * @param frame the frame the keys changed on
+     * @param keyState the new key state
+     */
+    void addKeyState(int frame, int keyState) {
+        if (eventCount == eventFrames.length) {
+            eventFrames = Arrays.copyOf(eventFrames, eventCount * 2);
+            eventKeyStates = Arrays.copyOf(eventKeyStates, eventCount * 2);
+        }
+        eventFrames[eventCount] = frame;
+        eventKeyStates[eventCount] = keyState;
+        eventCount++;
+    }
+
+    /**
+     * Sets the number of frames recorded.
+     *
+     * @param frameCount the number of frames
+     */
+    void setFrameCount(int frameCount) {
+        this.frameCount = frameCount;
+    }
+
+    /**
+     * Writes the movie to a stream. The stream is not closed.
+     *
+     * @param stream the stream to write to
+     * @throws IOException if the movie could not be written
+     */
+    public void write(OutputStream stream) throws IOException {
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(stream));
+        output.writeInt(MAGIC);
+        output.writeShort(VERSION);
+        output.writeLong(seed);
+        output.writeInt(quirkProfile);
+        output.writeInt(ticksPerFrame);
+        output.writeInt(frameCount);
+        output.writeInt(startState.length);
+        output.write(startState);
+        output.writeInt(eventCount);
+        for (int event = 0; event < eventCount; event++) {
+            output.writeInt(eventFrames[event]);
+            output.writeInt(eventKeyStates[event]);
+        }
+        output.flush();
+    }
+
+    /**
+     * Reads a movie written by write. The stream is not closed.
+     *
+     * @param stream the stream to read from
+     * @return the movie
+     * @throws IOException if the movie could not be read
+     * @throws IllegalArgumentException if the stream does not hold a movie
+     */
+    public static Movie read(InputStream stream) throws IOException {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(stream));
+        if (input.readInt() != MAGIC) {
+            throw new IllegalArgumentException("not a movie");
+        }
+
+        short version = input.readShort();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("unsupported movie version " + version);
+        }
+
+        long seed = input.readLong();
+        int quirkProfile = input.readInt();
+        int ticksPerFrame = input.readInt();
+        int frameCount = input.readInt();
+        int stateLength = input.readInt();
+        if ((frameCount < 0) || (stateLength < SaveState.HEADER_BYTES) ||
+                (stateLength > SaveState.getSize(Memory.MEMORY_64K))) {
+            throw new IllegalArgumentException("corrupt movie header");
+        }
+        byte[] startState = new byte[stateLength];
+        input.readFully(startState);
+        SaveState.getMemorySize(startState);
+
+        Movie movie = new Movie(seed, quirkProfile, ticksPerFrame, startState);
+        movie.setFrameCount(frameCount);
+        int eventCount = input.readInt();
+        if (eventCount < 0) {
+            throw new IllegalArgumentException("corrupt movie header");
+        }
+        int lastFrame = 0;
+        for (int event = 0; event < eventCount; event++) {
+            int frame = input.readInt();
+            if (frame < lastFrame) {
+                throw new IllegalArgumentException("key events out of order at frame " + frame);
+            }
+            movie.addKeyState(frame, input.readInt());
+            lastFrame = frame;
+        }
+        return movie;
+    }
+
+    /**
+     * Returns the seed of the random number generator.
+     *
+     * @return the seed
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Returns the quirk profile the movie was recorded with. See
+     * CentralProcessingUnit.getQuirkProfile.
+     *
+     * @return the quirk profile
+     */
+    public int getQuirkProfile() {
+        return quirkProfile;
+    }
+
+    /**
+     * Returns the number of instructions per frame the movie was recorded
+     * with.
+     *
+     * @return the number of instructions per frame
+     */
+    public int getTicksPerFrame() {
+        return ticksPerFrame;
+    }
+
+    /**
+     * Returns the size of the memory of the machine the movie was recorded
+     * on.
+     *
+     * @return the size of the memory in bytes
+     */
+    public int getMemorySize() {
+        return SaveState.getMemorySize(startState);
+    }
+
+    /**
+     * Returns the save state of the machine when recording started.
+     *
+     * @return the starting save state
+     */
+    public byte[] getStartState() {
+        return startState;
+    }
+
+    /**
+     * Returns the number of frames recorded.
+     *
+     * @return the number of frames
+     */
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * Returns the number of key events recorded.
+     *
+     * @return the number of key events
+     */
+    public int getEventCount() {
+        return eventCount;
+    }
+
+    /**
+     * Returns the frame a key event happened on.
+     *
+     * @param event the index of the event
+     * @return the frame number
+     */
+    public int getEventFrame(int event) {
+        return eventFrames[event];
+    }
+
+    /**
+     * Returns the key state set by a key event.
+     *
+     * @param event the index of the event
+     * @return the key state, see Keyboard.getKeyState
+     */
+    public int getEventKeyState(int event) {
+        return eventKeyStates[event];
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2013-2025 Craig Thomas
+ * This project uses an MIT style license - see LICENSE for details.
+ */
+package ca.craigthomas.chip8java.emulator.components;
+
+/**
+ * Replays a Movie. Creating a player puts the machine back in the state it
+ * was in when recording started, with the same seed, quirks, ticks per
+ * frame and virtual clock. The keyboard is latched so that only the keys
+ * from the movie are seen. Frames can then be run by the player itself with
+ * run, or by someone else calling beforeFrame and afterFrame around each
+ * frame as they run it.
+ */
+public class MoviePlayer
+{
+    // The CPU to replay on
+    private final CentralProcessingUnit cpu;
+
+    // The keyboard attached to the CPU
+    private final Keyboard keyboard;
+
+    // The movie being played
+    private final Movie movie;
+
+    // The number of frames completed so far
+    private int frame;
+
+    // The next key event to apply
+    private int nextEvent;
+
+    /**
+     * Prepares the machine to replay the movie from its first frame.
+     *
+     * @param movie the movie to play
+     * @param cpu the CPU to replay on
+     * @param keyboard the keyboard attached to the CPU
+     * @throws IllegalArgumentException if the movie was recorded with a different memory size
+     */
+    public MoviePlayer(Movie movie, CentralProcessingUnit cpu, Keyboard keyboard) {
+        this.movie = movie;
+        this.cpu = cpu;
+        this.keyboard = keyboard;
+        cpu.restoreState(movie.getStartState());
+        cpu.setVirtualClock(true);
+        cpu.setRandomSeed(movie.getSeed());
+        cpu.setQuirkProfile(movie.getQuirkProfile());
+        cpu.setMaxTicks(movie.getTicksPerFrame() * 60);
+        keyboard.setLatched(true);
+    }
+
+    /**
+     * Sets the keys from the movie for the next frame.
+     */
+    public void beforeFrame() {
+        while ((nextEvent < movie.getEventCount()) && (movie.getEventFrame(nextEvent) <= frame)) {
+            keyboard.setKeyState(movie.getEventKeyState(nextEvent));
+            nextEvent++;
+        }
+    }
+
+    /**
+     * Counts a completed frame.
+     */
+    public void afterFrame() {
+        frame++;
+    }
+
+    /**
+     * Returns whether every frame in the movie has been played.
+     *
+     * @return true if the movie is over
+     */
+    public boolean isFinished() {
+        return frame >= movie.getFrameCount();
+    }
+
+    /**
+     * Stops playing and gives the keyboard back to the key events.
+     */
+    public void finish() {
+        keyboard.setLatched(false);
+        keyboard.latch();
+    }
+
+    /**
+     * Plays the rest of the movie as fast as possible on the calling thread,
+     * then calls finish. Stops early if the CPU halts.
+     *
+     * @return the number of instructions and frames run, and why the run stopped
+     */
+    public RunResult run() {
+        long instructions = 0;
+        int frames = 0;
+        while (!isFinished() && !cpu.isHalted()) {
+            beforeFrame();
+            instructions += cpu.runFrame();
+            if (!cpu.isHalted()) {
+                afterFrame();
+                frames++;
+            }
+        }
+        finish();
+        return new RunResult(instructions, frames, cpu.isHalted() ? HaltReason.EXIT : HaltReason.COMPLETED);
+    }
+
+    /**
+     * Returns the number of frames played so far.
+     *
+     * @return the number of frames
+     */
+    public int getFrame() {
+        return frame;
+    }
+}
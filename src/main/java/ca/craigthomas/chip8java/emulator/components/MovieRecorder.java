@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2013-2025 Craig Thomas
+ * This project uses an MIT style license - see LICENSE for details.
+ */
+package ca.craigthomas.chip8java.emulator.components;
+
+/**
+ * Records a run of the emulator as a Movie. Whoever runs the frames calls
+ * beforeFrame before each frame and afterFrame after each frame completed.
+ * <p>
+ * To make the run reproducible, the recorder seeds the random number
+ * generator, switches the CPU to the virtual clock, and latches the
+ * keyboard, so that keys only change between frames. Key state changes are
+ * then recorded against the frame they were first seen on. Changing the
+ * quirks, the ticks per frame or the state of the machine while recording
+ * is not recorded, so the movie no longer replays the same way.
+ */
+public class MovieRecorder
+{
+    // The CPU being recorded
+    private final CentralProcessingUnit cpu;
+
+    // The keyboard being recorded
+    private final Keyboard keyboard;
+
+    // The movie being recorded
+    private final Movie movie;
+
+    // The number of frames completed so far
+    private int frame;
+
+    // The key state at the last key event, -1 before the first one
+    private int lastKeyState = -1;
+
+    /**
+     * Starts recording from the current state of the machine.
+     *
+     * @param cpu the CPU to record
+     * @param keyboard the keyboard attached to the CPU
+     * @param seed the seed for the random number generator
+     */
+    public MovieRecorder(CentralProcessingUnit cpu, Keyboard keyboard, long seed) {
+        this.cpu = cpu;
+        this.keyboard = keyboard;
+        cpu.setVirtualClock(true);
+        cpu.setRandomSeed(seed);
+        keyboard.setLatched(true);
+        movie = new Movie(seed, cpu.getQuirkProfile(), cpu.getTicksPerFrame(), cpu.saveState());
+    }
+
+    /**
+     * Latches the keyboard for the next frame and records the keys if they
+     * have changed.
+     */
+    public void beforeFrame() {
+        keyboard.latch();
+        int keyState = keyboard.getKeyState();
+        if (keyState != lastKeyState) {
+            movie.addKeyState(frame, keyState);
+            lastKeyState = keyState;
+        }
+    }
+
+    /**
+     * Counts a completed frame.
+     */
+    public void afterFrame() {
+        frame++;
+    }
+
+    /**
+     * Stops recording and releases the keyboard. The CPU is left on the
+     * virtual clock.
+     *
+     * @return the recorded movie
+     */
+    public Movie finish() {
+        keyboard.setLatched(false);
+        keyboard.latch();
+        movie.setFrameCount(frame);
+        return movie;
+    }
+
+    /**
+     * Returns the number of frames recorded so far.
+     *
+     * @return the number of frames
+     */
+    public int getFrameCount() {
+        return frame;
+    }
+}
@@ -0,0 +1,23 @@
+/*
+ * Copyright (C) 2013-2025 Craig Thomas
+ * This project uses an MIT style license - see LICENSE for details.
+ */
+package ca.craigthomas.chip8java.emulator.components;
+
+/**
+ * Computes the reward for a single step of a VectorEnvironment. Rewards are
+ * game specific - usually the change in a score kept somewhere in memory.
+ */
+@FunctionalInterface
+public interface RewardFunction
+{
+    /**
+     * Called once per step for each session, after the step has run. Calls
+     * for different sessions may happen at the same time on different
+     * threads, but calls for the same session never overlap.
+     *
+     * @param session the session that was stepped
+     * @return the reward for the step
+     */
+    double reward(EmulatorSession session);
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright (C) 2013-2025 Craig Thomas
+ * This project uses an MIT style license - see LICENSE for details.
+ */
+package ca.craigthomas.chip8java.emulator.components;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the recent history of a machine so that it can be rewound a frame
+ * at a time. The state of the machine is recorded once per frame, but only
+ * the latest state is kept in full. Every earlier frame is kept as a delta
+ * against the frame after it - the two save states XORed together and then
+ * run-length encoded. Most of memory and most of the screen do not change
+ * from one frame to the next, so a delta is usually a few dozen bytes
+ * instead of a full 64K copy.
+ * <p>
+ * Deltas are kept in a ring buffer holding at most a fixed number of frames
+ * and a fixed number of bytes. Once either limit is reached, the oldest
+ * frames are dropped to make room.
+ * <p>
+ * A delta is a series of runs. Each run is the number of unchanged bytes to
+ * skip, then the number of changed bytes, then the changed bytes XORed with
+ * their old values. Both counts are unsigned variable length integers, seven
+ * bits to a byte with the high bit set on every byte but the last.
+ */
+public class RewindBuffer
+{
+    // The default limit on the number of bytes of deltas kept
+    public static final long DEFAULT_MAX_BYTES = 16L * 1024 * 1024;
+
+    // The deltas, oldest first starting at tail
+    private final byte[][] deltas;
+
+    // The maximum number of bytes of deltas kept
+    private final long maxBytes;
+
+    // Where the next delta goes
+    private int head;
+
+    // The number of deltas held
+    private int count;
+
+    // The total size of the deltas held
+    private long bytes;
+
+    // The latest recorded state, null until the first frame is recorded
+    private byte[] current;
+
+    // Receives each new state before it is compared with the latest one
+    private byte[] scratch;
+
+    // Holds a delta while it is being encoded
+    private byte[] encoded;
+
+    /**
+     * Creates a buffer that keeps up to the specified number of frames,
+     * using at most DEFAULT_MAX_BYTES bytes for deltas.
+     *
+     * @param capacity the maximum number of frames to keep
+     */
+    public RewindBuffer(int capacity) {
+        this(capacity, DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * Creates a buffer that keeps up to the specified number of frames, in
+     * up to the specified number of bytes of deltas.
+     *
+     * @param capacity the maximum number of frames to keep
+     * @param maxBytes the maximum number of bytes of deltas to keep
+     */
+    public RewindBuffer(int capacity, long maxBytes) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1");
+        }
+        this.deltas = new byte[capacity][];
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Records the current state of the machine as the latest frame.
+     *
+     * @param cpu the CPU of the machine
+     */
+    public void record(CentralProcessingUnit cpu) {
+        int size = cpu.getSaveStateSize();
+        if ((current == null) || (current.length != size)) {
+            clear();
+            current = new byte[size];
+            scratch = new byte[size];
+            encoded = new byte[size + (size / 2) + 16];
+            cpu.saveState(current);
+            return;
+        }
+
+        cpu.saveState(scratch);
+        push(encodeDelta(scratch, current));
+        byte[] previous = current;
+        current = scratch;
+        scratch = previous;
+    }
+
+    /**
+     * Restores the machine to the frame before the latest one, which then
+     * becomes the latest frame.
+     *
+     * @param cpu the CPU of the machine
+     * @return true if the machine was rewound, false if there is no earlier frame
+     */
+    public boolean rewind(CentralProcessingUnit cpu) {
+        if (count == 0) {
+            return false;
+        }
+
+        head = (head + deltas.length - 1) % deltas.length;
+        byte[] delta = deltas[head];
+        deltas[head] = null;
+        count--;
+        bytes -= delta.length;
+        applyDelta(delta, current);
+        cpu.restoreState(current);
+        return true;
+    }
+
+    /**
+     * Forgets every recorded frame.
+     */
+    public void clear() {
+        Arrays.fill(deltas, null);
+        head = 0;
+        count = 0;
+        bytes = 0;
+        current = null;
+    }
+
+    /**
+     * Returns the number of frames the machine can be rewound by.
+     *
+     * @return the number of frames held
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Returns the total size of the deltas held.
+     *
+     * @return the number of bytes of deltas
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Adds a delta as the newest one, dropping the oldest deltas if needed to
+     * stay within the limits.
+     *
+     * @param delta the delta to add
+     */
+    private void push(byte[] delta) {
+        while ((count > 0) && ((count == deltas.length) || (bytes + delta.length > maxBytes))) {
+            int tail = (head + deltas.length - count) % deltas.length;
+            bytes -= deltas[tail].length;
+            deltas[tail] = null;
+            count--;
+        }
+        if (delta.length > maxBytes) {
+            return;
+        }
+
+        deltas[head] = delta;
+        head = (head + 1) % deltas.length;
+        count++;
+        bytes += delta.length;
+    }
+
+    /**
+     * Encodes the difference between two states of the same size.
+     *
+     * @param newer the newer state
+     * @param older the older state
+     * @return the delta that turns the newer state into the older one
+     */
+    private byte[] encodeDelta(byte[] newer, byte[] older) {
+        int length = newer.length;
+        int position = 0;
+        int out = 0;
+        while (position < length) {
+            int changed = Arrays.mismatch(newer, position, length, older, position, length);
+            if (changed < 0) {
+                break;
+            }
+
+            int start = position + changed;
+            int end = start + 1;
+            while ((end < length) && (newer[end] != older[end])) {
+                end++;
+            }
+
+            out = writeVarInt(encoded, out, start - position);
+            out = writeVarInt(encoded, out, end - start);
+            for (int i = start; i < end; i++) {
+                encoded[out++] = (byte) (newer[i] ^ older[i]);
+            }
+            position = end;
+        }
+        return Arrays.copyOf(encoded, out);
+    }
+
+    /**
+     * Applies a delta to a state in place.
+     *
+     * @param delta the delta to apply
+     * @param state the state to change
+     */
+    private static void applyDelta(byte[] delta, byte[] state) {
+        int in = 0;
+        int position = 0;
+        while (in < delta.length) {
+            int skip = 0;
+            for (int shift = 0; ; shift += 7) {
+                int value = delta[in++];
+                skip |= (value & 0x7F) << shift;
+                if ((value & 0x80) == 0) {
+                    break;
+                }
+            }
+            int changed = 0;
+            for (int shift = 0; ; shift += 7) {
+                int value = delta[in++];
+                changed |= (value & 0x7F) << shift;
+                if ((value & 0x80) == 0) {
+                    break;
+                }
+            }
+
+            position += skip;
+            for (int i = 0; i < changed; i++) {
+                state[position++] ^= delta[in++];
+            }
+        }
+    }
+
+    /**
+     * Writes an unsigned variable length integer.
+     *
+     * @param target the array to write to
+     * @param offset where to write the integer
+     * @param value the value to write
+     * @return the offset just past the integer
+     */
+    private static int writeVarInt(byte[] target, int offset, int value) {
+        while (value >= 0x80) {
+            target[offset++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        target[offset++] = (byte) value;
+        return offset;
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2013-2025 Craig Thomas
+ * This project uses an MIT style license - see LICENSE for details.
+ */
+package ca.craigthomas.chip8java.emulator.components;
+
+/**
+ * The outcome of a batch run of the CPU - how many instructions and frames
+ * were run, and why the run stopped.
+ */
+public class RunResult
+{
+    // The number of instructions executed, including skipped idle loop passes
+    private final long instructions;
+
+    // The number of frames completed
+    private final int frames;
+
+    // Why the run stopped
+    private final HaltReason haltReason;
+
+    public RunResult(long instructions, int frames, HaltReason haltReason) {
+        this.instructions = instructions;
+        this.frames = frames;
+        this.haltReason = haltReason;
+    }
+
+    /**
+     * Returns the number of instructions executed during the run.
+     *
+     * @return the number of instructions executed
+     */
+    public long getInstructions() {
+        return instructions;
+    }
+
+    /**
+     * Returns the number of frames completed during the run.
+     *
+     * @return the number of frames completed
+     */
+    public int getFrames() {
+        return frames;
+    }
+
+    /**
+     * Returns the reason the run stopped.
+     *
+     * @return the halt reason
+     */
+    public HaltReason getHaltReason() {
+        return haltReason;
+    }
+
+    @Override
+    public String toString() {
+        return "RunResult[instructions=" + instructions + ", frames=" + frames + ", haltReason=" + haltReason + "]";
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2013-2025 Craig Thomas
+ * This project uses an MIT style license - see LICENSE for details.
+ */
+package ca.craigthomas.chip8java.emulator.components;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reads and writes the binary save state format. A save state is a header,
+ * followed by the state of the CPU, the screen and the memory, in that
+ * order. The header is the magic number, the format version and the memory
+ * size. All values are big-endian.
+ * <p>
+ * Settings such as the quirks and the number of instructions per frame are
+ * not part of the state, so a state restores into whatever settings the
+ * emulator has at the time. The exception is the clock - whether the
+ * virtual clock is used and how far the CPU is through the current frame
+ * are saved, so that a restored run completes its frames, and decrements
+ * its timers, on the same instructions as the run that was saved.
+ * <p>
+ * Version 2 added the clock state to the end of the CPU state.
+ */
+final class SaveState
+{
+    // Identifies a save state - "C8SS" in ASCII
+    static final int MAGIC = 0x43385353;
+
+    // The version of the format written by save
+    static final short VERSION = 2;
+
+    // The number of bytes in the header
+    static final int HEADER_BYTES = 4 + 2 + 4;
+
+    private SaveState() {
+    }
+
+    /**
+     * Returns the size of a save state for a machine with the specified
+     * amount of memory.
+     *
+     * @param memorySize the size of the memory in bytes
+     * @return the size of the save state in bytes
+     */
+    static int getSize(int memorySize) {
+        return HEADER_BYTES + CentralProcessingUnit.STATE_BYTES + Screen.STATE_BYTES + memorySize;
+    }
+
+    /**
+     * Returns the memory size of the machine a save state was saved from.
+     *
+     * @param state the save state
+     * @return the size of the memory in bytes
+     * @throws IllegalArgumentException if the array is not a save state
+     */
+    static int getMemorySize(byte[] state) {
+        ByteBuffer buffer = ByteBuffer.wrap(state);
+        if ((state.length < HEADER_BYTES) || (buffer.getInt() != MAGIC)) {
+            throw new IllegalArgumentException("not a save state");
+        }
+        return buffer.getInt(HEADER_BYTES - 4);
+    }
+
+    /**
+     * Writes the state of a machine.
+     *
+     * @param cpu the CPU of the machine
+     * @param screen the screen of the machine
+     * @param memory the memory of the machine
+     * @return the save state
+     */
+    static byte[] save(CentralProcessingUnit cpu, Screen screen, Memory memory) {
+        byte[] state = new byte[getSize(memory.getSize())];
+        save(cpu, screen, memory, state);
+        return state;
+    }
+
+    /**
+     * Writes the state of a machine into an existing array, which must be
+     * exactly the size of a save state for the machine.
+     *
+     * @param cpu the CPU of the machine
+     * @param screen the screen of the machine
+     * @param memory the memory of the machine
+     * @param state the array to write the save state to
+     * @throws IllegalArgumentException if the array is the wrong size
+     */
+    static void save(CentralProcessingUnit cpu, Screen screen, Memory memory, byte[] state) {
+        if (state.length != getSize(memory.getSize())) {
+            throw new IllegalArgumentException("save state is " + state.length + " bytes, expected " +
+                    getSize(memory.getSize()));
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(state);
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        buffer.putInt(memory.getSize());
+        cpu.writeState(buffer);
+        screen.writeState(buffer);
+        memory.writeState(buffer);
+    }
+
+    /**
+     * Restores the state of a machine. The state is checked before anything
+     * is changed, so a bad state leaves the machine as it was.
+     *
+     * @param state the save state to restore
+     * @param cpu the CPU of the machine
+     * @param screen the screen of the machine
+     * @param memory the memory of the machine
+     * @throws IllegalArgumentException if the state is not a save state for this machine
+     */
+    static void restore(byte[] state, CentralProcessingUnit cpu, Screen screen, Memory memory) {
+        ByteBuffer buffer = ByteBuffer.wrap(state);
+        if ((state.length < HEADER_BYTES) || (buffer.getInt() != MAGIC)) {
+            throw new IllegalArgumentException("not a save state");
+        }
+
+        short version = buffer.getShort();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("unsupported save state version " + version);
+        }
+
+        int memorySize = buffer.getInt();
+        if (memorySize != memory.getSize()) {
+            throw new IllegalArgumentException("save state is for " + memorySize + " bytes of memory, not " +
+                    memory.getSize());
+        }
+
+        if (state.length != getSize(memorySize)) {
+            throw new IllegalArgumentException("save state is " + state.length + " bytes, expected " +
+                    getSize(memorySize));
+        }
+
+        CentralProcessingUnit.checkState(buffer);
+        cpu.readState(buffer);
+        screen.readState(buffer);
+        memory.readState(buffer);
+    }
+}
@@ -6,13 +6,29 @@ package ca.craigthomas.chip8java.emulator.components;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.util.Arrays;
 
 /**
  * A class to emulate a Chip 8 Screen. The original Chip 8 screen was 64 x 32.
- * This class creates a simple AWT canvas with a single back buffer to store the
- * current state of the Chip 8 screen. Two colors are used on the Chip 8 - the
- * <code>foreColor</code> and the <code>backColor</code>. The former is used
- * when turning pixels on, while the latter is used to turn pixels off.
+ * Four colors are used - one for pixels that are off, one for each
+ * bitplane, and one for pixels that are on in both bitplanes.
+ * <p>
+ * The true state of the screen is kept in two bit-packed bitplanes, each
+ * storing one bit per pixel at the full 128 x 64 resolution. In normal mode,
+ * each Chip 8 pixel occupies a 2 x 2 block of bits.
+ * <p>
+ * The back buffer is only used as a render target. It is created the first
+ * time it is requested, and redrawn from the bitplanes whenever it is
+ * requested after the screen contents have changed. Changes are tracked a
+ * row at a time, so only the rows of the back buffer that have changed are
+ * redrawn. A screen that is never asked for its back buffer (for example,
+ * when running headless) does not need a display or any imaging resources.
+ * <p>
+ * A screen must only be used by one thread at a time. To draw it on another
+ * thread, hand over a copy made with copyTo.
  *
  * @author Craig Thomas
  */
@@ -24,20 +40,68 @@ public class Screen
     public static final int SCREEN_MODE_NORMAL = 0;
     public static final int SCREEN_MODE_EXTENDED = 1;
 
+    // The number of 64-bit words used to store a single row of a bitplane
+    protected static final int WORDS_PER_ROW = WIDTH / 64;
+
+    // The number of 64-bit words used to store both bitplanes, see copyBitplanes
+    public static final int BITPLANE_WORDS = 2 * HEIGHT * WORDS_PER_ROW;
+
+    // The number of bytes the screen takes up in a save state
+    static final int STATE_BYTES = 1 + BITPLANE_WORDS * Long.BYTES;
+
+    // A dirty row mask with every row set
+    private static final long ALL_ROWS = -1L;
+
+    // Mask selecting the left-most bit of every 2 x 2 pixel block in a word
+    private static final long BLOCK_LEFT_BITS = 0xAAAAAAAAAAAAAAAAL;
+
+    // Maps a sprite byte to a 16-bit value with every bit doubled
+    private static final int[] DOUBLED_BITS = new int[256];
+
+    static {
+        for (int value = 0; value < 256; value++) {
+            int doubled = 0;
+            for (int bit = 0; bit < 8; bit++) {
+                if ((value & (1 << bit)) != 0) {
+                    doubled |= 3 << (bit * 2);
+                }
+            }
+            DOUBLED_BITS[value] = doubled;
+        }
+    }
+
+    // The default RGB values for the bitplane colors
+    public static final int DEFAULT_COLOR_0 = 0x000000;
+    public static final int DEFAULT_COLOR_1 = 0xFF33CC;
+    public static final int DEFAULT_COLOR_2 = 0x33CCFF;
+    public static final int DEFAULT_COLOR_3 = 0xFFFFFF;
+
     private final int scale;
 
     // The current screen mode
     private int screenMode;
 
-    // The colors used for drawing on bitplanes
-    private final Color color0;
-    private final Color color1;
-    private final Color color2;
-    private final Color color3;
+    // The opaque ARGB values of the bitplane colors, indexed by bitplane
+    private final int[] palette;
+
+    // The pixel state of bitplanes 1 and 2, one bit per pixel, leftmost pixel in the high bit
+    protected final long[][] bitplanes;
+
+    // The bitplanes selected by each bitplane number, indexed by bitplane number
+    private final long[][][] planeSelections;
 
-    // Create a back buffer to store image information
+    // The hash of the contents of bitplanes 1 and 2, see getFrameHash
+    private final long[] planeHashes = new long[2];
+
+    // Create a back buffer to render the bitplanes into
     protected BufferedImage backBuffer;
 
+    // One row of the bitplanes scaled up to scale lines of pixels, used when rendering the back buffer
+    private int[] renderBlock;
+
+    // The rows of the bitplanes changed since the back buffer was last rendered, one bit per row
+    private long dirtyRows = ALL_ROWS;
+
     /**
      * A constructor for a Chip8Screen. This is a convenience constructor that
      * will fill in default values for the scale and bitplane colors.
@@ -53,7 +117,7 @@ public class Screen
      * @param scale The scale factor for the screen
      */
     public Screen(int scale) {
-        this(scale, Color.black, Color.decode("#FF33CC"), Color.decode("#33CCFF"), Color.white);
+        this(scale, DEFAULT_COLOR_0, DEFAULT_COLOR_1, DEFAULT_COLOR_2, DEFAULT_COLOR_3);
     }
 
     /**
@@ -67,21 +131,42 @@ public class Screen
      * @param color3 the color for bitplane 3
      */
     public Screen(int scale, Color color0, Color color1, Color color2, Color color3) {
+        this(scale, color0.getRGB(), color1.getRGB(), color2.getRGB(), color3.getRGB());
+    }
+
+    /**
+     * A constructor for a Chip8Screen that takes the bitplane colors as RGB
+     * values, so that no AWT color objects are needed to build a screen.
+     *
+     * @param scale the scale factor for the new screen
+     * @param color0 the RGB value for bitplane 0
+     * @param color1 the RGB value for bitplane 1
+     * @param color2 the RGB value for bitplane 2
+     * @param color3 the RGB value for bitplane 3
+     */
+    public Screen(int scale, int color0, int color1, int color2, int color3) {
+        if (scale < 1) {
+            throw new IllegalArgumentException("scale must be at least 1");
+        }
         this.scale = scale;
-        this.color0 = color0;
-        this.color1 = color1;
-        this.color2 = color2;
-        this.color3 = color3;
+        this.palette = new int[]{
+                0xFF000000 | color0, 0xFF000000 | color1, 0xFF000000 | color2, 0xFF000000 | color3
+        };
+        this.bitplanes = new long[2][HEIGHT * WORDS_PER_ROW];
+        this.planeSelections = new long[][][]{{}, {bitplanes[0]}, {bitplanes[1]}, bitplanes};
         this.screenMode = SCREEN_MODE_NORMAL;
-        this.createBackBuffer();
     }
 
     /**
      * Generates the BufferedImage that will act as the back buffer for the
-     * screen. Flags the Screen state as having changed.
+     * screen. The image stores pixels as packed RGB ints, which is the same
+     * layout as the palette, so rendering never converts between formats.
+     * Flags the Screen state as having changed.
      */
     private void createBackBuffer() {
-        backBuffer = new BufferedImage(WIDTH * scale, HEIGHT * scale, BufferedImage.TYPE_4BYTE_ABGR);
+        backBuffer = new BufferedImage(WIDTH * scale, HEIGHT * scale, BufferedImage.TYPE_INT_RGB);
+        renderBlock = new int[WIDTH * scale * scale];
+        markDirty(ALL_ROWS);
     }
 
     /**
@@ -90,45 +175,68 @@ public class Screen
      * @param bitplane The bitplane color to return
      */
     Color getBitplaneColor(int bitplane) {
-        if (bitplane == 0) {
-            return color0;
-        }
-
-        if (bitplane == 1) {
-            return color1;
+        if (bitplane < 0 || bitplane > 2) {
+            return new Color(palette[3]);
         }
+        return new Color(palette[bitplane]);
+    }
 
-        if (bitplane == 2) {
-            return color2;
+    /**
+     * Low level routine to turn a block of bits on or off in a single
+     * bitplane. Takes into account the screen mode, so that a pixel in normal
+     * mode occupies a 2 x 2 block of bits. The top-left corner of the screen
+     * is at coordinate (0, 0).
+     *
+     * @param x      The x coordinate of the pixel
+     * @param y      The y coordinate of the pixel
+     * @param turnOn Turns the pixel on if <code>true</code>, off otherwise
+     * @param planeIndex The bitplane storage to modify, 0 or 1
+     */
+    private void drawPixelPrimitive(int x, int y, boolean turnOn, int planeIndex) {
+        long[] plane = bitplanes[planeIndex];
+        int modeScale = (screenMode == SCREEN_MODE_EXTENDED) ? 1 : 2;
+        for (int yOffset = 0; yOffset < modeScale; yOffset++) {
+            for (int xOffset = 0; xOffset < modeScale; xOffset++) {
+                int xCoord = x * modeScale + xOffset;
+                int word = (y * modeScale + yOffset) * WORDS_PER_ROW + (xCoord >>> 6);
+                long mask = Long.MIN_VALUE >>> (xCoord & 63);
+                writeWord(planeIndex, word, turnOn ? (plane[word] | mask) : (plane[word] & ~mask));
+            }
         }
+        markDirty(((1L << modeScale) - 1) << (y * modeScale));
+    }
 
-        return color3;
+    /**
+     * Flags rows of the bitplanes as changed, so that they are redrawn the
+     * next time the back buffer is rendered.
+     *
+     * @param rows the rows that changed, one bit per row with row 0 in the lowest bit
+     */
+    private void markDirty(long rows) {
+        dirtyRows |= rows;
     }
 
     /**
-     * Low level routine to draw a pixel to the screen. Takes into account the
-     * scaling factor applied to the screen. The top-left corner of the screen
-     * is at coordinate (0, 0).
+     * Returns <code>true</code> if the pixel at the location (x, y) is
+     * currently on. In normal mode, the top-left bit of the pixel block is
+     * checked.
      *
-     * @param x     The x coordinate to place the pixel
-     * @param y     The y coordinate to place the pixel
-     * @param color The Color of the pixel to draw
+     * @param x     The x coordinate of the pixel to check
+     * @param y     The y coordinate of the pixel to check
+     * @param plane The bitplane storage to check
+     * @return Returns <code>true</code> if the pixel (x, y) is turned on
      */
-    private void drawPixelPrimitive(int x, int y, Color color) {
-        int mode_scale = (screenMode == SCREEN_MODE_EXTENDED) ? 1 : 2;
-        Graphics2D graphics = backBuffer.createGraphics();
-        graphics.setColor(color);
-        graphics.fillRect(
-                x * scale * mode_scale,
-                y * scale * mode_scale,
-                scale * mode_scale,
-                scale * mode_scale);
-        graphics.dispose();
+    private boolean getPixelPrimitive(int x, int y, long[] plane) {
+        int modeScale = (screenMode == SCREEN_MODE_EXTENDED) ? 1 : 2;
+        int xCoord = x * modeScale;
+        int word = (y * modeScale) * WORDS_PER_ROW + (xCoord >>> 6);
+        return (plane[word] & (Long.MIN_VALUE >>> (xCoord & 63))) != 0;
     }
 
     /**
      * Returns <code>true</code> if the pixel at the location (x, y) is
-     * currently on.
+     * currently on. When checking bitplane 3, the pixel must be on in
+     * both bitplanes.
      *
      * @param x The x coordinate of the pixel to check
      * @param y The y coordinate of the pixel to check
@@ -140,12 +248,11 @@ public class Screen
             return false;
         }
 
-        Color bitplaneColor = getBitplaneColor(bitplane);
-        int modeScale = (screenMode == SCREEN_MODE_EXTENDED) ? 1 : 2;
-        int xScale = x * modeScale * scale;
-        int yScale = y * modeScale * scale;
-        Color color = new Color(backBuffer.getRGB(xScale, yScale), true);
-        return color.equals(bitplaneColor) || color.equals(color3);
+        if (bitplane == 3) {
+            return getPixelPrimitive(x, y, bitplanes[0]) && getPixelPrimitive(x, y, bitplanes[1]);
+        }
+
+        return getPixelPrimitive(x, y, bitplanes[bitplane - 1]);
     }
 
     /**
@@ -161,21 +268,96 @@ public class Screen
             return;
         }
 
-        int otherBitplane = (bitplane == 1) ? 2 : 1;
-        boolean otherPixelOn = getPixel(x, y, otherBitplane);
+        if ((bitplane & 1) != 0) {
+            drawPixelPrimitive(x, y, turnOn, 0);
+        }
+
+        if ((bitplane & 2) != 0) {
+            drawPixelPrimitive(x, y, turnOn, 1);
+        }
+    }
 
-        Color drawColor = getBitplaneColor(0);
+    /**
+     * XORs a single row of sprite data onto the specified bitplane. The row is
+     * shifted into a 128-bit lane covering a full row of the bitplane, wrapping
+     * around the right edge of the screen, and combined with the bitplane a
+     * word at a time. In normal mode, the row is doubled in width and applied
+     * to both rows of bits that make up the Chip 8 pixel row.
+     *
+     * @param x the x coordinate of the left-most sprite pixel
+     * @param y the y coordinate of the sprite row
+     * @param spriteRow the sprite pixels, with the left-most pixel in the highest bit
+     * @param spriteWidth the number of pixels in the sprite row (1 - 16)
+     * @param bitplane the bitplane to draw to (1 or 2)
+     * @return the number of pixels that were turned off by the sprite row
+     */
+    public int xorSpriteRow(int x, int y, int spriteRow, int spriteWidth, int bitplane) {
+        if (bitplane == 0) {
+            return 0;
+        }
 
-        if (turnOn && otherPixelOn) {
-            drawColor = getBitplaneColor(3);
+        int planeIndex = bitplane - 1;
+        long[] plane = bitplanes[planeIndex];
+
+        if (screenMode == SCREEN_MODE_EXTENDED) {
+            markDirty(1L << y);
+            long lane = (long) spriteRow << (64 - spriteWidth);
+            int word = y * WORDS_PER_ROW;
+            long left = laneWord(lane, x, 0);
+            long right = laneWord(lane, x, 1);
+            int collisions = Long.bitCount(plane[word] & left) + Long.bitCount(plane[word + 1] & right);
+            writeWord(planeIndex, word, plane[word] ^ left);
+            writeWord(planeIndex, word + 1, plane[word + 1] ^ right);
+            return collisions;
         }
-        if (turnOn && !otherPixelOn) {
-            drawColor = getBitplaneColor(bitplane);
+
+        long lane = (long) doubleBits(spriteRow, spriteWidth) << (64 - spriteWidth * 2);
+        long coverage = -1L << (64 - spriteWidth * 2);
+        int top = y * 2 * WORDS_PER_ROW;
+        markDirty(3L << (y * 2));
+        int collisions = 0;
+        for (int wordOffset = 0; wordOffset < WORDS_PER_ROW; wordOffset++) {
+            long sprite = laneWord(lane, x * 2, wordOffset);
+            long mask = laneWord(coverage, x * 2, wordOffset);
+            long current = plane[top + wordOffset] & mask & BLOCK_LEFT_BITS;
+            collisions += Long.bitCount(current & sprite);
+            long result = (current | (current >>> 1)) ^ sprite;
+            writeWord(planeIndex, top + wordOffset, (plane[top + wordOffset] & ~mask) | result);
+            writeWord(planeIndex, top + WORDS_PER_ROW + wordOffset,
+                    (plane[top + WORDS_PER_ROW + wordOffset] & ~mask) | result);
         }
-        if (!turnOn && otherPixelOn) {
-            drawColor = getBitplaneColor(otherBitplane);
+        return collisions;
+    }
+
+    /**
+     * Returns one word of a 128-bit lane holding the left-aligned pixels
+     * rotated right by the specified number of bits. Pixels shifted past the
+     * right edge of the row wrap around to the left edge.
+     *
+     * @param pixels the pixels to place, left-aligned in a word
+     * @param x the number of bits to rotate the pixels right by (0 - 127)
+     * @param wordOffset which word of the lane to return (0 or 1)
+     * @return the requested word of the lane
+     */
+    private static long laneWord(long pixels, int x, int wordOffset) {
+        int shift = x & 63;
+        long first = pixels >>> shift;
+        long second = (shift == 0) ? 0 : pixels << (64 - shift);
+        return ((x >>> 6) == wordOffset) ? first : second;
+    }
+
+    /**
+     * Doubles every bit in a sprite row, so that each pixel covers two bits.
+     *
+     * @param spriteRow the sprite row to double
+     * @param spriteWidth the number of pixels in the sprite row (1 - 16)
+     * @return the sprite row with every bit doubled
+     */
+    private static int doubleBits(int spriteRow, int spriteWidth) {
+        if (spriteWidth <= 8) {
+            return DOUBLED_BITS[spriteRow & 0xFF];
         }
-        drawPixelPrimitive(x, y, drawColor);
+        return (DOUBLED_BITS[(spriteRow >> 8) & 0xFF] << 16) | DOUBLED_BITS[spriteRow & 0xFF];
     }
 
     /**
@@ -189,234 +371,178 @@ public class Screen
             return;
         }
 
-        if (bitplane == 3) {
-            Graphics2D graphics = backBuffer.createGraphics();
-            graphics.setColor(getBitplaneColor(0));
-            graphics.fillRect(0, 0, WIDTH * scale, HEIGHT * scale);
-            graphics.dispose();
-            return;
+        if ((bitplane & 1) != 0) {
+            Arrays.fill(bitplanes[0], 0L);
+            planeHashes[0] = 0;
         }
 
-        int maxX = getWidth();
-        int maxY = getHeight();
-        for (int x = 0; x < maxX; x++) {
-            for (int y = 0; y < maxY; y++) {
-                drawPixel(x, y, false, bitplane);
-            }
+        if ((bitplane & 2) != 0) {
+            Arrays.fill(bitplanes[1], 0L);
+            planeHashes[1] = 0;
         }
+        markDirty(ALL_ROWS);
     }
 
     /**
-     * Scrolls the screen 4 pixels to the right.
+     * Scrolls the screen 4 pixels to the right. Each row of the selected
+     * bitplanes is shifted right a word at a time, and the pixels shifted
+     * in on the left are turned off.
      *
      * @param bitplane the bitplane to scroll
      */
     public void scrollRight(int bitplane) {
-        if (bitplane == 0) {
-            return;
-        }
-
-        int modeScale = (screenMode == SCREEN_MODE_EXTENDED) ? 1 : 2;
-
-        int width = WIDTH * scale;
-        int height = HEIGHT * scale;
-        int right = scale * 4 * modeScale;
-
-        if (bitplane == 3) {
-            BufferedImage bufferedImage = copyImage(backBuffer.getSubimage(0, 0, width, height));
-            Graphics2D graphics = backBuffer.createGraphics();
-            graphics.setColor(color0);
-            graphics.fillRect(0, 0, width, height);
-            graphics.drawImage(bufferedImage, right, 0, null);
-            graphics.dispose();
-            return;
-        }
-
-        int maxX = getWidth();
-        int maxY = getHeight();
-
-        // Blank out any pixels in the right vertical lines that we will copy to
-        for (int x = maxX - 4; x < maxX; x++) {
-            for (int y = 0; y < maxY; y++) {
-                drawPixel(x, y, false, bitplane);
-            }
-        }
-
-        // Start copying pixels from the left to the right and shift by 4 pixels
-        for (int x = maxX - 4 - 1; x > -1; x--) {
-            for (int y = 0; y < maxY; y++) {
-                boolean currentPixel = getPixel(x, y, bitplane);
-                drawPixel(x, y, false, bitplane);
-                drawPixel(x + 4, y, currentPixel, bitplane);
-            }
-        }
-
-        // Blank out any pixels in the left 4 vertical lines
-        for (int x = 0; x < 4; x++) {
-            for (int y = 0; y < maxY; y++) {
-                drawPixel(x, y, false, bitplane);
+        int shift = 4 * getModeScale();
+        for (long[] plane : getPlanes(bitplane)) {
+            for (int row = 0; row < plane.length; row += WORDS_PER_ROW) {
+                plane[row + 1] = (plane[row + 1] >>> shift) | (plane[row] << (64 - shift));
+                plane[row] >>>= shift;
             }
         }
+        rehash();
+        markDirty(ALL_ROWS);
     }
 
     /**
-     * Scrolls the screen 4 pixels to the left.
+     * Scrolls the screen 4 pixels to the left. Each row of the selected
+     * bitplanes is shifted left a word at a time, and the pixels shifted in
+     * on the right are turned off.
      *
      * @param bitplane the bitplane to scroll
      */
     public void scrollLeft(int bitplane) {
-        if (bitplane == 0) {
-            return;
-        }
-
-        int maxX = getWidth();
-        int maxY = getHeight();
-        int modeScale = (screenMode == SCREEN_MODE_EXTENDED) ? 1 : 2;
-        int screenWidth = maxX * modeScale * scale;
-        int screenHeight = maxY * modeScale * scale;
-
-        // If bitplane 3 is selected, we can just do a fast copy instead of pixel by pixel
-        if (bitplane == 3) {
-            int left = -(scale * 4 * modeScale);
-            BufferedImage bufferedImage = copyImage(backBuffer.getSubimage(0, 0, screenWidth, screenHeight));
-            Graphics2D graphics = backBuffer.createGraphics();
-            graphics.setColor(color0);
-            graphics.fillRect(0, 0, screenWidth, screenHeight);
-            graphics.drawImage(bufferedImage, left, 0, null);
-            graphics.dispose();
-            return;
-        }
-
-        // Blank out any pixels in the left 4 vertical lines we will copy to
-        for (int x = 0; x < 4; x++) {
-            for (int y = 0; y < maxY; y++) {
-                drawPixel(x, y, false, bitplane);
-            }
-        }
-
-        // Start copying pixels from the right to the left and shift by 4 pixels
-        for (int x = 4; x < maxX; x++) {
-            for (int y = 0; y < maxY; y++) {
-                boolean currentPixel = getPixel(x, y, bitplane);
-                drawPixel(x, y, false, bitplane);
-                drawPixel(x - 4, y, currentPixel, bitplane);
-            }
-        }
-
-        // Blank out any pixels in the right 4 vertical columns
-        for (int x = maxX - 4; x < maxX; x++) {
-            for (int y = 0; y < maxY; y++) {
-                drawPixel(x, y, false, bitplane);
+        int shift = 4 * getModeScale();
+        for (long[] plane : getPlanes(bitplane)) {
+            for (int row = 0; row < plane.length; row += WORDS_PER_ROW) {
+                plane[row] = (plane[row] << shift) | (plane[row + 1] >>> (64 - shift));
+                plane[row + 1] <<= shift;
             }
         }
+        rehash();
+        markDirty(ALL_ROWS);
     }
 
     /**
-     * Scrolls the screen down by the specified number of pixels.
+     * Scrolls the screen down by the specified number of pixels. The rows of
+     * the selected bitplanes are moved down with a single array copy, and
+     * the rows left at the top are turned off.
      *
      * @param numPixels the number of pixels to scroll down
      * @param bitplane the bitplane to scroll
      */
     public void scrollDown(int numPixels, int bitplane) {
-        if (bitplane == 0) {
-            return;
-        }
-
-        int width = this.getWidth() * scale;
-        int height = this.getHeight() * scale;
-        int modeScale = (screenMode == SCREEN_MODE_EXTENDED) ? 1 : 2;
-        int down = numPixels * scale * modeScale;
-
-        // If bitplane 3 is selected, we can just do a fast copy instead of pixel by pixel
-        if (bitplane == 3) {
-            BufferedImage bufferedImage = copyImage(backBuffer.getSubimage(0, 0, width, height));
-            Graphics2D graphics = backBuffer.createGraphics();
-            graphics.setColor(color0);
-            graphics.fillRect(0, 0, width, height);
-            graphics.drawImage(bufferedImage, 0, down, null);
-            graphics.dispose();
-            return;
-        }
-
-        int maxX = getWidth();
-        int maxY = getHeight();
-
-        // Blank out any pixels in the bottom numPixels that we will copy to
-        for (int x = 0; x < maxX; x++) {
-            for (int y = maxY - numPixels; y < maxY; y++) {
-                drawPixel(x, y, false, bitplane);
-            }
-        }
-
-        // Start copying pixels from the top to the bottom and shift by numPixels
-        for (int x = 0; x < maxX; x++) {
-            for (int y = maxY - numPixels - 1; y > -1; y--) {
-                boolean currentPixel = getPixel(x, y, bitplane);
-                drawPixel(x, y, false, bitplane);
-                drawPixel(x, y + numPixels, currentPixel, bitplane);
-            }
-        }
-
-        // Blank out any pixels in the first numPixels horizontal lines
-        for (int x = 0; x < maxX; x++) {
-            for (int y = 0; y < numPixels; y++) {
-                drawPixel(x, y, false, bitplane);
-            }
+        int words = Math.min(numPixels * getModeScale(), HEIGHT) * WORDS_PER_ROW;
+        for (long[] plane : getPlanes(bitplane)) {
+            System.arraycopy(plane, 0, plane, words, plane.length - words);
+            Arrays.fill(plane, 0, words, 0L);
         }
+        rehash();
+        markDirty(ALL_ROWS);
     }
 
     /**
-     * Scrolls the screen up by numPixels.
+     * Scrolls the screen up by numPixels. The rows of the selected bitplanes
+     * are moved up with a single array copy, and the rows left at the bottom
+     * are turned off.
      *
      * @param numPixels the number of pixels to scroll up
      * @param bitplane the bitplane to scroll
      */
     public void scrollUp(int numPixels, int bitplane) {
-        if (bitplane == 0) {
-            return;
+        int words = Math.min(numPixels * getModeScale(), HEIGHT) * WORDS_PER_ROW;
+        for (long[] plane : getPlanes(bitplane)) {
+            System.arraycopy(plane, words, plane, 0, plane.length - words);
+            Arrays.fill(plane, plane.length - words, plane.length, 0L);
         }
+        rehash();
+        markDirty(ALL_ROWS);
+    }
 
-        int modeScale = (screenMode == SCREEN_MODE_EXTENDED) ? 1 : 2;
-        int actualPixels = numPixels * modeScale * scale;
-        int width = this.getWidth() * scale;
-        int height = this.getHeight() * scale;
-
-        // If bitplane 3 is selected, we can just do a fast copy instead of pixel by pixel
-        if (bitplane == 3) {
-            BufferedImage bufferedImage = copyImage(backBuffer.getSubimage(0, actualPixels, width, height - actualPixels));
-            Graphics2D graphics = backBuffer.createGraphics();
-            graphics.setColor(color0);
-            graphics.fillRect(0, 0, width, height);
-            graphics.drawImage(bufferedImage, 0, 0, null);
-            graphics.dispose();
+    /**
+     * Sets a word of a bitplane, updating the hash of the bitplane to match.
+     *
+     * @param planeIndex the bitplane storage to modify, 0 or 1
+     * @param word the index of the word in the bitplane
+     * @param value the new value of the word
+     */
+    private void writeWord(int planeIndex, int word, long value) {
+        long[] plane = bitplanes[planeIndex];
+        if (plane[word] == value) {
             return;
         }
+        planeHashes[planeIndex] ^= hashWord(planeIndex, word, plane[word]) ^ hashWord(planeIndex, word, value);
+        plane[word] = value;
+    }
 
-        int maxX = getWidth();
-        int maxY = getHeight();
-
-        // Blank out any pixels in the top numPixels that we will copy to
-        for (int x = 0; x < maxX; x++) {
-            for (int y = 0; y < numPixels; y++) {
-                drawPixel(x, y, false, bitplane);
+    /**
+     * Recomputes the hashes of both bitplanes from scratch, after changes
+     * that touch most of their words.
+     */
+    private void rehash() {
+        for (int planeIndex = 0; planeIndex < 2; planeIndex++) {
+            long hash = 0;
+            long[] plane = bitplanes[planeIndex];
+            for (int word = 0; word < plane.length; word++) {
+                hash ^= hashWord(planeIndex, word, plane[word]);
             }
+            planeHashes[planeIndex] = hash;
         }
+    }
 
-        // Start copying pixels from the top to the bottom and shift up by numPixels
-        for (int x = 0; x < maxX; x++) {
-            for (int y = numPixels; y < maxY; y++) {
-                boolean currentPixel = getPixel(x, y, bitplane);
-                drawPixel(x, y, false, bitplane);
-                drawPixel(x, y - numPixels, currentPixel, bitplane);
-            }
+    /**
+     * Returns what a single word of a bitplane contributes to the frame
+     * hash - the value of the word mixed with its position. Words that are
+     * all off contribute nothing, so a clear screen hashes to 0.
+     *
+     * @param planeIndex the bitplane storage the word is in, 0 or 1
+     * @param word the index of the word in the bitplane
+     * @param value the value of the word
+     * @return the hash of the word
+     */
+    private static long hashWord(int planeIndex, int word, long value) {
+        if (value == 0) {
+            return 0;
         }
+        long hash = value + (planeIndex * HEIGHT * WORDS_PER_ROW + word + 1) * 0x9E3779B97F4A7C15L;
+        hash = (hash ^ (hash >>> 33)) * 0xFF51AFD7ED558CCDL;
+        hash = (hash ^ (hash >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return hash ^ (hash >>> 33);
+    }
 
-        // Blank out any piels in the bottom numPixels
-        for (int x = 0; x < maxX; x++) {
-            for (int y = maxY - numPixels; y < maxY; y++) {
-                drawPixel(x, y, false, bitplane);
-            }
-        }
+    /**
+     * Returns a 64-bit hash of the contents of both bitplanes. Screens with
+     * the same pixels on always have the same hash, however they were
+     * drawn, and screens that differ almost never do, so the hash can stand
+     * in for the whole screen - for example, to tell whether a frame is the
+     * same as the one before it, or to check the screen in a test without
+     * comparing every pixel. The hash is kept up to date as the screen is
+     * drawn, so reading it is free. The screen mode is not part of the hash.
+     *
+     * @return the hash of the screen contents
+     */
+    public long getFrameHash() {
+        return planeHashes[0] ^ planeHashes[1];
+    }
+
+    /**
+     * Returns the storage of the bitplanes selected by a bitplane number -
+     * none for bitplane 0, one for bitplanes 1 and 2, and both for bitplane 3.
+     * Only the low two bits of the number are used, the same as Fn01.
+     *
+     * @param bitplane the bitplane number
+     * @return the selected bitplanes
+     */
+    private long[][] getPlanes(int bitplane) {
+        return planeSelections[bitplane & 0x3];
+    }
+
+    /**
+     * Returns the number of bits each pixel covers in each direction in the
+     * current screen mode.
+     *
+     * @return 2 in normal mode, 1 in extended mode
+     */
+    private int getModeScale() {
+        return (screenMode == SCREEN_MODE_EXTENDED) ? 1 : 2;
     }
 
     /**
@@ -447,14 +573,163 @@ public class Screen
     }
 
     /**
-     * Returns the BufferedImage that has the contents of the screen.
+     * Returns the BufferedImage that has the contents of the screen. The
+     * back buffer is re-rendered from the bitplanes first if anything has
+     * changed since it was last requested.
      *
      * @return the backBuffer for the screen
      */
     public BufferedImage getBuffer() {
+        updateBuffer();
         return backBuffer;
     }
 
+    /**
+     * Renders the rows of the back buffer that have changed since it was
+     * last rendered, creating the back buffer first if needed. Returns which
+     * rows were rendered, so that callers copying the back buffer to the
+     * display can copy just those rows. Row y of the mask covers the scaled
+     * lines from y * scale up to (y + 1) * scale of the back buffer.
+     *
+     * @return the rows rendered, one bit per row with row 0 in the lowest bit
+     */
+    public long updateBuffer() {
+        if (backBuffer == null) {
+            createBackBuffer();
+        }
+        long rows = dirtyRows;
+        dirtyRows = 0;
+        if (rows != 0) {
+            renderBackBuffer(rows);
+        }
+        return rows;
+    }
+
+    /**
+     * Renders rows of the bitplanes into the back buffer. The first line of
+     * each row is built by looking up the color of every pixel in the
+     * palette, indexed by the pixel's bit in each bitplane, and writing it
+     * scale times. The line is then copied scale - 1 more times below
+     * itself, and the whole block is copied into the back buffer in one
+     * go. Copying through the raster, rather than writing to the array
+     * behind it directly, leaves the image free to be cached in video
+     * memory by Java 2D.
+     *
+     * @param rows the rows to render, one bit per row with row 0 in the lowest bit
+     */
+    private void renderBackBuffer(long rows) {
+        int scaledWidth = WIDTH * scale;
+        WritableRaster raster = backBuffer.getRaster();
+        while (rows != 0) {
+            int y = Long.numberOfTrailingZeros(rows);
+            rows &= rows - 1;
+
+            int pixel = 0;
+            for (int wordOffset = 0; wordOffset < WORDS_PER_ROW; wordOffset++) {
+                long plane1 = bitplanes[0][y * WORDS_PER_ROW + wordOffset];
+                long plane2 = bitplanes[1][y * WORDS_PER_ROW + wordOffset];
+                for (int shift = 63; shift >= 0; shift--) {
+                    int color = palette[(int) ((plane1 >>> shift) & 1) | ((int) ((plane2 >>> shift) & 1) << 1)];
+                    for (int repeat = 0; repeat < scale; repeat++) {
+                        renderBlock[pixel++] = color;
+                    }
+                }
+            }
+            for (int line = 1; line < scale; line++) {
+                System.arraycopy(renderBlock, 0, renderBlock, line * scaledWidth, scaledWidth);
+            }
+            raster.setDataElements(0, y * scale, scaledWidth, scale, renderBlock);
+        }
+    }
+
+    /**
+     * Copies the current contents of the screen into the specified array as
+     * ARGB values, one per pixel at the full 128 x 64 resolution and row by
+     * row from the top-left corner. In normal mode, each Chip 8 pixel fills a
+     * 2 x 2 block. No back buffer or other imaging resources are used.
+     *
+     * @param pixels the array to fill, at least WIDTH * HEIGHT long
+     */
+    public void copyPixels(int[] pixels) {
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int word = y * WORDS_PER_ROW + (x >>> 6);
+                int shift = 63 - (x & 63);
+                int colorIndex = (int) ((bitplanes[0][word] >>> shift) & 1) |
+                        (int) (((bitplanes[1][word] >>> shift) & 1) << 1);
+                pixels[y * WIDTH + x] = palette[colorIndex];
+            }
+        }
+    }
+
+    /**
+     * Copies the packed pixel state of both bitplanes into the specified
+     * array. Bitplane 1 comes first, then bitplane 2. Each is HEIGHT rows of
+     * WORDS_PER_ROW words, one bit per pixel at the full 128 x 64
+     * resolution, with the leftmost pixel of each word in its high bit.
+     *
+     * @param target the array to fill
+     * @param offset where in the array to start, which must leave room for BITPLANE_WORDS words
+     */
+    public void copyBitplanes(long[] target, int offset) {
+        int planeWords = HEIGHT * WORDS_PER_ROW;
+        System.arraycopy(bitplanes[0], 0, target, offset, planeWords);
+        System.arraycopy(bitplanes[1], 0, target, offset + planeWords, planeWords);
+    }
+
+    /**
+     * Copies the screen mode and both bitplanes to another screen. Only the
+     * rows that differ are flagged as changed in the other screen, so its
+     * back buffer redraws just those rows the next time it is rendered.
+     *
+     * @param target the screen to copy to
+     */
+    public void copyTo(Screen target) {
+        target.screenMode = screenMode;
+        long changedRows = 0;
+        for (int plane = 0; plane < 2; plane++) {
+            long[] source = bitplanes[plane];
+            long[] destination = target.bitplanes[plane];
+            for (int word = 0; word < source.length; word++) {
+                if (source[word] != destination[word]) {
+                    destination[word] = source[word];
+                    changedRows |= 1L << (word / WORDS_PER_ROW);
+                }
+            }
+        }
+        target.planeHashes[0] = planeHashes[0];
+        target.planeHashes[1] = planeHashes[1];
+        target.markDirty(changedRows);
+    }
+
+    /**
+     * Writes the screen mode and both bitplanes to a save state.
+     *
+     * @param buffer the buffer to write to
+     */
+    void writeState(ByteBuffer buffer) {
+        buffer.put((byte) screenMode);
+        LongBuffer words = buffer.asLongBuffer();
+        words.put(bitplanes[0]);
+        words.put(bitplanes[1]);
+        buffer.position(buffer.position() + BITPLANE_WORDS * Long.BYTES);
+    }
+
+    /**
+     * Reads the screen mode and both bitplanes from a save state.
+     *
+     * @param buffer the buffer to read from
+     */
+    void readState(ByteBuffer buffer) {
+        screenMode = buffer.get();
+        LongBuffer words = buffer.asLongBuffer();
+        words.get(bitplanes[0]);
+        words.get(bitplanes[1]);
+        buffer.position(buffer.position() + BITPLANE_WORDS * Long.BYTES);
+        rehash();
+        markDirty(ALL_ROWS);
+    }
+
     /**
      * Turns on the extended screen mode for the emulator (when operating
      * in Super Chip 8 mode). Flags the state of the emulator screen as
@@ -471,18 +746,4 @@ public class Screen
     public void setNormalScreenMode() {
         screenMode = SCREEN_MODE_NORMAL;
     }
-
-    /**
-     * Generates a copy of the original back buffer.
-     *
-     * @param source the source to copy from
-     * @return a BufferedImage that is a copy of the original source
-     */
-    private BufferedImage copyImage(BufferedImage source) {
-        BufferedImage bufferedImage = new BufferedImage(source.getWidth(), source.getHeight(), source.getType());
-        Graphics graphics = bufferedImage.getGraphics();
-        graphics.drawImage(source, 0, 0, null);
-        graphics.dispose();
-        return bufferedImage;
-    }
 }
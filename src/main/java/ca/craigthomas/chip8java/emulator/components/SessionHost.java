@@ -0,0 +1,231 @@
+/*
+ * Copyright (C) 2013-2025 Craig Thomas
+ * This project uses an MIT style license - see LICENSE for details.
+ */
+package ca.craigthomas.chip8java.emulator.components;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Runs many independent headless emulator sessions inside a single JVM.
+ * Sessions have no window, no timer threads and no Swing components - every
+ * session uses the virtual clock, and all of them share a single fork-join
+ * pool sized to the number of cores.
+ * <p>
+ * Sessions are run in rounds. Every round gives each running session a
+ * slice of the same number of frames, and the next round only starts once
+ * the slowest session has finished its slice, so no session can get more
+ * than one slice ahead of another. Slices are spread across the pool, so a
+ * busy session does not hold up the others within a round.
+ * <p>
+ * Memory use is bounded by the maximum number of sessions. A session with
+ * 4K of memory needs about 10K of heap, and one with 64K of memory about
+ * 70K, most of which is the memory itself.
+ */
+public class SessionHost implements AutoCloseable
+{
+    // The default number of frames each session runs per round
+    public static final int DEFAULT_SLICE_FRAMES = 1;
+
+    // Runs the session slices
+    private final ForkJoinPool pool;
+
+    // The maximum number of sessions the host holds at once
+    private final int maxSessions;
+
+    // The sessions held by the host
+    private final List<EmulatorSession> sessions = new ArrayList<>();
+
+    // The font loaded into every session, read once
+    private final byte[] font;
+
+    // The identifier of the next session created
+    private int nextId;
+
+    // The number of frames each session runs per round
+    private volatile int sliceFrames = DEFAULT_SLICE_FRAMES;
+
+    /**
+     * Creates a host with one worker thread per available core.
+     *
+     * @param maxSessions the maximum number of sessions to hold at once
+     */
+    public SessionHost(int maxSessions) {
+        this(Runtime.getRuntime().availableProcessors(), maxSessions);
+    }
+
+    /**
+     * Creates a host with the specified number of worker threads.
+     *
+     * @param parallelism the number of worker threads
+     * @param maxSessions the maximum number of sessions to hold at once
+     */
+    public SessionHost(int parallelism, int maxSessions) {
+        if (maxSessions < 1) {
+            throw new IllegalArgumentException("maxSessions must be at least 1");
+        }
+        this.pool = new ForkJoinPool(parallelism);
+        this.maxSessions = maxSessions;
+        this.font = EmulatorSession.readFont();
+    }
+
+    /**
+     * Creates a session with 4K of memory, the default number of
+     * instructions per second, and no quirks.
+     *
+     * @param rom the bytes of the ROM to run
+     * @return the new session
+     */
+    public EmulatorSession createSession(byte[] rom) {
+        return createSession(rom, CentralProcessingUnit.DEFAULT_MAX_TICKS, 0, true);
+    }
+
+    /**
+     * Creates a session that runs the specified ROM. The ROM bytes are copied
+     * by the session, so the array can be changed or reused afterwards.
+     *
+     * @param rom the bytes of the ROM to run
+     * @param maxTicks the maximum number of operations per second to execute
+     * @param quirkProfile the quirks to enable, see CentralProcessingUnit.setQuirkProfile
+     * @param memSize4k whether to set memory size to 4k
+     * @return the new session
+     */
+    public synchronized EmulatorSession createSession(byte[] rom, int maxTicks, int quirkProfile, boolean memSize4k) {
+        if (sessions.size() >= maxSessions) {
+            throw new IllegalStateException("host already holds " + maxSessions + " sessions");
+        }
+
+        EmulatorSession session = EmulatorSession.create(nextId, font, rom.clone(), maxTicks, quirkProfile, memSize4k);
+        nextId++;
+        sessions.add(session);
+        return session;
+    }
+
+    /**
+     * Removes a session from the host and stops it for good.
+     *
+     * @param session the session to remove
+     */
+    public synchronized void removeSession(EmulatorSession session) {
+        if (sessions.remove(session)) {
+            session.kill();
+        }
+    }
+
+    /**
+     * Returns the sessions held by the host, in the order they were created.
+     *
+     * @return a copy of the list of sessions
+     */
+    public synchronized List<EmulatorSession> getSessions() {
+        return new ArrayList<>(sessions);
+    }
+
+    /**
+     * Sets the number of frames each session runs per round. Longer slices
+     * have less scheduling overhead, shorter ones keep the sessions closer
+     * together.
+     *
+     * @param sliceFrames the number of frames per slice
+     */
+    public void setSliceFrames(int sliceFrames) {
+        if (sliceFrames < 1) {
+            throw new IllegalArgumentException("sliceFrames must be at least 1");
+        }
+        this.sliceFrames = sliceFrames;
+    }
+
+    /**
+     * Returns the number of frames each session runs per round.
+     *
+     * @return the number of frames per slice
+     */
+    public int getSliceFrames() {
+        return sliceFrames;
+    }
+
+    /**
+     * Runs every session that has not halted for the specified number of
+     * frames, a slice at a time, and waits for them to finish. Sessions that
+     * halt part way through simply drop out of the remaining rounds.
+     *
+     * @param count the number of frames to run each session for
+     * @return the total number of instructions executed by all sessions
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     * @throws Error if running a session threw an error, which is not kept by the session
+     */
+    public long runFrames(int count) throws InterruptedException {
+        List<EmulatorSession> running = getSessions();
+        long before = 0;
+        for (EmulatorSession session : running) {
+            before += session.getInstructions();
+        }
+
+        int slice = sliceFrames;
+        for (int done = 0; done < count; done += slice) {
+            int frames = Math.min(slice, count - done);
+            List<Callable<Void>> tasks = new ArrayList<>(running.size());
+            for (EmulatorSession session : running) {
+                if (!session.isHalted()) {
+                    tasks.add(() -> {
+                        session.run(frames);
+                        return null;
+                    });
+                }
+            }
+            if (tasks.isEmpty()) {
+                break;
+            }
+            invokeAll(pool, tasks);
+        }
+
+        long after = 0;
+        for (EmulatorSession session : running) {
+            after += session.getInstructions();
+        }
+        return after - before;
+    }
+
+    /**
+     * Runs every task on the pool and waits for all of them to finish. If
+     * any task failed, the exception it threw is then rethrown on the
+     * calling thread, so that a failure is never silently lost.
+     *
+     * @param pool the pool to run the tasks on
+     * @param tasks the tasks to run
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    static void invokeAll(ForkJoinPool pool, List<Callable<Void>> tasks) throws InterruptedException {
+        for (Future<Void> result : pool.invokeAll(tasks)) {
+            try {
+                result.get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new IllegalStateException(cause);
+            }
+        }
+    }
+
+    /**
+     * Stops every session and the worker threads.
+     */
+    @Override
+    public synchronized void close() {
+        for (EmulatorSession session : sessions) {
+            session.kill();
+        }
+        sessions.clear();
+        pool.shutdownNow();
+    }
+}
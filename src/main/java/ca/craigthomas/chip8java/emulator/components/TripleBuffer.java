@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2013-2025 Craig Thomas
+ * This project uses an MIT style license - see LICENSE for details.
+ */
+package ca.craigthomas.chip8java.emulator.components;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Hands the latest of a series of values from one producer thread to one
+ * consumer thread without either of them ever waiting for the other. Three
+ * slots are used. The producer owns the back slot and the consumer owns the
+ * front slot, and each is free to read and write its own slot at any time.
+ * The third slot holds the latest value published. Publishing swaps the back
+ * slot with the latest one, and acquiring swaps the front slot with the
+ * latest one if something new has been published since the last acquire.
+ * Both swaps are a single atomic exchange, which also makes everything the
+ * producer wrote to a slot visible to the consumer that acquires it.
+ * <p>
+ * If the producer publishes faster than the consumer acquires, the values
+ * in between are overwritten and the consumer only ever sees the latest.
+ *
+ * @param <T> the type of value held in each slot
+ */
+public class TripleBuffer<T>
+{
+    // Set in the shared state when the middle slot holds a value not yet acquired
+    private static final int FRESH = 4;
+
+    // Selects the slot index from the shared state
+    private static final int INDEX_MASK = 3;
+
+    // The three slots
+    private final T[] slots;
+
+    // The index of the middle slot, plus FRESH if it has not been acquired yet
+    private final AtomicInteger middle = new AtomicInteger(1);
+
+    // The index of the slot owned by the producer
+    private int back = 0;
+
+    // The index of the slot owned by the consumer
+    private int front = 2;
+
+    /**
+     * Creates a triple buffer, filling each of the three slots with a new
+     * value from the factory.
+     *
+     * @param factory creates the value held in each slot
+     */
+    @SuppressWarnings("unchecked")
+    public TripleBuffer(Supplier<T> factory) {
+        slots = (T[]) new Object[]{factory.get(), factory.get(), factory.get()};
+    }
+
+    /**
+     * Returns the slot owned by the producer, for it to fill with the next
+     * value to publish. Must only be called by the producer.
+     *
+     * @return the back slot
+     */
+    public T getBack() {
+        return slots[back];
+    }
+
+    /**
+     * Publishes the back slot as the latest value, and gives the producer a
+     * different slot to fill next. Never waits. Must only be called by the
+     * producer.
+     */
+    public void publish() {
+        back = middle.getAndSet(back | FRESH) & INDEX_MASK;
+    }
+
+    /**
+     * Takes the latest value published, if there is one that has not been
+     * acquired already. The value stays owned by the consumer until the next
+     * call to acquire. Never waits. Must only be called by the consumer.
+     *
+     * @return the latest value, or null if nothing new has been published
+     */
+    public T acquire() {
+        if ((middle.get() & FRESH) == 0) {
+            return null;
+        }
+        front = middle.getAndSet(front) & INDEX_MASK;
+        return slots[front];
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright (C) 2013-2025 Craig Thomas
+ * This project uses an MIT style license - see LICENSE for details.
+ */
+package ca.craigthomas.chip8java.emulator.components;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Steps a fixed number of copies of the same ROM in lock step, for training
+ * agents against Chip 8 games. Each call to step takes one action per
+ * session, runs every session for the same number of frames, and fills in
+ * an observation, a reward and a done flag for each one.
+ * <p>
+ * An action is a mask of the Chip 8 keys held down for the step, with bit n
+ * set if key n is pressed. An observation is the packed bitplanes of the
+ * session screen, BITPLANE_WORDS words laid out as described in
+ * Screen.copyBitplanes. The observations of all the sessions share a single
+ * array that is allocated once and overwritten by every step, with the
+ * observation for session i starting at i * Screen.BITPLANE_WORDS.
+ * <p>
+ * A session is done once its ROM exits or a step fails. It is restarted
+ * straight away, so the observation returned alongside a done flag is the
+ * first one of the next episode.
+ * <p>
+ * The sessions are split into one contiguous group per worker thread, and
+ * each worker steps its whole group, so a step costs a single hand off per
+ * thread no matter how many sessions there are.
+ */
+public class VectorEnvironment implements AutoCloseable
+{
+    // The sessions being stepped
+    private final EmulatorSession[] sessions;
+
+    // The number of frames each session runs per step
+    private final int framesPerStep;
+
+    // Computes the reward for each session, may be null
+    private final RewardFunction rewardFunction;
+
+    // The packed bitplanes of every session, overwritten by each step
+    private final long[] observations;
+
+    // The reward of every session for the last step
+    private final double[] rewards;
+
+    // Whether each session finished an episode during the last step
+    private final boolean[] dones;
+
+    // Runs the groups of sessions, null when stepping on the calling thread
+    private final ForkJoinPool pool;
+
+    // Steps each group of sessions with the current actions
+    private final List<Callable<Void>> groups = new ArrayList<>();
+
+    // The actions for the step being run
+    private int[] actions;
+
+    /**
+     * Creates an environment with one worker thread per available core.
+     *
+     * @param rom the bytes of the ROM to run
+     * @param count the number of sessions
+     * @param framesPerStep the number of frames each session runs per step
+     * @param maxTicks the maximum number of operations per second to execute
+     * @param quirkProfile the quirks to enable, see CentralProcessingUnit.setQuirkProfile
+     * @param rewardFunction computes the reward for each step, or null for no rewards
+     */
+    public VectorEnvironment(byte[] rom, int count, int framesPerStep, int maxTicks, int quirkProfile,
+                             RewardFunction rewardFunction) {
+        this(rom, count, framesPerStep, maxTicks, quirkProfile, rewardFunction,
+                Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates an environment with the specified number of worker threads.
+     * Every session has 4K of memory.
+     *
+     * @param rom the bytes of the ROM to run
+     * @param count the number of sessions
+     * @param framesPerStep the number of frames each session runs per step
+     * @param maxTicks the maximum number of operations per second to execute
+     * @param quirkProfile the quirks to enable, see CentralProcessingUnit.setQuirkProfile
+     * @param rewardFunction computes the reward for each step, or null for no rewards
+     * @param parallelism the number of worker threads, 1 to step on the calling thread
+     */
+    public VectorEnvironment(byte[] rom, int count, int framesPerStep, int maxTicks, int quirkProfile,
+                             RewardFunction rewardFunction, int parallelism) {
+        if (count < 1) {
+            throw new IllegalArgumentException("count must be at least 1");
+        }
+        if (framesPerStep < 1) {
+            throw new IllegalArgumentException("framesPerStep must be at least 1");
+        }
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+
+        byte[] font = EmulatorSession.readFont();
+        byte[] romCopy = rom.clone();
+        sessions = new EmulatorSession[count];
+        for (int i = 0; i < count; i++) {
+            sessions[i] = EmulatorSession.create(i, font, romCopy, maxTicks, quirkProfile, true);
+        }
+        this.framesPerStep = framesPerStep;
+        this.rewardFunction = rewardFunction;
+        observations = new long[count * Screen.BITPLANE_WORDS];
+        rewards = new double[count];
+        dones = new boolean[count];
+
+        int threads = Math.min(parallelism, count);
+        pool = (threads > 1) ? new ForkJoinPool(threads) : null;
+        for (int group = 0; group < threads; group++) {
+            int from = (int) ((long) count * group / threads);
+            int to = (int) ((long) count * (group + 1) / threads);
+            groups.add(() -> {
+                stepSessions(from, to);
+                return null;
+            });
+        }
+        readObservations(0, count);
+    }
+
+    /**
+     * Restarts every session and returns the first observations.
+     *
+     * @return the observations of all the sessions
+     */
+    public long[] reset() {
+        for (EmulatorSession session : sessions) {
+            session.restart();
+        }
+        readObservations(0, sessions.length);
+        return observations;
+    }
+
+    /**
+     * Runs one step of every session. See getRewards and getDones for the
+     * other results of the step.
+     *
+     * @param actions the keys to hold down in each session, one mask per session
+     * @return the observations of all the sessions
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     * @throws RuntimeException if the reward function threw, on whichever thread it ran on
+     */
+    public long[] step(int[] actions) throws InterruptedException {
+        if (actions.length != sessions.length) {
+            throw new IllegalArgumentException("expected " + sessions.length + " actions, got " + actions.length);
+        }
+
+        this.actions = actions;
+        if (pool == null) {
+            stepSessions(0, sessions.length);
+        } else {
+            SessionHost.invokeAll(pool, groups);
+        }
+        return observations;
+    }
+
+    /**
+     * Steps a contiguous group of sessions with the current actions.
+     *
+     * @param from the first session in the group
+     * @param to one past the last session in the group
+     */
+    private void stepSessions(int from, int to) {
+        for (int i = from; i < to; i++) {
+            EmulatorSession session = sessions[i];
+            session.getKeyboard().setKeys(actions[i]);
+            session.run(framesPerStep);
+            rewards[i] = (rewardFunction == null) ? 0.0 : rewardFunction.reward(session);
+            dones[i] = session.isHalted();
+            if (dones[i]) {
+                session.restart();
+            }
+        }
+        readObservations(from, to);
+    }
+
+    /**
+     * Copies the screens of a contiguous group of sessions into the
+     * observations.
+     *
+     * @param from the first session in the group
+     * @param to one past the last session in the group
+     */
+    private void readObservations(int from, int to) {
+        for (int i = from; i < to; i++) {
+            sessions[i].getScreen().copyBitplanes(observations, i * Screen.BITPLANE_WORDS);
+        }
+    }
+
+    /**
+     * Returns the observations of all the sessions, as of the last step or
+     * reset. The same array is returned every time.
+     *
+     * @return the observations
+     */
+    public long[] getObservations() {
+        return observations;
+    }
+
+    /**
+     * Returns the reward of every session for the last step. The same array
+     * is returned every time.
+     *
+     * @return the rewards, indexed by session
+     */
+    public double[] getRewards() {
+        return rewards;
+    }
+
+    /**
+     * Returns whether each session finished an episode during the last step.
+     * The same array is returned every time.
+     *
+     * @return the done flags, indexed by session
+     */
+    public boolean[] getDones() {
+        return dones;
+    }
+
+    /**
+     * Returns the number of sessions.
+     *
+     * @return the number of sessions
+     */
+    public int size() {
+        return sessions.length;
+    }
+
+    /**
+     * Returns a single session, for reading its state or its throughput.
+     *
+     * @param index the index of the session
+     * @return the session
+     */
+    public EmulatorSession getSession(int index) {
+        return sessions[index];
+    }
+
+    /**
+     * Stops every session and the worker threads.
+     */
+    @Override
+    public void close() {
+        for (EmulatorSession session : sessions) {
+            session.kill();
+        }
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+}
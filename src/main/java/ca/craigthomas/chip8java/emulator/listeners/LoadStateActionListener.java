@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2013-2025 Craig Thomas
+ * This project uses an MIT style license - see LICENSE for details.
+ */
+package ca.craigthomas.chip8java.emulator.listeners;
+
+import ca.craigthomas.chip8java.emulator.components.Emulator;
+
+import javax.swing.*;
+import javax.swing.filechooser.FileNameExtensionFilter;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * An ActionListener that will restore the state of the emulator from a file.
+ */
+public class LoadStateActionListener implements ActionListener
+{
+    private Emulator emulator;
+
+    public LoadStateActionListener(Emulator emulator) {
+        super();
+        this.emulator = emulator;
+    }
+
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        loadStateFileDialog();
+    }
+
+    public void loadStateFileDialog() {
+        JFrame container = emulator.getEmulatorFrame();
+        JFileChooser fileChooser = createFileChooser();
+        if (fileChooser.showOpenDialog(container) == JFileChooser.APPROVE_OPTION) {
+            try {
+                emulator.restoreState(readState(fileChooser.getSelectedFile()));
+            } catch (IOException exception) {
+                JOptionPane.showMessageDialog(container, "Error reading file.", "File Read Problem",
+                        JOptionPane.ERROR_MESSAGE);
+            } catch (IllegalArgumentException exception) {
+                JOptionPane.showMessageDialog(container, "Could not restore state: " + exception.getMessage(),
+                        "Save State Problem", JOptionPane.ERROR_MESSAGE);
+            }
+        }
+    }
+
+    public byte[] readState(File file) throws IOException {
+        return Files.readAllBytes(file.toPath());
+    }
+
+    public JFileChooser createFileChooser() {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setCurrentDirectory(new File("."));
+        fileChooser.setDialogTitle("Load state file");
+        fileChooser.setAcceptAllFileFilterUsed(true);
+        fileChooser.setFileFilter(new FileNameExtensionFilter("CHIP8 Save State (*.c8s)",
+                SaveStateActionListener.STATE_EXTENSION));
+        return fileChooser;
+    }
+}
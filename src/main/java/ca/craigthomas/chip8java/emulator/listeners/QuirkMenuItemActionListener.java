@@ -0,0 +1,32 @@
+/*
+ * Copyright (C) 2013-2025 Craig Thomas
+ * This project uses an MIT style license - see LICENSE for details.
+ */
+package ca.craigthomas.chip8java.emulator.listeners;
+
+import ca.craigthomas.chip8java.emulator.components.Emulator;
+
+import javax.swing.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+
+/**
+ * An ActionListener that will turn a single quirk on or off to match the
+ * state of the menu item that triggered it.
+ */
+public class QuirkMenuItemActionListener implements ActionListener
+{
+    private Emulator emulator;
+    private int quirk;
+
+    public QuirkMenuItemActionListener(Emulator emulator, int quirk) {
+        this.emulator = emulator;
+        this.quirk = quirk;
+    }
+
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        AbstractButton button = (AbstractButton) e.getSource();
+        emulator.setQuirk(quirk, button.getModel().isSelected());
+    }
+}
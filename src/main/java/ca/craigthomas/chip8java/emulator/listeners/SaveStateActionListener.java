@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2013-2025 Craig Thomas
+ * This project uses an MIT style license - see LICENSE for details.
+ */
+package ca.craigthomas.chip8java.emulator.listeners;
+
+import ca.craigthomas.chip8java.emulator.components.Emulator;
+
+import javax.swing.*;
+import javax.swing.filechooser.FileNameExtensionFilter;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * An ActionListener that will save the state of the emulator to a file.
+ */
+public class SaveStateActionListener implements ActionListener
+{
+    // The file extension for save states
+    public static final String STATE_EXTENSION = "c8s";
+
+    private Emulator emulator;
+
+    public SaveStateActionListener(Emulator emulator) {
+        super();
+        this.emulator = emulator;
+    }
+
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        saveStateFileDialog();
+    }
+
+    public void saveStateFileDialog() {
+        byte[] state = emulator.saveState();
+        JFrame container = emulator.getEmulatorFrame();
+        JFileChooser fileChooser = createFileChooser();
+        if (fileChooser.showSaveDialog(container) == JFileChooser.APPROVE_OPTION) {
+            try {
+                writeState(fileChooser.getSelectedFile(), state);
+            } catch (IOException exception) {
+                JOptionPane.showMessageDialog(container, "Error writing file.", "File Write Problem",
+                        JOptionPane.ERROR_MESSAGE);
+            }
+        }
+    }
+
+    public void writeState(File file, byte[] state) throws IOException {
+        Files.write(file.toPath(), state);
+    }
+
+    public JFileChooser createFileChooser() {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setCurrentDirectory(new File("."));
+        fileChooser.setDialogTitle("Save state file");
+        fileChooser.setAcceptAllFileFilterUsed(true);
+        fileChooser.setFileFilter(new FileNameExtensionFilter("CHIP8 Save State (*.c8s)", STATE_EXTENSION));
+        return fileChooser;
+    }
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright (C) 2013-2025 Craig Thomas
+ * This project uses an MIT style license - see LICENSE for details.
+ */
+package ca.craigthomas.chip8java.emulator.listeners;
+
+import ca.craigthomas.chip8java.emulator.components.Emulator;
+
+import javax.swing.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+
+/**
+ * An ActionListener that will turn turbo mode on or off to match the state
+ * of the menu item that triggered it.
+ */
+public class TurboMenuItemActionListener implements ActionListener
+{
+    private Emulator emulator;
+
+    public TurboMenuItemActionListener(Emulator emulator) {
+        this.emulator = emulator;
+    }
+
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        AbstractButton button = (AbstractButton) e.getSource();
+        emulator.setTurbo(button.getModel().isSelected());
+    }
+}
@@ -50,4 +50,25 @@ public class Arguments
 
     @Parameter(names={"--ticks"}, description="how many instructions per seconds are allowed")
     public int maxTicks = CentralProcessingUnit.DEFAULT_MAX_TICKS;
+
+    @Parameter(names={"--headless"}, description="run without a window or display")
+    public Boolean headless = false;
+
+    @Parameter(names={"--virtual_clock"}, description="decrement the delay and sound timers once per emulated frame")
+    public Boolean virtualClock = false;
+
+    @Parameter(names={"--turbo"}, description="run as fast as possible instead of in real time")
+    public Boolean turbo = false;
+
+    @Parameter(names={"--rewind"}, description="how many seconds can be rewound with the rewind key (default=0, off)")
+    public int rewindSeconds = 0;
+
+    @Parameter(names={"--record"}, description="record the keys pressed to a movie file", arity = 1)
+    public String recordFile;
+
+    @Parameter(names={"--seed"}, description="the random number seed to record the movie with (default=random)")
+    public Long seed;
+
+    @Parameter(names={"--replay"}, description="replay a movie file headless as fast as possible and exit", arity = 1)
+    public String replayFile;
 }
\ No newline at end of file
@@ -6,6 +6,16 @@ package ca.craigthomas.chip8java.emulator.runner;
 
 import com.beust.jcommander.JCommander;
 import ca.craigthomas.chip8java.emulator.components.Emulator;
+import ca.craigthomas.chip8java.emulator.components.Memory;
+import ca.craigthomas.chip8java.emulator.components.Movie;
+import ca.craigthomas.chip8java.emulator.components.RunResult;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
 
 /**
  * The main Emulator class for the Chip 8. The <code>main</code> method will
@@ -26,6 +36,19 @@ public class Runner
         jCommander.setProgramName("yac8e");
         jCommander.parse(argv);
 
+        /* Replaying a movie always runs headless, then exits */
+        Movie movie = null;
+        if (args.replayFile != null) {
+            movie = readMovie(args.replayFile);
+            args.headless = true;
+            args.memSize4k = movie.getMemorySize() == Memory.MEMORY_4K;
+        }
+
+        /* Make sure AWT never looks for a display when running headless */
+        if (args.headless) {
+            System.setProperty("java.awt.headless", "true");
+        }
+
         /* Create the emulator and start it running */
         Emulator emulator = new Emulator(
                 args.scale,
@@ -40,8 +63,74 @@ public class Runner
                 args.logicQuirks,
                 args.jumpQuirks,
                 args.indexQuirks,
-                args.clipQuirks
+                args.clipQuirks,
+                args.headless
         );
+        emulator.setVirtualClock(args.virtualClock);
+        emulator.setTurbo(args.turbo);
+        emulator.setRewindSeconds(args.rewindSeconds);
+
+        if (movie != null) {
+            long start = System.nanoTime();
+            RunResult result = replayMovie(emulator, movie);
+            long elapsed = System.nanoTime() - start;
+            System.out.println("Replayed " + result.getFrames() + " frames (" + result.getInstructions() +
+                    " instructions) in " + (elapsed / 1_000_000) + " ms");
+            emulator.kill();
+            return;
+        }
+
+        if (args.recordFile != null) {
+            emulator.startRecording((args.seed != null) ? args.seed : new Random().nextLong());
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> writeMovie(emulator, args.recordFile)));
+        }
         emulator.start();
     }
+
+    /**
+     * Replays every frame of a movie as fast as possible on the calling
+     * thread.
+     *
+     * @param emulator the emulator to replay the movie on
+     * @param movie the movie to replay
+     * @return the number of instructions and frames run, and why the run stopped
+     */
+    static RunResult replayMovie(Emulator emulator, Movie movie) {
+        emulator.playMovie(movie);
+        return emulator.runFrames(movie.getFrameCount());
+    }
+
+    /**
+     * Reads a movie file, exiting if it cannot be read.
+     *
+     * @param filename the movie file to read
+     * @return the movie
+     */
+    private static Movie readMovie(String filename) {
+        try (InputStream stream = new FileInputStream(filename)) {
+            return Movie.read(stream);
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("Could not read movie file [" + filename + "] (" + e.getMessage() + ")");
+            System.exit(1);
+            return null;
+        }
+    }
+
+    /**
+     * Stops recording and writes the movie to a file.
+     *
+     * @param emulator the emulator that is recording
+     * @param filename the movie file to write
+     */
+    private static void writeMovie(Emulator emulator, String filename) {
+        Movie movie = emulator.stopRecording();
+        if (movie == null) {
+            return;
+        }
+        try (OutputStream stream = new FileOutputStream(filename)) {
+            movie.write(stream);
+        } catch (IOException e) {
+            System.out.println("Could not write movie file [" + filename + "] (" + e.getMessage() + ")");
+        }
+    }
 }
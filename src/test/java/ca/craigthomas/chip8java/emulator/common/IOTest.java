@@ -94,4 +94,47 @@ public class IOTest
         assertTrue(IO.copyStreamToShortArray(stream, target, 0));
         assertArrayEquals(expected, target);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testCopyStreamToByteArrayFailsWhenSourceIsNull() {
+        byte[] target = new byte[14];
+        assertFalse(IO.copyStreamToByteArray(null, target, 0));
+    }
+
+    @Test
+    public void testCopyStreamToByteArrayFailsWhenTargetIsNull() {
+        File resourceFile = new File(getClass().getClassLoader().getResource(GOOD_STREAM_FILE).getFile());
+        InputStream stream = IO.openInputStream(resourceFile.getPath());
+        assertFalse(IO.copyStreamToByteArray(stream, null, 0));
+    }
+
+    @Test
+    public void testCopyStreamToByteArrayFailsWhenSourceBiggerThanTarget() {
+        File resourceFile = new File(getClass().getClassLoader().getResource(GOOD_STREAM_FILE).getFile());
+        InputStream stream = IO.openInputStream(resourceFile.getPath());
+        byte[] target = new byte[15];
+        assertFalse(IO.copyStreamToByteArray(stream, target, 2));
+    }
+
+    @Test
+    public void testCopyStreamToByteArrayWorksCorrectly() {
+        byte[] expected = {0, 0x54, 0x68, 0x69, 0x73, 0x20, 0x69, 0x73, 0x20, 0x61, 0x20, 0x74, 0x65, 0x73, 0x74};
+        File resourceFile = new File(getClass().getClassLoader().getResource(GOOD_STREAM_FILE).getFile());
+        InputStream stream = IO.openInputStream(resourceFile.getPath());
+        byte[] target = new byte[15];
+        assertTrue(IO.copyStreamToByteArray(stream, target, 1));
+        assertArrayEquals(expected, target);
+    }
+
+    @Test
+    public void testReadStreamToByteArrayReturnsNullOnNull() {
+        assertNull(IO.readStreamToByteArray(null));
+    }
+
+    @Test
+    public void testReadStreamToByteArrayWorksCorrectly() {
+        byte[] expected = {0x54, 0x68, 0x69, 0x73, 0x20, 0x69, 0x73, 0x20, 0x61, 0x20, 0x74, 0x65, 0x73, 0x74};
+        InputStream stream = IO.openInputStreamFromResource(GOOD_STREAM_FILE);
+        assertArrayEquals(expected, IO.readStreamToByteArray(stream));
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2013-2025 Craig Thomas
+ * This project uses an MIT style license - see LICENSE for details.
+ */
+package ca.craigthomas.chip8java.emulator.components;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the BasicBlock.
+ */
+public class BasicBlockTest
+{
+    private Memory memory;
+
+    @Before
+    public void setUp() {
+        memory = new Memory();
+    }
+
+    private void writeProgram(int location, int... program) {
+        for (int i = 0; i < program.length; i++) {
+            memory.write(program[i], location + i);
+        }
+    }
+
+    @Test
+    public void testDecodeEndsAtJump() {
+        writeProgram(0x200, 0x61, 0x05, 0x71, 0x01, 0x12, 0x00, 0x62, 0x03);
+        BasicBlock block = BasicBlock.decode(memory, 0x200, 0);
+        assertEquals(3, block.length);
+        assertEquals(0x204, block.lastInstruction);
+        assertTrue(block.registerOnly);
+    }
+
+    @Test
+    public void testDecodeEndsAtDraw() {
+        writeProgram(0x200, 0x61, 0x05, 0xD0, 0x15, 0x62, 0x03);
+        BasicBlock block = BasicBlock.decode(memory, 0x200, 0);
+        assertEquals(2, block.length);
+        assertFalse(block.registerOnly);
+    }
+
+    @Test
+    public void testDecodeContinuesPastCalls() {
+        writeProgram(0x200, 0x61, 0x05, 0xC1, 0xFF, 0xF1, 0x29, 0x12, 0x00);
+        assertEquals(4, BasicBlock.decode(memory, 0x200, 0).length);
+    }
+
+    @Test
+    public void testDecodeStopsBeforeUnsupportedInstruction() {
+        writeProgram(0x200, 0x61, 0x05, 0xF0, 0x00, 0x12, 0x34);
+        assertEquals(1, BasicBlock.decode(memory, 0x200, 0).length);
+        assertEquals(0, BasicBlock.decode(memory, 0x202, 0).length);
+    }
+
+    @Test
+    public void testDecodeStopsAtMaxInstructions() {
+        for (int address = 0x200; address < 0x300; address += 2) {
+            writeProgram(address, 0x71, 0x01);
+        }
+        assertEquals(BasicBlock.MAX_INSTRUCTIONS, BasicBlock.decode(memory, 0x200, 0).length);
+    }
+
+    @Test
+    public void testDecodeStopsAtEndOfMemory() {
+        for (int address = Memory.MEMORY_64K - 4; address < Memory.MEMORY_64K; address += 2) {
+            writeProgram(address, 0x71, 0x01);
+        }
+        assertEquals(2, BasicBlock.decode(memory, Memory.MEMORY_64K - 4, 0).length);
+    }
+
+    @Test
+    public void testMatchesDetectsWritesToBlock() {
+        writeProgram(0x200, 0x61, 0x05, 0x71, 0x01, 0x12, 0x00);
+        BasicBlock block = BasicBlock.decode(memory, 0x200, 0);
+        writeProgram(0x206, 0x62);
+        assertTrue(block.matches(memory));
+        writeProgram(0x203, 0x02);
+        assertFalse(block.matches(memory));
+    }
+
+    @Test
+    public void testEnterCompilesAfterThreshold() {
+        writeProgram(0x200, 0x61, 0x05, 0x71, 0x01, 0x12, 0x00);
+        BasicBlock block = BasicBlock.decode(memory, 0x200, 0);
+        for (int entry = 1; entry < BasicBlock.COMPILE_THRESHOLD; entry++) {
+            assertNull(block.enter(0));
+        }
+        assertNotNull(block.enter(0));
+        assertSame(block.compiled, block.enter(0));
+    }
+
+    @Test
+    public void testEnterNeverCompilesSelfModifyingBlock() {
+        writeProgram(0x200, 0x61, 0x05, 0x71, 0x01, 0x12, 0x00);
+        BasicBlock block = BasicBlock.decode(memory, 0x200, BasicBlock.MAX_REWRITES + 1);
+        for (int entry = 0; entry < BasicBlock.COMPILE_THRESHOLD * 2; entry++) {
+            assertNull(block.enter(0));
+        }
+    }
+
+    @Test
+    public void testEnterNeverCompilesSingleInstruction() {
+        writeProgram(0x200, 0x12, 0x00);
+        BasicBlock block = BasicBlock.decode(memory, 0x200, 0);
+        for (int entry = 0; entry < BasicBlock.COMPILE_THRESHOLD * 2; entry++) {
+            assertNull(block.enter(0));
+        }
+    }
+}
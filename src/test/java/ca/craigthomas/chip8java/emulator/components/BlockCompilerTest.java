@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2013-2025 Craig Thomas
+ * This project uses an MIT style license - see LICENSE for details.
+ */
+package ca.craigthomas.chip8java.emulator.components;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+/**
+ * Tests for the BlockCompiler.
+ */
+public class BlockCompilerTest
+{
+    // Instructions compiled inline, with the x and y nibbles left for random registers
+    private static final int[] INLINE = {
+            0x6000, 0x7000, 0x8000, 0x8001, 0x8002, 0x8003, 0x8004, 0x8005, 0x8006, 0x8007, 0x800E,
+            0xA000, 0xF007, 0xF01E,
+    };
+
+    // Instructions handed to the interpreter, with the x and y nibbles left for random registers
+    private static final int[] CALLS = {
+            0xC000, 0xF015, 0xF018, 0xF029, 0xF030, 0xF065,
+    };
+
+    // Instructions that end a block, with the x and y nibbles left for random registers
+    private static final int[] EXITS = {
+            0x1000, 0x3000, 0x4000, 0x5000, 0x9000, 0xF055,
+    };
+
+    // Register values on either side of the carry, borrow and shift boundaries
+    private static final short[] EDGE_VALUES = {0x00, 0x01, 0x7F, 0x80, 0x81, 0xFE, 0xFF};
+
+    private final Random random = new Random(0x8E);
+
+    private static Memory createMemory(int[] program) {
+        Memory memory = new Memory();
+        for (int i = 0; i < program.length; i++) {
+            memory.write(program[i] >> 8, 0x0200 + i * 2);
+            memory.write(program[i] & 0xFF, 0x0200 + i * 2 + 1);
+        }
+        return memory;
+    }
+
+    private static CentralProcessingUnit createCPU(Memory memory, int quirkProfile) {
+        CentralProcessingUnit cpu = new CentralProcessingUnit(memory, Mockito.mock(Keyboard.class),
+                Mockito.mock(Screen.class));
+        cpu.setQuirkProfile(quirkProfile);
+        cpu.setVirtualClock(true);
+        cpu.setRandomSeed(1);
+        return cpu;
+    }
+
+    private int randomInstruction(int[] instructions) {
+        int operand = instructions[random.nextInt(instructions.length)];
+        int registers = random.nextBoolean() ? random.nextInt(0x100) : (random.nextBoolean() ? 0xF0 : 0x0F);
+        if ((operand & 0xF000) == 0x8000 || (operand & 0xF000) == 0x5000 || (operand & 0xF000) == 0x9000) {
+            return operand | (registers << 4);
+        }
+        if ((operand & 0xF000) == 0xF000) {
+            return operand | ((registers & 0xF) << 8);
+        }
+        return operand | (registers << 4) | random.nextInt(0x10);
+    }
+
+    private static String describe(CentralProcessingUnit cpu) {
+        return cpu.cpuStatusLine1() + cpu.cpuStatusLine2() + cpu.cpuStatusLine3() +
+                " OP:" + cpu.operand + " DT:" + cpu.delay + " ST:" + cpu.sound;
+    }
+
+    @Test
+    public void testCompiledBlocksMatchInterpreterForAllQuirks() {
+        for (int run = 0; run < 100; run++) {
+            int[] program = new int[2 + random.nextInt(BasicBlock.MAX_INSTRUCTIONS - 2)];
+            for (int i = 0; i < program.length - 1; i++) {
+                program[i] = randomInstruction((random.nextInt(4) == 0) ? CALLS : INLINE);
+            }
+            program[program.length - 1] = randomInstruction(random.nextBoolean() ? INLINE : EXITS);
+            short[] registers = new short[16];
+            for (int i = 0; i < registers.length; i++) {
+                registers[i] = random.nextBoolean() ? EDGE_VALUES[random.nextInt(EDGE_VALUES.length)] :
+                        (short) random.nextInt(0x100);
+            }
+            int index = random.nextInt(0x1000);
+            short delay = (short) random.nextInt(0x100);
+
+            for (int quirks = 0; quirks < 32; quirks++) {
+                Memory memory = createMemory(program);
+                CentralProcessingUnit interpreted = createCPU(createMemory(program), quirks);
+                CentralProcessingUnit compiled = createCPU(memory, quirks);
+                for (CentralProcessingUnit cpu : new CentralProcessingUnit[]{interpreted, compiled}) {
+                    cpu.v = registers.clone();
+                    cpu.index = index;
+                    cpu.delay = delay;
+                }
+
+                BasicBlock block = BasicBlock.decode(memory, 0x0200, 0);
+                assertEquals(program.length, block.length);
+                BlockCompiler.compile(block, quirks).execute(compiled);
+                for (int i = 0; i < program.length; i++) {
+                    interpreted.fetchIncrementExecute();
+                }
+                assertEquals(describe(interpreted), describe(compiled));
+            }
+        }
+    }
+
+    @Test
+    public void testCompileReusesBlocksWithTheSameCode() {
+        int[] program = {0x6105, 0x7101, 0x1200};
+        BasicBlock block = BasicBlock.decode(createMemory(program), 0x0200, 0);
+        BasicBlock copy = BasicBlock.decode(createMemory(program), 0x0200, 0);
+        assertSame(BlockCompiler.compile(block, 0), BlockCompiler.compile(copy, 0));
+        assertSame(BlockCompiler.compile(block, 0), BlockCompiler.compile(copy, CentralProcessingUnit.JUMP_QUIRKS));
+        assertNotSame(BlockCompiler.compile(block, 0), BlockCompiler.compile(copy, CentralProcessingUnit.SHIFT_QUIRKS));
+    }
+
+    @Test
+    public void testCompiledJumpSetsProgramCounter() {
+        int[] program = {0x6105, 0x7101, 0x1234};
+        Memory memory = createMemory(program);
+        CentralProcessingUnit cpu = createCPU(memory, 0);
+        BlockCompiler.compile(BasicBlock.decode(memory, 0x0200, 0), 0).execute(cpu);
+        assertEquals(0x0234, cpu.pc);
+        assertEquals(0x1234, cpu.operand);
+        assertEquals(6, cpu.v[1]);
+    }
+
+    @Test
+    public void testGetKindCorrect() {
+        int[] inline = {0x6123, 0x7123, 0x8120, 0x8127, 0x812E, 0xA123, 0xF107, 0xF11E};
+        int[] calls = {0x00E0, 0x00C4, 0x00D4, 0x00FB, 0x00FC, 0x00FE, 0x00FF, 0x5123, 0xC1FF, 0xF101,
+                0xF002, 0xF115, 0xF118, 0xF129, 0xF130, 0xF13A, 0xF165, 0xF175, 0xF185};
+        int[] exits = {0x00EE, 0x00FD, 0x1234, 0x2345, 0x3456, 0x4567, 0x5670, 0x5672, 0x9AB0, 0xB123,
+                0xD123, 0xE19E, 0xE1A1, 0xF10A, 0xF133, 0xF155};
+        int[] unsupported = {0x0000, 0x00B0, 0x5671, 0x8128, 0x812F, 0xE100, 0xF000, 0xF1FF};
+        for (int operand : inline) {
+            assertEquals(BlockCompiler.INLINE, BlockCompiler.getKind(operand));
+        }
+        for (int operand : calls) {
+            assertEquals(BlockCompiler.CALL, BlockCompiler.getKind(operand));
+        }
+        for (int operand : exits) {
+            assertEquals(BlockCompiler.EXIT, BlockCompiler.getKind(operand));
+        }
+        for (int operand : unsupported) {
+            assertEquals(BlockCompiler.UNSUPPORTED, BlockCompiler.getKind(operand));
+        }
+    }
+}
@@ -11,13 +11,24 @@ import static org.mockito.Mockito.times;
 
 import java.awt.*;
 import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
 
 import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import com.sun.management.ThreadMXBean;
+
 import javax.swing.*;
 
 /**
@@ -640,6 +651,49 @@ public class CentralProcessingUnitTest
         }
     }
 
+    @Test
+    public void testStoreBCDInMemoryWrapsAroundEndOfMemory() {
+        cpu.index = 0xFFFF;
+        cpu.v[0] = 123;
+        cpu.operand = 0xF033;
+        cpu.storeBCDInMemory();
+        assertEquals(1, memory.read(0xFFFF));
+        assertEquals(2, memory.read(0));
+        assertEquals(3, memory.read(1));
+    }
+
+    @Test
+    public void testStoreAndReadRegistersWrapAroundEndOfMemory() {
+        cpu.index = 0xFFFE;
+        cpu.v[0] = 0x12;
+        cpu.v[1] = 0x34;
+        cpu.v[2] = 0x56;
+        cpu.operand = 0xF255;
+        cpu.storeRegistersInMemory(true);
+        assertEquals(0x56, memory.read(0));
+
+        cpu.v[0] = cpu.v[1] = cpu.v[2] = 0;
+        cpu.operand = 0xF265;
+        cpu.readRegistersFromMemory(true);
+        assertEquals(0x12, cpu.v[0]);
+        assertEquals(0x34, cpu.v[1]);
+        assertEquals(0x56, cpu.v[2]);
+    }
+
+    @Test
+    public void testDrawExtendedSpriteWrapsAroundEndOfMemory() {
+        screen = new Screen();
+        cpu = new CentralProcessingUnit(memory, keyboardMock, screen);
+        memory.write(0xFF, 0xFFFF);
+        memory.write(0x80, 0x0000);
+        cpu.index = 0xFFFF;
+        cpu.operand = 0xD010;
+        cpu.drawSprite();
+        assertTrue(screen.getPixel(0, 0, 1));
+        assertTrue(screen.getPixel(8, 0, 1));
+        assertFalse(screen.getPixel(9, 0, 1));
+    }
+
     @Test
     public void testReadRegistersFromMemory() {
         int index = 0x500;
@@ -857,6 +911,7 @@ public class CentralProcessingUnitTest
 
     @Test
     public void testGetOpShortDescReturnsADescription() {
+        cpu.operand = 0x00EE;
         cpu.returnFromSubroutine();
         assertEquals("RTS", cpu.getOpShortDesc());
     }
@@ -929,7 +984,11 @@ public class CentralProcessingUnitTest
     @Test
     public void testJumpToRegisterPlusValueInvoked() {
         cpuSpy.executeInstruction(0xB);
-        verify(cpuSpy).jumpToRegisterPlusValue();
+        verify(cpuSpy).jumpToRegisterPlusValue(false);
+
+        cpuSpy.setJumpQuirks(true);
+        cpuSpy.executeInstruction(0xB);
+        verify(cpuSpy).jumpToRegisterPlusValue(true);
     }
 
     @Test
@@ -941,7 +1000,11 @@ public class CentralProcessingUnitTest
     @Test
     public void testDrawSpriteInvoked() {
         cpuSpy.executeInstruction(0xD);
-        verify(cpuSpy).drawSprite();
+        verify(cpuSpy).drawSprite(false);
+
+        cpuSpy.setClipQuirks(true);
+        cpuSpy.executeInstruction(0xD);
+        verify(cpuSpy).drawSprite(true);
     }
     
     @Test
@@ -962,21 +1025,33 @@ public class CentralProcessingUnitTest
     public void testLogicalOrInvoked() {
         cpuSpy.operand = 0x1;
         cpuSpy.executeInstruction(0x8);
-        verify(cpuSpy).logicalOr();
+        verify(cpuSpy).logicalOr(false);
+
+        cpuSpy.setLogicQuirks(true);
+        cpuSpy.executeInstruction(0x8);
+        verify(cpuSpy).logicalOr(true);
     }
     
     @Test
     public void testLogicalAndInvoked() {
         cpuSpy.operand = 0x2;
         cpuSpy.executeInstruction(0x8);
-        verify(cpuSpy).logicalAnd();
+        verify(cpuSpy).logicalAnd(false);
+
+        cpuSpy.setLogicQuirks(true);
+        cpuSpy.executeInstruction(0x8);
+        verify(cpuSpy).logicalAnd(true);
     }
     
     @Test
     public void testExclusiveOrInvoked() {
         cpuSpy.operand = 0x3;
         cpuSpy.executeInstruction(0x8);
-        verify(cpuSpy).exclusiveOr();
+        verify(cpuSpy).exclusiveOr(false);
+
+        cpuSpy.setLogicQuirks(true);
+        cpuSpy.executeInstruction(0x8);
+        verify(cpuSpy).exclusiveOr(true);
     }
     
     @Test
@@ -997,7 +1072,11 @@ public class CentralProcessingUnitTest
     public void testRightShiftInvoked() {
         cpuSpy.operand = 0x6;
         cpuSpy.executeInstruction(0x8);
-        verify(cpuSpy).rightShift();
+        verify(cpuSpy).rightShift(false);
+
+        cpuSpy.setShiftQuirks(true);
+        cpuSpy.executeInstruction(0x8);
+        verify(cpuSpy).rightShift(true);
     }
     
     @Test
@@ -1011,7 +1090,11 @@ public class CentralProcessingUnitTest
     public void testLeftShiftInvoked() {
         cpuSpy.operand = 0xE;
         cpuSpy.executeInstruction(0x8);
-        verify(cpuSpy).leftShift();
+        verify(cpuSpy).leftShift(false);
+
+        cpuSpy.setShiftQuirks(true);
+        cpuSpy.executeInstruction(0x8);
+        verify(cpuSpy).leftShift(true);
     }
     
     @Test
@@ -1141,14 +1224,22 @@ public class CentralProcessingUnitTest
     public void testStoreRegistersInMemoryInvoked() {
         cpuSpy.operand = 0x55;
         cpuSpy.executeInstruction(0xF);
-        verify(cpuSpy).storeRegistersInMemory();
+        verify(cpuSpy).storeRegistersInMemory(false);
+
+        cpuSpy.setIndexQuirks(true);
+        cpuSpy.executeInstruction(0xF);
+        verify(cpuSpy).storeRegistersInMemory(true);
     }
     
     @Test
     public void testReadRegistersFromMemoryInvoked() {
         cpuSpy.operand = 0x65;
         cpuSpy.executeInstruction(0xF);
-        verify(cpuSpy).readRegistersFromMemory();
+        verify(cpuSpy).readRegistersFromMemory(false);
+
+        cpuSpy.setIndexQuirks(true);
+        cpuSpy.executeInstruction(0xF);
+        verify(cpuSpy).readRegistersFromMemory(true);
     }
     
     @Test
@@ -1732,7 +1823,7 @@ public class CentralProcessingUnitTest
         cpu.operand = 0xC8;
         cpu.executeInstruction(0x0);
         verify(screenMock, times(1)).scrollDown(8, 1);
-        assertEquals("Scroll Down 8", cpu.lastOpDesc);
+        assertEquals("Scroll Down 8", cpu.getOpShortDesc());
     }
 
     @Test
@@ -1740,7 +1831,7 @@ public class CentralProcessingUnitTest
         cpu.operand = 0xD8;
         cpu.executeInstruction(0x0);
         verify(screenMock, times(1)).scrollUp(8, 1);
-        assertEquals("Scroll Up 8", cpu.lastOpDesc);
+        assertEquals("Scroll Up 8", cpu.getOpShortDesc());
     }
 
     @Test
@@ -1748,7 +1839,7 @@ public class CentralProcessingUnitTest
         cpu.operand = 0xFC;
         cpu.executeInstruction(0x0);
         verify(screenMock, times(1)).scrollLeft(1);
-        assertEquals("Scroll Left", cpu.lastOpDesc);
+        assertEquals("Scroll Left", cpu.getOpShortDesc());
     }
 
     @Test
@@ -1756,7 +1847,7 @@ public class CentralProcessingUnitTest
         cpu.operand = 0xFB;
         cpu.executeInstruction(0x0);
         verify(screenMock, times(1)).scrollRight(1);
-        assertEquals("Scroll Right", cpu.lastOpDesc);
+        assertEquals("Scroll Right", cpu.getOpShortDesc());
     }
 
     @Test
@@ -1804,6 +1895,52 @@ public class CentralProcessingUnitTest
         assertEquals(2, cpu.bitplane);
     }
 
+    @Test
+    public void testSetBitplaneIgnoresHighBits() {
+        cpu.operand = 0xF401;
+        cpu.setBitplane();
+        assertEquals(0, cpu.bitplane);
+        cpu.operand = 0xFF01;
+        cpu.setBitplane();
+        assertEquals(3, cpu.bitplane);
+    }
+
+    @Test
+    public void testDrawSpriteAfterOutOfRangeBitplaneIntegration() {
+        screen = new Screen();
+        cpu = new CentralProcessingUnit(memory, keyboardMock, screen);
+        memory.write(0xF7, 0x0200);
+        memory.write(0x01, 0x0201);
+        memory.write(0xD0, 0x0202);
+        memory.write(0x01, 0x0203);
+        memory.write(0x80, 0x5000);
+        memory.write(0x80, 0x5001);
+        cpu.index = 0x5000;
+        cpu.fetchIncrementExecute();
+        cpu.fetchIncrementExecute();
+        assertEquals(3, cpu.bitplane);
+        assertTrue(screen.getPixel(0, 0, 1));
+        assertTrue(screen.getPixel(0, 0, 2));
+    }
+
+    @Test
+    public void testScrollAfterOutOfRangeBitplaneIntegration() {
+        screen = new Screen();
+        cpu = new CentralProcessingUnit(memory, keyboardMock, screen);
+        screen.drawPixel(0, 0, true, 2);
+        memory.write(0xF6, 0x0200);
+        memory.write(0x01, 0x0201);
+        memory.write(0x00, 0x0202);
+        memory.write(0xFB, 0x0203);
+        memory.write(0x00, 0x0204);
+        memory.write(0xC1, 0x0205);
+        cpu.fetchIncrementExecute();
+        cpu.fetchIncrementExecute();
+        cpu.fetchIncrementExecute();
+        assertTrue(screen.getPixel(4, 1, 2));
+        assertFalse(screen.getPixel(0, 0, 2));
+    }
+
     @Test
     public void testIsAwaitingKeypressFalseAtInit() {
         assertFalse(cpu.isAwaitingKeypress());
@@ -1824,8 +1961,7 @@ public class CentralProcessingUnitTest
         cpu.sound = 0x3;
         cpu.pc = 0x1234;
         cpu.operand = 0x9876;
-        cpu.lastOpDesc = "none";
-        String expected = "I:0010 DT:09 ST:03 PC:1234 9876 none";
+        String expected = "I:0010 DT:09 ST:03 PC:1234 9876 SKNE V8, V7";
         assertEquals(expected, cpu.cpuStatusLine1());
     }
     
@@ -1870,7 +2006,7 @@ public class CentralProcessingUnitTest
     @Test
     public void testExecuteInstructionDoesNotFireOnNegativeOpcode() {
         cpu.executeInstruction(-1);
-        assertEquals("Operation 0000 not supported", cpu.lastOpDesc);
+        assertEquals("Operation 0000 not supported", cpu.getOpShortDesc());
     }
     
     @Test
@@ -2009,4 +2145,833 @@ public class CentralProcessingUnitTest
         assertTrue(screen.getPixel(7, 0, 1));
         tearDownCanvas();
     }
+
+    @Test
+    public void testDrawSpriteWrapsAroundRightEdge() throws FontFormatException, IOException {
+        setUpCanvas();
+        cpu = new CentralProcessingUnit(memory, keyboardMock, screen);
+        cpu.index = 0x200;
+        memory.write(0xFF, 0x200);
+        cpu.v[0] = 60;
+        cpu.v[1] = 0;
+        cpu.operand = 0x11;
+        cpu.drawSprite();
+        assertTrue(screen.getPixel(60, 0, 1));
+        assertTrue(screen.getPixel(63, 0, 1));
+        assertTrue(screen.getPixel(0, 0, 1));
+        assertTrue(screen.getPixel(3, 0, 1));
+        assertFalse(screen.getPixel(4, 0, 1));
+        tearDownCanvas();
+    }
+
+    @Test
+    public void testDrawSpriteClipQuirksClipsRightEdge() throws FontFormatException, IOException {
+        setUpCanvas();
+        cpu = new CentralProcessingUnit(memory, keyboardMock, screen);
+        cpu.setClipQuirks(true);
+        cpu.index = 0x200;
+        memory.write(0xFF, 0x200);
+        cpu.v[0] = 60;
+        cpu.v[1] = 0;
+        cpu.operand = 0x11;
+        cpu.drawSprite();
+        assertTrue(screen.getPixel(60, 0, 1));
+        assertTrue(screen.getPixel(63, 0, 1));
+        assertFalse(screen.getPixel(0, 0, 1));
+        assertFalse(screen.getPixel(3, 0, 1));
+        cpu.drawSprite();
+        assertEquals(1, cpu.v[0xF]);
+        assertFalse(screen.getPixel(60, 0, 1));
+        tearDownCanvas();
+    }
+
+    @Test
+    public void testDrawSpriteExtendedCountsCollisionsAndRowsOffScreen() throws FontFormatException, IOException {
+        setUpCanvas();
+        cpu = new CentralProcessingUnit(memory, keyboardMock, screen);
+        cpu.index = 0x200;
+        for (short x = 0; x < 32; x++) {
+            memory.write(0x81, cpu.index + x);
+        }
+        cpu.v[0] = 0;
+        cpu.v[1] = 60;
+        cpu.operand = 0x10;
+        cpu.enableExtendedMode();
+        cpu.drawSprite();
+        assertEquals(24, cpu.v[0xF]);
+        cpu.drawSprite();
+        assertEquals(40, cpu.v[0xF]);
+        tearDownCanvas();
+    }
+
+    @Test
+    public void testFetchIncrementExecuteSeesMemoryWritesToDecodedInstruction() {
+        memory.write(0x61, 0x0200);
+        memory.write(0x05, 0x0201);
+        cpu.fetchIncrementExecute();
+        assertEquals(5, cpu.v[1]);
+
+        memory.write(0x06, 0x0201);
+        cpu.pc = 0x0200;
+        cpu.fetchIncrementExecute();
+        assertEquals(6, cpu.v[1]);
+
+        memory.write(0x62, 0x0200);
+        cpu.pc = 0x0200;
+        cpu.fetchIncrementExecute();
+        assertEquals(6, cpu.v[2]);
+    }
+
+    @Test
+    public void testFetchIncrementExecuteSeesInstructionsOverwrittenByStore() {
+        memory.write(0xF1, 0x0200);
+        memory.write(0x55, 0x0201);
+        memory.write(0x63, 0x0202);
+        memory.write(0x01, 0x0203);
+        cpu.pc = 0x0202;
+        cpu.fetchIncrementExecute();
+        assertEquals(1, cpu.v[3]);
+
+        cpu.v[0] = 0x64;
+        cpu.v[1] = 0x09;
+        cpu.index = 0x0202;
+        cpu.pc = 0x0200;
+        cpu.fetchIncrementExecute();
+        cpu.fetchIncrementExecute();
+        assertEquals(1, cpu.v[3]);
+        assertEquals(9, cpu.v[4]);
+    }
+
+    @Test
+    public void testFetchIncrementExecuteSeesInstructionsOverwrittenByBCD() {
+        memory.write(0x6A, 0x0300);
+        memory.write(0x07, 0x0301);
+        cpu.pc = 0x0300;
+        cpu.fetchIncrementExecute();
+        assertEquals(7, cpu.v[0xA]);
+
+        cpu.v[0] = 123;
+        cpu.index = 0x02FF;
+        memory.write(0xF0, 0x0200);
+        memory.write(0x33, 0x0201);
+        cpu.pc = 0x0200;
+        cpu.fetchIncrementExecute();
+        assertEquals(2, memory.read(0x0300));
+        assertEquals(3, memory.read(0x0301));
+
+        cpu.pc = 0x0300;
+        cpu.fetchIncrementExecute();
+        assertEquals(0x0302, cpu.pc);
+        assertEquals(0x0203, cpu.operand);
+        assertEquals(7, cpu.v[0xA]);
+    }
+
+    @Test
+    public void testResetDiscardsDecodedInstructions() {
+        memory.write(0x61, 0x0200);
+        memory.write(0x05, 0x0201);
+        cpu.fetchIncrementExecute();
+        memory.memory[0x0201] = 0x07;
+        cpu.reset();
+        cpu.fetchIncrementExecute();
+        assertEquals(7, cpu.v[1]);
+    }
+
+    @Test
+    public void testDecodeOperationMatchesExecuteInstruction() {
+        for (int value = 0; value < 0x10000; value += 0x0F) {
+            int opcode = (value & 0xF000) >> 12;
+            if ((opcode == 0xC) || (opcode == 0xD) || ((value & 0xF0FF) == 0xF002)) {
+                continue;
+            }
+            cpu.operand = value;
+            cpu.executeInstruction(opcode);
+            String expected = cpu.cpuStatusLine1() + cpu.cpuStatusLine2() + cpu.cpuStatusLine3();
+            cpu.reset();
+            cpu.operand = value;
+            CentralProcessingUnit.decodeOperation(value).execute(cpu);
+            assertEquals(expected, cpu.cpuStatusLine1() + cpu.cpuStatusLine2() + cpu.cpuStatusLine3());
+            cpu.reset();
+        }
+    }
+
+    private void setUpOperationState(CentralProcessingUnit processor, int value) {
+        for (int register = 0; register < 0x10; register++) {
+            processor.v[register] = (short) ((register * 0x11 + value) & 0xFF);
+        }
+        processor.index = 0x0300;
+        processor.pc = 0x0400;
+        processor.stack = 0x0060;
+        processor.delay = 5;
+        processor.bitplane = 1;
+        processor.operand = value;
+    }
+
+    private void assertSameOperationState(String message, CentralProcessingUnit expected,
+                                          CentralProcessingUnit actual) {
+        assertArrayEquals(message, expected.v, actual.v);
+        assertArrayEquals(message, expected.rpl, actual.rpl);
+        assertEquals(message, expected.index, actual.index);
+        assertEquals(message, expected.pc, actual.pc);
+        assertEquals(message, expected.stack, actual.stack);
+        assertEquals(message, expected.delay, actual.delay);
+        assertEquals(message, expected.sound, actual.sound);
+        assertEquals(message, expected.pitch, actual.pitch);
+        assertEquals(message, expected.bitplane, actual.bitplane);
+        assertEquals(message, expected.mode, actual.mode);
+        assertEquals(message, expected.isAwaitingKeypress(), actual.isAwaitingKeypress());
+    }
+
+    @Test
+    public void testOperationTableMatchesDecodeOperation() {
+        assertEquals(0x10000, CentralProcessingUnit.OPERATIONS.length);
+        Memory decodedMemory = new Memory();
+        Memory tableMemory = new Memory();
+        Screen decodedScreen = new Screen();
+        Screen tableScreen = new Screen();
+        CentralProcessingUnit decoded = new CentralProcessingUnit(decodedMemory, keyboardMock, decodedScreen, true);
+        CentralProcessingUnit table = new CentralProcessingUnit(tableMemory, keyboardMock, tableScreen, true);
+        decoded.setRandomSeed(1234);
+        table.setRandomSeed(1234);
+        for (int quirkProfile = 0; quirkProfile < 0x20; quirkProfile++) {
+            CentralProcessingUnit.Operation[] operations = CentralProcessingUnit.getOperationTable(quirkProfile);
+            assertEquals(0x10000, operations.length);
+            for (int value = 0; value < 0x10000; value += 0x0F) {
+                if ((value & 0xF0FF) == 0xF002) {
+                    continue;
+                }
+                setUpOperationState(decoded, value);
+                setUpOperationState(table, value);
+                CentralProcessingUnit.decodeOperation(value, quirkProfile).execute(decoded);
+                operations[value].execute(table);
+                String message = "operand " + Integer.toHexString(value) + " quirks " + quirkProfile;
+                assertSameOperationState(message, decoded, table);
+                assertEquals(message, decodedScreen.getFrameHash(), tableScreen.getFrameHash());
+                for (int location = 0; location < 0x0500; location += 0x10) {
+                    assertEquals(message, decodedMemory.readWord(location), tableMemory.readWord(location));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testDisassembleDescribesOperands() {
+        cpu.v[3] = 123;
+        cpu.index = 0x0ABC;
+        assertEquals("CLS", cpu.disassemble(0x00E0));
+        assertEquals("Scroll Down 4", cpu.disassemble(0x00C4));
+        assertEquals("JUMP 123", cpu.disassemble(0x1123));
+        assertEquals("SKE V4, 5A", cpu.disassemble(0x345A));
+        assertEquals("LOADSUB [I], V1, V2", cpu.disassemble(0x5123));
+        assertEquals("SHL VA, VB", cpu.disassemble(0x8ABE));
+        assertEquals("JUMP V0 + 234", cpu.disassemble(0xB234));
+        assertEquals("DRAWEX V1, V2", cpu.disassemble(0xD120));
+        assertEquals("DRAW V1, V2", cpu.disassemble(0xD125));
+        assertEquals("LOADLONG 0ABC", cpu.disassemble(0xF000));
+        assertEquals("BCD V3 (123)", cpu.disassemble(0xF333));
+        assertEquals("READRPL 7", cpu.disassemble(0xF785));
+        assertEquals("Operation E0FF not supported", cpu.disassemble(0xE0FF));
+    }
+
+    @Test
+    public void testDisassembleJumpWithJumpQuirks() {
+        cpu.setJumpQuirks(true);
+        assertEquals("JUMP V2 + 0034", cpu.disassemble(0xB234));
+    }
+
+    @Test
+    public void testFetchIncrementExecuteDoesNotAllocate() throws Throwable {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof ThreadMXBean);
+        ThreadMXBean threadBean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        // The spy made in setUp instruments the CentralProcessingUnit class,
+        // which adds allocations to every call, so the CPU is measured from
+        // a copy of the emulator classes loaded in a separate class loader
+        URL classes = CentralProcessingUnit.class.getProtectionDomain().getCodeSource().getLocation();
+        ClassLoader loader = new URLClassLoader(new URL[]{classes}, ClassLoader.getPlatformClassLoader());
+        Class<?> memoryClass = loader.loadClass(Memory.class.getName());
+        Class<?> keyboardClass = loader.loadClass(Keyboard.class.getName());
+        Class<?> screenClass = loader.loadClass(Screen.class.getName());
+        Class<?> cpuClass = loader.loadClass(CentralProcessingUnit.class.getName());
+        Object isolatedMemory = memoryClass.getConstructor().newInstance();
+        Constructor<?> cpuConstructor = cpuClass.getDeclaredConstructor(memoryClass, keyboardClass, screenClass, boolean.class);
+        cpuConstructor.setAccessible(true);
+        Object isolatedCpu = cpuConstructor.newInstance(isolatedMemory, keyboardClass.getConstructor().newInstance(),
+                screenClass.getConstructor().newInstance(), true);
+        cpuClass.getMethod("setMaxTicks", int.class).invoke(isolatedCpu, Integer.MAX_VALUE);
+        MethodHandle fetchIncrementExecute = MethodHandles.publicLookup()
+                .findVirtual(cpuClass, "fetchIncrementExecute", MethodType.methodType(void.class))
+                .bindTo(isolatedCpu);
+
+        int [] program = {
+                0x60, 0x05,     // LOAD V0, 05
+                0x71, 0x01,     // ADD V1, 01
+                0x80, 0x14,     // ADD V0, V1
+                0xA3, 0x00,     // LOAD I, 300
+                0xD0, 0x15,     // DRAW V0, V1
+                0xF2, 0x33,     // BCD V2
+                0x31, 0x00,     // SKE V1, 00
+                0x22, 0x14,     // CALL 214
+                0x12, 0x00,     // JUMP 200
+                0x00, 0x00,
+                0x00, 0xEE,     // RTS
+        };
+        Method write = memoryClass.getMethod("write", int.class, int.class);
+        for (int i = 0; i < program.length; i++) {
+            write.invoke(isolatedMemory, program[i], 0x0200 + i);
+        }
+
+        for (int i = 0; i < 100000; i++) {
+            fetchIncrementExecute.invokeExact();
+        }
+        long threadId = Thread.currentThread().getId();
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 100000; i++) {
+            fetchIncrementExecute.invokeExact();
+        }
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+        // Anything beyond the bookkeeping of the measurement itself means the
+        // instruction loop is allocating
+        assertTrue("allocated " + allocated + " bytes", allocated < 1024);
+    }
+
+    @Test
+    public void testTicksPerFrameFollowsMaxTicks() {
+        cpu.setMaxTicks(600);
+        assertEquals(10, cpu.getTicksPerFrame());
+        cpu.setMaxTicks(100);
+        assertEquals(3, cpu.getTicksPerFrame());
+    }
+
+    @Test
+    public void testFetchIncrementExecuteIsNotLimitedByTicksPerFrame() {
+        cpu.setMaxTicks(200);
+        for (int tick = 0; tick < cpu.getTicksPerFrame() * 10; tick++) {
+            cpu.fetchIncrementExecute();
+        }
+        assertEquals(CentralProcessingUnit.PROGRAM_COUNTER_START + cpu.getTicksPerFrame() * 20, cpu.pc);
+    }
+
+    @Test
+    public void testRunFrameExecutesTicksPerFrame() {
+        cpu.setMaxTicks(600);
+        assertEquals(10, cpu.runFrame());
+        assertEquals(CentralProcessingUnit.PROGRAM_COUNTER_START + 20, cpu.pc);
+    }
+
+    @Test
+    public void testRunFrameStopsWhileAwaitingKeypress() {
+        cpu = new CentralProcessingUnit(memory, new Keyboard(), screenMock);
+        cpu.setMaxTicks(600);
+        memory.write(0xF3, 0x0204);
+        memory.write(0x0A, 0x0205);
+        assertEquals(3, cpu.runFrame());
+        assertTrue(cpu.isAwaitingKeypress());
+        assertEquals(0, cpu.runFrame());
+        assertEquals(0x0206, cpu.pc);
+    }
+
+    @Test
+    public void testVirtualClockDecrementsTimersOncePerFrame() throws InterruptedException {
+        cpu.setVirtualClock(true);
+        assertTrue(cpu.isVirtualClock());
+        cpu.delay = 10;
+        cpu.sound = 2;
+        Thread.sleep(50);
+        assertEquals(10, cpu.delay);
+        cpu.runFrame();
+        cpu.runFrame();
+        cpu.runFrame();
+        assertEquals(7, cpu.delay);
+        assertEquals(0, cpu.sound);
+    }
+
+    @Test
+    public void testVirtualClockRunsAreReproducible() {
+        int [] program = {
+                0x60, 0x20,     // LOAD V0, 20
+                0xF0, 0x15,     // LOAD DELAY, V0
+                0xF1, 0x07,     // LOAD V1, DELAY
+                0x72, 0x01,     // ADD V2, 01
+                0x31, 0x00,     // SKE V1, 00
+                0x12, 0x04,     // JUMP 204
+                0x12, 0x0C,     // JUMP 20C
+        };
+        short [][] results = new short[2][];
+        for (int run = 0; run < 2; run++) {
+            memory = new Memory();
+            for (int i = 0; i < program.length; i++) {
+                memory.write(program[i], 0x0200 + i);
+            }
+            cpu = new CentralProcessingUnit(memory, keyboardMock, screenMock);
+            cpu.setVirtualClock(true);
+            cpu.setMaxTicks(1000);
+            for (int frame = 0; frame < 40; frame++) {
+                cpu.runFrame();
+            }
+            cpu.kill();
+            assertEquals(0x020C, cpu.pc);
+            results[run] = cpu.v.clone();
+        }
+        assertArrayEquals(results[0], results[1]);
+    }
+
+    // Exercises every quirk, drawing, memory, subroutines and jumps
+    private static final int [] QUIRKS_PROGRAM = {
+            0x60, 0x3C,     // LOAD V0, 3C
+            0x61, 0x1C,     // LOAD V1, 1C
+            0x62, 0xF0,     // LOAD V2, F0
+            0x63, 0x0F,     // LOAD V3, 0F
+            0x82, 0x31,     // OR V2, V3
+            0x82, 0x32,     // AND V2, V3
+            0x82, 0x33,     // XOR V2, V3
+            0x84, 0x26,     // SHR V4, V2
+            0x85, 0x2E,     // SHL V5, V2
+            0xA3, 0x00,     // LOAD I, 300
+            0xF5, 0x55,     // STOR 5
+            0xF5, 0x65,     // READ 5
+            0xD0, 0x18,     // DRAW V0, V1
+            0x70, 0x01,     // ADD V0, 01
+            0x71, 0x01,     // ADD V1, 01
+            0x76, 0x01,     // ADD V6, 01
+            0x36, 0x20,     // SKE V6, 20
+            0x12, 0x08,     // JUMP 208
+            0x22, 0x2C,     // CALL 22C
+            0xB2, 0x30,     // JUMP V0 + 230
+            0x00, 0x00,
+            0xF6, 0x33,     // BCD V6
+            0x00, 0xEE,     // RTS
+            0x12, 0x00,     // JUMP 200
+    };
+
+    private String runProgramWithQuirks(int [] program, int quirks, boolean idleLoopSkipping,
+                                        boolean blockCompilation) {
+        memory = new Memory();
+        for (int i = 0; i < program.length; i++) {
+            memory.write(program[i], 0x0200 + i);
+        }
+        screen = new Screen();
+        cpu = new CentralProcessingUnit(memory, new Keyboard(), screen);
+        cpu.setShiftQuirks((quirks & 0x01) != 0);
+        cpu.setLogicQuirks((quirks & 0x02) != 0);
+        cpu.setJumpQuirks((quirks & 0x04) != 0);
+        cpu.setIndexQuirks((quirks & 0x08) != 0);
+        cpu.setClipQuirks((quirks & 0x10) != 0);
+        cpu.setVirtualClock(true);
+        cpu.setMaxTicks(1234);
+        cpu.idleLoopSkipping = idleLoopSkipping;
+        cpu.blockCompilation = blockCompilation;
+        for (int frame = 0; frame < 40; frame++) {
+            cpu.runFrame();
+        }
+        cpu.kill();
+        StringBuilder state = new StringBuilder(cpu.cpuStatusLine1() + cpu.cpuStatusLine2() + cpu.cpuStatusLine3());
+        for (long[] plane : screen.bitplanes) {
+            for (long word : plane) {
+                state.append(Long.toHexString(word));
+            }
+        }
+        return state.toString();
+    }
+
+    @Test
+    public void testRunFrameWithIdleLoopSkippingMatchesInterpreterForAllQuirks() {
+        for (int quirks = 0; quirks < 32; quirks++) {
+            String interpreted = runProgramWithQuirks(QUIRKS_PROGRAM, quirks, false, false);
+            String skipping = runProgramWithQuirks(QUIRKS_PROGRAM, quirks, true, false);
+            assertEquals(interpreted, skipping);
+        }
+    }
+
+    @Test
+    public void testRunFrameWithBlockCompilationMatchesInterpreterForAllQuirks() {
+        for (int quirks = 0; quirks < 32; quirks++) {
+            String interpreted = runProgramWithQuirks(QUIRKS_PROGRAM, quirks, false, false);
+            assertEquals(interpreted, runProgramWithQuirks(QUIRKS_PROGRAM, quirks, false, true));
+            assertEquals(interpreted, runProgramWithQuirks(QUIRKS_PROGRAM, quirks, true, true));
+        }
+    }
+
+    @Test
+    public void testRunFrameWithBlockCompilationSeesSelfModifyingCode() {
+        int [] program = {
+                0x61, 0x00,     // LOAD V1, 00 - rewritten by STOR below
+                0x82, 0x14,     // ADD V2, V1
+                0x73, 0x01,     // ADD V3, 01
+                0x33, 0x0A,     // SKE V3, 0A
+                0x12, 0x00,     // JUMP 200
+                0x63, 0x00,     // LOAD V3, 00
+                0x70, 0x01,     // ADD V0, 01
+                0xA2, 0x01,     // LOAD I, 201
+                0xF0, 0x55,     // STOR 0
+                0x12, 0x00,     // JUMP 200
+        };
+        for (int quirks = 0; quirks < 32; quirks++) {
+            String interpreted = runProgramWithQuirks(program, quirks, false, false);
+            assertEquals(interpreted, runProgramWithQuirks(program, quirks, true, true));
+        }
+    }
+
+    @Test
+    public void testRunFrameSeesWritesToCode() {
+        cpu.setMaxTicks(600);
+        memory.write(0x61, 0x0200);
+        memory.write(0x05, 0x0201);
+        memory.write(0x12, 0x0202);
+        memory.write(0x00, 0x0203);
+        cpu.runFrame();
+        assertEquals(5, cpu.v[1]);
+
+        memory.write(0x07, 0x0201);
+        cpu.runFrame();
+        assertEquals(7, cpu.v[1]);
+
+        memory.write(0x09, 0x0201);
+        cpu.runFrame();
+        assertEquals(9, cpu.v[1]);
+    }
+
+    @Test
+    public void testRunFrameSeesCodeOverwrittenByStore() {
+        int [] program = {
+                0x63, 0x01,     // LOAD V3, 01
+                0xA2, 0x00,     // LOAD I, 200
+                0x60, 0x64,     // LOAD V0, 64
+                0x61, 0x09,     // LOAD V1, 09
+                0xF1, 0x55,     // STOR 1
+                0x12, 0x00,     // JUMP 200
+        };
+        for (int i = 0; i < program.length; i++) {
+            memory.write(program[i], 0x0200 + i);
+        }
+        cpu.setMaxTicks(600);
+        cpu.runFrame();
+        assertEquals(1, cpu.v[3]);
+        assertEquals(9, cpu.v[4]);
+    }
+
+    @Test
+    public void testGetQuirkProfileReflectsQuirkSetters() {
+        assertEquals(0, cpu.getQuirkProfile());
+        cpu.setShiftQuirks(true);
+        cpu.setJumpQuirks(true);
+        cpu.setClipQuirks(true);
+        assertEquals(CentralProcessingUnit.SHIFT_QUIRKS | CentralProcessingUnit.JUMP_QUIRKS |
+                CentralProcessingUnit.CLIP_QUIRKS, cpu.getQuirkProfile());
+        cpu.setShiftQuirks(false);
+        assertEquals(CentralProcessingUnit.JUMP_QUIRKS | CentralProcessingUnit.CLIP_QUIRKS, cpu.getQuirkProfile());
+    }
+
+    @Test
+    public void testSetQuirkProfileSetsEveryQuirk() {
+        for (int profile = 0; profile < 32; profile++) {
+            cpu.setQuirkProfile(profile);
+            assertEquals(profile, cpu.getQuirkProfile());
+        }
+    }
+
+    @Test
+    public void testOperationTablesAreSharedBetweenProfileChanges() {
+        assertSame(CentralProcessingUnit.OPERATIONS, CentralProcessingUnit.getOperationTable(0));
+        assertSame(CentralProcessingUnit.getOperationTable(0x13), CentralProcessingUnit.getOperationTable(0x13));
+        assertNotSame(CentralProcessingUnit.OPERATIONS, CentralProcessingUnit.getOperationTable(0x13));
+    }
+
+    @Test
+    public void testFetchIncrementExecuteUsesActiveQuirkProfile() {
+        memory.write(0x80, 0x0200);
+        memory.write(0x11, 0x0201);
+        memory.write(0x82, 0x0202);
+        memory.write(0x36, 0x0203);
+
+        cpu.setQuirkProfile(CentralProcessingUnit.LOGIC_QUIRKS | CentralProcessingUnit.SHIFT_QUIRKS);
+        cpu.v[0xF] = 1;
+        cpu.v[2] = 0x04;
+        cpu.v[3] = 0x01;
+        cpu.fetchIncrementExecute();
+        cpu.fetchIncrementExecute();
+        assertEquals(0x02, cpu.v[2]);
+        assertEquals(0, cpu.v[0xF]);
+
+        cpu.setQuirkProfile(0);
+        cpu.pc = 0x0200;
+        cpu.v[0xF] = 1;
+        cpu.fetchIncrementExecute();
+        assertEquals(1, cpu.v[0xF]);
+        cpu.fetchIncrementExecute();
+        assertEquals(0x00, cpu.v[2]);
+        assertEquals(1, cpu.v[0xF]);
+    }
+
+    @Test
+    public void testRunFrameUsesNewQuirksAfterChange() {
+        int [] program = {
+                0x6F, 0x01,     // LOAD VF, 01
+                0x80, 0x11,     // OR V0, V1
+                0x12, 0x00,     // JUMP 200
+        };
+        for (int i = 0; i < program.length; i++) {
+            memory.write(program[i], 0x0200 + i);
+        }
+        cpu.setMaxTicks(540);
+        assertEquals(9, cpu.runFrame());
+        assertEquals(1, cpu.v[0xF]);
+
+        cpu.setLogicQuirks(true);
+        cpu.pc = 0x0200;
+        cpu.runFrame();
+        assertEquals(0, cpu.v[0xF]);
+    }
+
+    @Test
+    public void testIsRegisterOnlyCorrect() {
+        int[] registerOnly = {
+                0x1234, 0x3456, 0x4567, 0x5670, 0x6123, 0x7123, 0x8120, 0x8127, 0x812E,
+                0x9AB0, 0xA123, 0xB123, 0xE19E, 0xE1A1, 0xF107,
+        };
+        int[] notRegisterOnly = {
+                0x00E0, 0x00EE, 0x00FB, 0x2345, 0x5672, 0x5673, 0xC1FF, 0xD123, 0xF000,
+                0xF10A, 0xF115, 0xF118, 0xF11E, 0xF133, 0xF155, 0xF165,
+        };
+        for (int operand : registerOnly) {
+            assertTrue(CentralProcessingUnit.isRegisterOnly(operand));
+        }
+        for (int operand : notRegisterOnly) {
+            assertFalse(CentralProcessingUnit.isRegisterOnly(operand));
+        }
+    }
+
+    private String runFramesWithIdleLoopSkipping(int [] program, int frames, boolean idleLoopSkipping) {
+        memory = new Memory();
+        for (int i = 0; i < program.length; i++) {
+            memory.write(program[i], 0x0200 + i);
+        }
+        screen = new Screen();
+        cpu = new CentralProcessingUnit(memory, new Keyboard(), screen);
+        cpu.setVirtualClock(true);
+        cpu.setMaxTicks(60000);
+        cpu.idleLoopSkipping = idleLoopSkipping;
+        StringBuilder state = new StringBuilder();
+        for (int frame = 0; frame < frames; frame++) {
+            state.append(cpu.runFrame());
+            state.append(cpu.cpuStatusLine1()).append(cpu.cpuStatusLine2()).append(cpu.cpuStatusLine3());
+        }
+        cpu.kill();
+        return state.toString();
+    }
+
+    @Test
+    public void testRunFrameSkipsDelayTimerIdleLoop() {
+        int [] program = {
+                0x60, 0x05,     // LOAD V0, 05
+                0xF0, 0x15,     // LOAD DELAY, V0
+                0xF1, 0x07,     // LOAD V1, DELAY
+                0x31, 0x00,     // SKE V1, 00
+                0x12, 0x04,     // JUMP 204
+                0x72, 0x01,     // ADD V2, 01
+                0x12, 0x00,     // JUMP 200
+        };
+        String expected = runFramesWithIdleLoopSkipping(program, 20, false);
+        assertEquals(0, cpu.getSkippedInstructions());
+        assertEquals(expected, runFramesWithIdleLoopSkipping(program, 20, true));
+        assertTrue(cpu.getSkippedInstructions() > 20 * 900);
+        assertEquals(3, cpu.v[2]);
+    }
+
+    @Test
+    public void testRunFrameSkipsJumpToSelf() {
+        int [] program = {
+                0x60, 0x05,     // LOAD V0, 05
+                0x12, 0x02,     // JUMP 202
+        };
+        String expected = runFramesWithIdleLoopSkipping(program, 3, false);
+        assertEquals(expected, runFramesWithIdleLoopSkipping(program, 3, true));
+        assertEquals(0x0202, cpu.pc);
+        assertTrue(cpu.getSkippedInstructions() > 3 * 990);
+    }
+
+    @Test
+    public void testRunFrameDoesNotSkipLoopThatChangesRegisters() {
+        int [] program = {
+                0x70, 0x01,     // ADD V0, 01
+                0x12, 0x00,     // JUMP 200
+        };
+        String expected = runFramesWithIdleLoopSkipping(program, 3, false);
+        assertEquals(expected, runFramesWithIdleLoopSkipping(program, 3, true));
+        assertEquals(0, cpu.getSkippedInstructions());
+    }
+
+    @Test
+    public void testRunFrameDoesNotSkipLoopThatDraws() {
+        int [] program = {
+                0xA3, 0x00,     // LOAD I, 300
+                0xD0, 0x15,     // DRAW V0, V1
+                0x12, 0x00,     // JUMP 200
+        };
+        String expected = runFramesWithIdleLoopSkipping(program, 3, false);
+        assertEquals(expected, runFramesWithIdleLoopSkipping(program, 3, true));
+        assertEquals(0, cpu.getSkippedInstructions());
+    }
+
+    @Test
+    public void testRunFrameDoesNotSkipLoopThatUsesRandomNumbers() {
+        int [] program = {
+                0xC0, 0x00,     // RAND V0, 00
+                0x12, 0x00,     // JUMP 200
+        };
+        runFramesWithIdleLoopSkipping(program, 3, true);
+        assertEquals(0, cpu.getSkippedInstructions());
+    }
+
+    @Test
+    public void testRunFrameSkipsKeyboardPollingLoopUntilKeyPressed() {
+        int [] program = {
+                0x60, 0x05,     // LOAD V0, 05
+                0xE0, 0x9E,     // SKPR V0
+                0x12, 0x02,     // JUMP 202
+                0x12, 0x06,     // JUMP 206
+        };
+        Keyboard keyboard = new Keyboard();
+        for (int i = 0; i < program.length; i++) {
+            memory.write(program[i], 0x0200 + i);
+        }
+        cpu = new CentralProcessingUnit(memory, keyboard, screenMock);
+        cpu.setMaxTicks(60000);
+        cpu.runFrame();
+        assertTrue(cpu.getSkippedInstructions() > 900);
+
+        keyboard.keypressMap[5] = true;
+        cpu.runFrame();
+        cpu.kill();
+        assertEquals(0x0206, cpu.pc);
+    }
+
+    private void writeProgram(int [] program) {
+        for (int i = 0; i < program.length; i++) {
+            memory.write(program[i], 0x0200 + i);
+        }
+    }
+
+    @Test
+    public void testRunInstructionsRunsExactCount() {
+        writeProgram(new int[] {
+                0x70, 0x01,     // ADD V0, 01
+                0x12, 0x00,     // JUMP 200
+        });
+        cpu = new CentralProcessingUnit(memory, new Keyboard(), screenMock);
+        cpu.setVirtualClock(true);
+        cpu.setMaxTicks(6000);
+        RunResult result = cpu.runInstructions(7);
+        assertEquals(7, result.getInstructions());
+        assertEquals(0, result.getFrames());
+        assertEquals(HaltReason.COMPLETED, result.getHaltReason());
+        assertEquals(4, cpu.v[0]);
+        assertEquals(0x0202, cpu.pc);
+    }
+
+    @Test
+    public void testRunInstructionsCompletesFramesAndTicksVirtualTimers() {
+        writeProgram(new int[] {
+                0x70, 0x01,     // ADD V0, 01
+                0x12, 0x00,     // JUMP 200
+        });
+        cpu = new CentralProcessingUnit(memory, new Keyboard(), screenMock);
+        cpu.setVirtualClock(true);
+        cpu.setMaxTicks(6000);
+        cpu.delay = 10;
+        RunResult result = cpu.runInstructions(250);
+        assertEquals(250, result.getInstructions());
+        assertEquals(2, result.getFrames());
+        assertEquals(8, cpu.delay);
+        assertEquals(50, cpu.runFrame());
+        assertEquals(7, cpu.delay);
+    }
+
+    @Test
+    public void testRunInstructionsMatchesRunFrames() {
+        int [] program = {
+                0x60, 0x3C,     // LOAD V0, 3C
+                0xF0, 0x15,     // LOAD DELAY, V0
+                0xF1, 0x07,     // LOAD V1, DELAY
+                0x31, 0x00,     // SKE V1, 00
+                0x12, 0x04,     // JUMP 204
+                0x72, 0x01,     // ADD V2, 01
+                0x12, 0x00,     // JUMP 200
+        };
+        String expected = runFramesWithIdleLoopSkipping(program, 5, true);
+
+        writeProgram(program);
+        cpu = new CentralProcessingUnit(memory, new Keyboard(), new Screen());
+        cpu.setVirtualClock(true);
+        cpu.setMaxTicks(60000);
+        StringBuilder state = new StringBuilder();
+        for (int frame = 0; frame < 5; frame++) {
+            RunResult result = cpu.runInstructions(1000);
+            assertEquals(1, result.getFrames());
+            state.append(result.getInstructions());
+            state.append(cpu.cpuStatusLine1()).append(cpu.cpuStatusLine2()).append(cpu.cpuStatusLine3());
+        }
+        assertEquals(expected, state.toString());
+
+        cpu.reset();
+        RunResult result = cpu.runFrames(5);
+        assertEquals(5, result.getFrames());
+        assertEquals(5 * 1000, result.getInstructions());
+        assertEquals(HaltReason.COMPLETED, result.getHaltReason());
+    }
+
+    @Test
+    public void testRunFramesStopsOnExit() {
+        writeProgram(new int[] {
+                0x70, 0x01,     // ADD V0, 01
+                0x00, 0xFD,     // EXIT
+                0x70, 0x01,     // ADD V0, 01
+        });
+        cpu = new CentralProcessingUnit(memory, new Keyboard(), screenMock);
+        cpu.setVirtualClock(true);
+        RunResult result = cpu.runFrames(10);
+        assertEquals(2, result.getInstructions());
+        assertEquals(0, result.getFrames());
+        assertEquals(HaltReason.EXIT, result.getHaltReason());
+        assertTrue(cpu.isHalted());
+        assertEquals(1, cpu.v[0]);
+        assertEquals(0, cpu.runFrame());
+        assertEquals(HaltReason.EXIT, cpu.runInstructions(10).getHaltReason());
+    }
+
+    @Test
+    public void testResetClearsHalted() {
+        writeProgram(new int[] {
+                0x00, 0xFD,     // EXIT
+        });
+        cpu = new CentralProcessingUnit(memory, new Keyboard(), screenMock);
+        cpu.setVirtualClock(true);
+        assertEquals(HaltReason.EXIT, cpu.runInstructions(10).getHaltReason());
+        cpu.reset();
+        assertFalse(cpu.isHalted());
+        assertEquals(1, cpu.runInstructions(1).getInstructions());
+    }
+
+    @Test
+    public void testRunFramesStopsWhileAwaitingKeypress() {
+        writeProgram(new int[] {
+                0x70, 0x01,     // ADD V0, 01
+                0xF3, 0x0A,     // LOAD V3, KEY
+        });
+        cpu = new CentralProcessingUnit(memory, new Keyboard(), screenMock);
+        cpu.setVirtualClock(true);
+        cpu.setMaxTicks(6000);
+        RunResult result = cpu.runFrames(10);
+        assertEquals(2, result.getInstructions());
+        assertEquals(1, result.getFrames());
+        assertEquals(HaltReason.AWAITING_KEYPRESS, result.getHaltReason());
+
+        result = cpu.runInstructions(10);
+        assertEquals(0, result.getInstructions());
+        assertEquals(0, result.getFrames());
+        assertEquals(HaltReason.AWAITING_KEYPRESS, result.getHaltReason());
+    }
 }
@@ -0,0 +1,217 @@
+/*
+ * Copyright (C) 2013-2025 Craig Thomas
+ * This project uses an MIT style license - see LICENSE for details.
+ */
+package ca.craigthomas.chip8java.emulator.components;
+
+import static org.junit.Assert.*;
+
+import java.awt.*;
+import java.awt.BufferCapabilities.FlipContents;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the Emulator.
+ */
+public class EmulatorTest
+{
+    private static final String TEST_ROM = "test.chip8";
+    private Emulator emulator;
+
+    @Before
+    public void setUp() {
+        String romFile = getClass().getClassLoader().getResource(TEST_ROM).getFile();
+        emulator = new Emulator(1, 1000, romFile, false, "000000", "FF33CC", "33CCFF", "FFFFFF",
+                false, false, false, false, false, true);
+    }
+
+    @Test
+    public void testHeadlessEmulatorHasNoFrame() {
+        assertTrue(emulator.isHeadless());
+        assertNull(emulator.getEmulatorFrame());
+        assertNull(emulator.getScreen().backBuffer);
+    }
+
+    @Test
+    public void testHeadlessEmulatorLoadsRom() {
+        assertEquals(0x61, emulator.getMemory().read(CentralProcessingUnit.PROGRAM_COUNTER_START));
+    }
+
+    @Test
+    public void testHeadlessStartDeliversFramesAndReturnsWhenKilled() {
+        AtomicInteger frames = new AtomicInteger();
+        int[] pixels = new int[Screen.WIDTH * Screen.HEIGHT];
+        emulator.setFrameListener(screen -> {
+            screen.copyPixels(pixels);
+            if (frames.incrementAndGet() == 3) {
+                emulator.kill();
+            }
+        });
+        emulator.start();
+        assertEquals(3, frames.get());
+        assertNull(emulator.getScreen().backBuffer);
+    }
+
+    @Test
+    public void testStartPacesInstructionsPerFrame() {
+        AtomicInteger frames = new AtomicInteger();
+        emulator.setFrameListener(screen -> {
+            if (frames.incrementAndGet() == 6) {
+                emulator.kill();
+            }
+        });
+        emulator.start();
+        int executed = (emulator.getCPU().pc - CentralProcessingUnit.PROGRAM_COUNTER_START) / 2;
+        assertTrue(executed > 0);
+        assertTrue(executed <= emulator.getCPU().getTicksPerFrame() * 12);
+    }
+
+    @Test
+    public void testTurboUsesVirtualClockAndRestoresIt() {
+        assertFalse(emulator.getCPU().isVirtualClock());
+        emulator.setTurbo(true);
+        assertTrue(emulator.isTurbo());
+        assertTrue(emulator.getCPU().isVirtualClock());
+        emulator.setTurbo(false);
+        assertFalse(emulator.isTurbo());
+        assertFalse(emulator.getCPU().isVirtualClock());
+        emulator.getCPU().kill();
+    }
+
+    @Test
+    public void testVirtualClockSetDuringTurboAppliesAfterTurbo() {
+        emulator.setTurbo(true);
+        emulator.setVirtualClock(true);
+        emulator.setTurbo(false);
+        assertTrue(emulator.getCPU().isVirtualClock());
+    }
+
+    @Test
+    public void testTurboRunsFasterThanRealTime() {
+        AtomicInteger frames = new AtomicInteger();
+        emulator.getMemory().write(0x12, CentralProcessingUnit.PROGRAM_COUNTER_START);
+        emulator.getMemory().write(0x00, CentralProcessingUnit.PROGRAM_COUNTER_START + 1);
+        emulator.setTurbo(true);
+        emulator.setFrameListener(screen -> {
+            if (emulator.getSpeedMultiple() > 2.0 || frames.incrementAndGet() == 120) {
+                emulator.kill();
+            }
+        });
+        emulator.start();
+        assertTrue(emulator.getSpeedMultiple() > 2.0);
+    }
+
+    @Test(timeout = 10000)
+    public void testTurboLetsOtherThreadsUseTheEmulator() throws InterruptedException {
+        emulator.getMemory().write(0x12, CentralProcessingUnit.PROGRAM_COUNTER_START);
+        emulator.getMemory().write(0x00, CentralProcessingUnit.PROGRAM_COUNTER_START + 1);
+        emulator.setTurbo(true);
+        Thread emulation = new Thread(emulator::start);
+        emulation.start();
+        for (int i = 0; i < 200; i++) {
+            assertNotNull(emulator.saveState());
+        }
+        emulator.kill();
+        emulation.join();
+    }
+
+    @Test
+    public void testSetQuirkChangesOnlyThatQuirk() {
+        emulator.setQuirk(CentralProcessingUnit.LOGIC_QUIRKS, true);
+        emulator.setQuirk(CentralProcessingUnit.CLIP_QUIRKS, true);
+        assertEquals(CentralProcessingUnit.LOGIC_QUIRKS | CentralProcessingUnit.CLIP_QUIRKS,
+                emulator.getCPU().getQuirkProfile());
+        emulator.setQuirk(CentralProcessingUnit.LOGIC_QUIRKS, false);
+        assertEquals(CentralProcessingUnit.CLIP_QUIRKS, emulator.getCPU().getQuirkProfile());
+    }
+
+    @Test
+    public void testRunFramesDeliversFramesWithoutSwing() {
+        AtomicInteger frames = new AtomicInteger();
+        emulator.getMemory().write(0x12, CentralProcessingUnit.PROGRAM_COUNTER_START);
+        emulator.getMemory().write(0x00, CentralProcessingUnit.PROGRAM_COUNTER_START + 1);
+        emulator.setVirtualClock(true);
+        emulator.setFrameListener(screen -> frames.incrementAndGet());
+        RunResult result = emulator.runFrames(4);
+        assertEquals(4, result.getFrames());
+        assertEquals(4L * emulator.getCPU().getTicksPerFrame(), result.getInstructions());
+        assertEquals(HaltReason.COMPLETED, result.getHaltReason());
+        assertEquals(4, frames.get());
+        assertNull(emulator.getScreen().backBuffer);
+        emulator.kill();
+    }
+
+    @Test
+    public void testSkipDuplicateFramesOnlyDeliversChangedFrames() {
+        AtomicInteger frames = new AtomicInteger();
+        emulator.getMemory().write(0x12, CentralProcessingUnit.PROGRAM_COUNTER_START);
+        emulator.getMemory().write(0x00, CentralProcessingUnit.PROGRAM_COUNTER_START + 1);
+        emulator.setVirtualClock(true);
+        emulator.setSkipDuplicateFrames(true);
+        emulator.setFrameListener(screen -> frames.incrementAndGet());
+        emulator.runFrames(4);
+        assertEquals(1, frames.get());
+
+        emulator.getScreen().drawPixel(1, 1, true, 1);
+        emulator.runFrames(4);
+        assertEquals(2, frames.get());
+        emulator.kill();
+    }
+
+    @Test
+    public void testRewindReturnsToEarlierFrame() {
+        emulator.setVirtualClock(true);
+        emulator.setRewindSeconds(1);
+        emulator.runFrames(3);
+        byte[] second = emulator.saveState();
+        emulator.runFrames(1);
+        assertTrue(emulator.rewind());
+        assertArrayEquals(second, emulator.saveState());
+        emulator.setRewindSeconds(0);
+        assertFalse(emulator.rewind());
+        emulator.kill();
+    }
+
+    @Test
+    public void testDrawRowsCopiesOnlyTheSpecifiedRows() {
+        BufferedImage buffer = new BufferedImage(Screen.WIDTH * 2, Screen.HEIGHT * 2, BufferedImage.TYPE_INT_RGB);
+        Graphics2D source = buffer.createGraphics();
+        source.setColor(Color.red);
+        source.fillRect(0, 0, buffer.getWidth(), buffer.getHeight());
+        source.dispose();
+
+        BufferedImage target = new BufferedImage(buffer.getWidth(), buffer.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        Emulator.drawRows(graphics, buffer, (1L << 1) | (3L << 3) | (1L << 63), 2);
+        graphics.dispose();
+        for (int y = 0; y < Screen.HEIGHT; y++) {
+            boolean copied = (y == 1) || (y == 3) || (y == 4) || (y == 63);
+            assertEquals(copied ? Color.red.getRGB() : Color.black.getRGB(), target.getRGB(0, y * 2 + 1));
+            assertEquals(copied ? Color.red.getRGB() : Color.black.getRGB(), target.getRGB(255, y * 2));
+        }
+    }
+
+    private static BufferCapabilities capabilities(FlipContents contents) {
+        return new BufferCapabilities(new ImageCapabilities(true), new ImageCapabilities(true), contents);
+    }
+
+    @Test
+    public void testGetRowsToDrawRedrawsChangedRowsWhenBackBufferIsKept() {
+        long changed = (1L << 2) | (1L << 40);
+        assertEquals(changed, Emulator.getRowsToDraw(capabilities(null), changed, 1L << 7));
+        assertEquals(changed, Emulator.getRowsToDraw(capabilities(FlipContents.COPIED), changed, 1L << 7));
+        assertEquals(changed | (1L << 7), Emulator.getRowsToDraw(capabilities(FlipContents.PRIOR), changed, 1L << 7));
+    }
+
+    @Test
+    public void testGetRowsToDrawFallsBackToFullRedrawWhenBackBufferIsUndefined() {
+        for (FlipContents contents : new FlipContents[]{FlipContents.UNDEFINED, FlipContents.BACKGROUND}) {
+            assertEquals(-1L, Emulator.getRowsToDraw(capabilities(contents), 1L << 5, 0));
+            assertEquals(0, Emulator.getRowsToDraw(capabilities(contents), 0, 1L << 5));
+        }
+    }
+}
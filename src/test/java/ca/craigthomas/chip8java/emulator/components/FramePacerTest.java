@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2013-2025 Craig Thomas
+ * This project uses an MIT style license - see LICENSE for details.
+ */
+package ca.craigthomas.chip8java.emulator.components;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Tests for the FramePacer.
+ */
+public class FramePacerTest
+{
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroFramesPerSecondThrowsIllegalArgument() {
+        new FramePacer(0);
+    }
+
+    @Test
+    public void testFramePeriodCorrect() {
+        assertEquals(16_666_666L, new FramePacer(60).getFramePeriod());
+    }
+
+    @Test
+    public void testAwaitNextFrameKeepsRate() {
+        FramePacer pacer = new FramePacer(100);
+        long start = System.nanoTime();
+        for (int frame = 0; frame < 10; frame++) {
+            pacer.awaitNextFrame();
+        }
+        long elapsed = System.nanoTime() - start;
+        assertTrue(elapsed >= 100_000_000L);
+        assertTrue(elapsed < 400_000_000L);
+    }
+
+    @Test
+    public void testAwaitNextFrameDropsFramesWhenFarBehind() throws InterruptedException {
+        FramePacer pacer = new FramePacer(100);
+        Thread.sleep(200);
+        long start = System.nanoTime();
+        pacer.awaitNextFrame();
+        assertTrue(System.nanoTime() - start < 10_000_000L);
+        pacer.awaitNextFrame();
+        assertTrue(System.nanoTime() - start >= 10_000_000L);
+    }
+}
@@ -68,4 +68,59 @@ public class KeyboardTest
         keyboard.keyReleased(event);
         assertFalse(keyboard.isKeyPressed(2));
     }
+
+    @Test
+    public void testSetKeysSetsKeypressMapAndCurrentKey() {
+        keyboard.setKeys((1 << 3) | (1 << 0xA));
+        for (int key = 0; key < 16; key++) {
+            assertEquals((key == 3) || (key == 0xA), keyboard.isKeyPressed(key));
+        }
+        assertEquals(3, keyboard.getCurrentKey());
+
+        keyboard.setKeys(0);
+        assertFalse(keyboard.isKeyPressed(3));
+        assertEquals(-1, keyboard.getCurrentKey());
+    }
+
+    @Test
+    public void testRewindKeyHeldUntilReleased() {
+        when(event.getKeyCode()).thenReturn(KeyEvent.VK_BACK_SPACE);
+        keyboard.keyPressed(event);
+        assertTrue(keyboard.isRewindPressed());
+
+        keyboard.keyReleased(event);
+        assertFalse(keyboard.isRewindPressed());
+    }
+
+    @Test
+    public void testLatchedKeysOnlyChangeOnLatch() {
+        keyboard.setLatched(true);
+        when(event.getKeyCode()).thenReturn(KeyEvent.VK_2);
+        keyboard.keyPressed(event);
+        assertFalse(keyboard.isKeyPressed(2));
+        assertEquals(-1, keyboard.getCurrentKey());
+
+        keyboard.latch();
+        assertTrue(keyboard.isKeyPressed(2));
+        assertEquals(2, keyboard.getCurrentKey());
+
+        keyboard.keyReleased(event);
+        assertTrue(keyboard.isKeyPressed(2));
+        keyboard.latch();
+        assertFalse(keyboard.isKeyPressed(2));
+    }
+
+    @Test
+    public void testKeyStateRoundTrip() {
+        keyboard.setKeys((1 << 3) | (1 << 0xA));
+        int state = keyboard.getKeyState();
+        keyboard.setKeys(0);
+        assertEquals(0, keyboard.getKeyState());
+
+        keyboard.setKeyState(state);
+        assertTrue(keyboard.isKeyPressed(3));
+        assertTrue(keyboard.isKeyPressed(0xA));
+        assertFalse(keyboard.isKeyPressed(4));
+        assertEquals(3, keyboard.getCurrentKey());
+    }
 }
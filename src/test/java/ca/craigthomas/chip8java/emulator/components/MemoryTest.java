@@ -26,7 +26,7 @@ public class MemoryTest
         memory = new Memory();
         random = new Random();
         for (int location = 0; location < Memory.MEMORY_64K; location++) {
-            memory.memory[location] = (short) (random.nextInt(Short.MAX_VALUE + 1) & 0xFF);
+            memory.memory[location] = (byte) random.nextInt(256);
         }
     }
 
@@ -52,7 +52,7 @@ public class MemoryTest
     @Test
     public void testMemoryReadWorksCorrectly() {
         for (int location = 0; location < Memory.MEMORY_64K; location++) {
-            assertEquals(memory.memory[location], memory.read(location));
+            assertEquals(memory.memory[location] & 0xFF, memory.read(location));
         }
     }
     
@@ -61,7 +61,7 @@ public class MemoryTest
         for (int location = 0; location < Memory.MEMORY_64K; location++) {
             short value = (short) (random.nextInt(Short.MAX_VALUE + 1) & 0xFF);
             memory.write(value, location);
-            assertEquals(value, memory.memory[location]);
+            assertEquals(value, memory.memory[location] & 0xFF);
         }
     }
     
@@ -70,6 +70,17 @@ public class MemoryTest
         memory.read(65537);
     }
     
+    @Test(expected=IllegalArgumentException.class)
+    public void testMemoryReadThrowsExceptionWhenLocationEqualsSize() {
+        memory.read(Memory.MEMORY_64K);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testMemoryReadThrowsExceptionWhenLocationEqualsSize4K() {
+        memory = new Memory(true);
+        memory.read(Memory.MEMORY_4K);
+    }
+
     @Test(expected=IllegalArgumentException.class)
     public void testMemoryReadThrowsExceptionWhenLocationNegative() {
         memory.read(-16384);
@@ -80,11 +91,63 @@ public class MemoryTest
         memory.write(0, 65537);
     }
     
+    @Test(expected=IllegalArgumentException.class)
+    public void testMemoryWriteThrowsExceptionWhenLocationEqualsSize() {
+        memory.write(0, Memory.MEMORY_64K);
+    }
+
     @Test(expected=IllegalArgumentException.class)
     public void testMemoryWriteThrowsExceptionWhenLocationNegative() {
         memory.write(0, -16384);
     }
 
+    @Test
+    public void testMemoryStoresValuesAboveSignedByteRange() {
+        memory.write(0xFF, 0x300);
+        memory.write(0x80, 0x301);
+        assertEquals(0xFF, memory.read(0x300));
+        assertEquals(0x80, memory.read(0x301));
+    }
+
+    @Test
+    public void testReadUnsignedWorksCorrectly() {
+        for (int location = 0; location < Memory.MEMORY_64K; location++) {
+            assertEquals(memory.read(location), memory.readUnsigned(location));
+        }
+    }
+
+    @Test
+    public void testReadWordWorksCorrectly() {
+        for (int location = 0; location < Memory.MEMORY_64K - 1; location++) {
+            int expected = (memory.read(location) << 8) | memory.read(location + 1);
+            assertEquals(expected, memory.readWord(location));
+        }
+    }
+
+    @Test
+    public void testWriteUnsignedWritesMemory() {
+        memory.writeUnsigned(0xAB, 0x345);
+        assertEquals(0xAB, memory.read(0x345));
+    }
+
+    @Test
+    public void testUncheckedAccessWrapsAroundEndOfMemory() {
+        memory.writeUnsigned(0xAB, Memory.MEMORY_64K + 0x10);
+        assertEquals(0xAB, memory.read(0x10));
+        assertEquals(0xAB, memory.readUnsigned(Memory.MEMORY_64K + 0x10));
+        memory.write(0xCD, Memory.MEMORY_64K - 1);
+        memory.write(0xEF, 0);
+        assertEquals(0xCDEF, memory.readWord(Memory.MEMORY_64K - 1));
+    }
+
+    @Test
+    public void testUncheckedAccessWrapsAround4kMemory() {
+        Memory memory4k = new Memory(true);
+        memory4k.writeUnsigned(0x12, Memory.MEMORY_4K);
+        assertEquals(0x12, memory4k.read(0));
+        assertEquals(0x12, memory4k.readUnsigned(Memory.MEMORY_4K * 2));
+    }
+
     @Test
     public void testLoadRomIntoMemoryReturnsTrueOnGoodFilename() {
         InputStream inputStream = getClass().getClassLoader().getResourceAsStream(TEST_ROM);
@@ -104,4 +167,11 @@ public class MemoryTest
         assertFalse(memory.loadStreamIntoMemory(null, 0));
     }
 
+    @Test
+    public void testClearZeroesMemory() {
+        memory.clear();
+        for (int location = 0; location < Memory.MEMORY_64K; location++) {
+            assertEquals(0, memory.read(location));
+        }
+    }
 }
@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2013-2025 Craig Thomas
+ * This project uses an MIT style license - see LICENSE for details.
+ */
+package ca.craigthomas.chip8java.emulator.components;
+
+import static org.junit.Assert.*;
+
+import java.awt.*;
+import java.awt.event.KeyEvent;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for recording and replaying a Movie.
+ */
+public class MovieTest
+{
+    // Adds a random number to V3 in a loop, and counts frames with key 0 down in V2
+    private static final int[] PROGRAM = {
+            0xC0, 0xFF, 0x83, 0x04, 0xE1, 0x9E, 0x12, 0x00, 0x72, 0x01, 0x12, 0x00,
+    };
+
+    private Memory memory;
+    private Keyboard keyboard;
+    private CentralProcessingUnit cpu;
+    private Canvas source;
+
+    @Before
+    public void setUp() {
+        memory = new Memory(true);
+        keyboard = new Keyboard();
+        cpu = new CentralProcessingUnit(memory, keyboard, new Screen(), true);
+        cpu.setMaxTicks(600);
+        for (int i = 0; i < PROGRAM.length; i++) {
+            memory.write(PROGRAM[i], CentralProcessingUnit.PROGRAM_COUNTER_START + i);
+        }
+        source = new Canvas();
+    }
+
+    private KeyEvent keyEvent(int id, int keyCode) {
+        return new KeyEvent(source, id, 0, 0, keyCode, KeyEvent.CHAR_UNDEFINED);
+    }
+
+    private Movie record(long seed) {
+        MovieRecorder recorder = new MovieRecorder(cpu, keyboard, seed);
+        for (int frame = 0; frame < 30; frame++) {
+            if (frame == 10) {
+                keyboard.keyPressed(keyEvent(KeyEvent.KEY_PRESSED, KeyEvent.VK_X));
+            }
+            if (frame == 20) {
+                keyboard.keyReleased(keyEvent(KeyEvent.KEY_RELEASED, KeyEvent.VK_X));
+            }
+            recorder.beforeFrame();
+            cpu.runFrame();
+            recorder.afterFrame();
+        }
+        return recorder.finish();
+    }
+
+    @Test
+    public void testRecorderLogsKeyChangesByFrame() {
+        Movie movie = record(42);
+        assertEquals(30, movie.getFrameCount());
+        assertEquals(42, movie.getSeed());
+        assertEquals(10, movie.getTicksPerFrame());
+        assertEquals(Memory.MEMORY_4K, movie.getMemorySize());
+        assertEquals(3, movie.getEventCount());
+        assertEquals(0, movie.getEventFrame(0));
+        assertEquals(10, movie.getEventFrame(1));
+        assertEquals(1 | (1 << 16), movie.getEventKeyState(1));
+        assertEquals(20, movie.getEventFrame(2));
+    }
+
+    @Test
+    public void testReplayReproducesRecordedRun() {
+        Movie movie = record(42);
+        byte[] recorded = cpu.saveState();
+        assertTrue(cpu.v[2] > 0);
+
+        cpu.setQuirkProfile(CentralProcessingUnit.LOGIC_QUIRKS);
+        cpu.setMaxTicks(6000);
+        RunResult result = new MoviePlayer(movie, cpu, keyboard).run();
+        assertEquals(30, result.getFrames());
+        assertEquals(HaltReason.COMPLETED, result.getHaltReason());
+        assertArrayEquals(recorded, cpu.saveState());
+        assertEquals(0, cpu.getQuirkProfile());
+        assertEquals(10, cpu.getTicksPerFrame());
+    }
+
+    @Test
+    public void testDifferentSeedsGiveDifferentRuns() {
+        byte[] start = cpu.saveState();
+        record(1);
+        int first = cpu.v[3];
+        cpu.restoreState(start);
+        record(2);
+        assertNotEquals(first, cpu.v[3]);
+    }
+
+    @Test
+    public void testReplayIgnoresKeyboardEvents() {
+        Movie movie = record(7);
+        byte[] recorded = cpu.saveState();
+
+        MoviePlayer player = new MoviePlayer(movie, cpu, keyboard);
+        keyboard.keyPressed(keyEvent(KeyEvent.KEY_PRESSED, KeyEvent.VK_X));
+        player.run();
+        assertArrayEquals(recorded, cpu.saveState());
+        assertTrue(keyboard.isKeyPressed(0));
+    }
+
+    @Test
+    public void testWriteAndReadRoundTrip() throws IOException {
+        Movie movie = record(99);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        movie.write(output);
+
+        Movie read = Movie.read(new ByteArrayInputStream(output.toByteArray()));
+        assertEquals(movie.getSeed(), read.getSeed());
+        assertEquals(movie.getQuirkProfile(), read.getQuirkProfile());
+        assertEquals(movie.getTicksPerFrame(), read.getTicksPerFrame());
+        assertEquals(movie.getFrameCount(), read.getFrameCount());
+        assertArrayEquals(movie.getStartState(), read.getStartState());
+        assertEquals(movie.getEventCount(), read.getEventCount());
+        for (int event = 0; event < movie.getEventCount(); event++) {
+            assertEquals(movie.getEventFrame(event), read.getEventFrame(event));
+            assertEquals(movie.getEventKeyState(event), read.getEventKeyState(event));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testReadRejectsNonMovie() throws IOException {
+        Movie.read(new ByteArrayInputStream(new byte[64]));
+    }
+
+    @Test
+    public void testEmulatorReplaysRecordedMovie() {
+        Emulator emulator = new Emulator(1, 1000, null, false, "000000", "FF33CC", "33CCFF", "FFFFFF",
+                false, false, false, false, false, true);
+        emulator.getMemory().write(0x12, CentralProcessingUnit.PROGRAM_COUNTER_START);
+        emulator.getMemory().write(0x00, CentralProcessingUnit.PROGRAM_COUNTER_START + 1);
+        emulator.startRecording(5);
+        emulator.runFrames(4);
+        Movie movie = emulator.stopRecording();
+        byte[] recorded = emulator.saveState();
+        assertEquals(4, movie.getFrameCount());
+        assertNull(emulator.stopRecording());
+
+        emulator.playMovie(movie);
+        assertTrue(emulator.isPlayingMovie());
+        assertEquals(4, emulator.runFrames(4).getFrames());
+        assertFalse(emulator.isPlayingMovie());
+        assertArrayEquals(recorded, emulator.saveState());
+        emulator.kill();
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2013-2025 Craig Thomas
+ * This project uses an MIT style license - see LICENSE for details.
+ */
+package ca.craigthomas.chip8java.emulator.components;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the RewindBuffer.
+ */
+public class RewindBufferTest
+{
+    // Draws a moving sprite, stores BCD values and changes the delay timer
+    private static final int[] PROGRAM = {
+            0xA0, 0x00,     // LOAD I, 000
+            0xD0, 0x15,     // DRAW V0, V1, 5
+            0x70, 0x03,     // ADD V0, 03
+            0x71, 0x01,     // ADD V1, 01
+            0xA3, 0x00,     // LOAD I, 300
+            0xF0, 0x33,     // BCD V0
+            0xF0, 0x15,     // LOAD DELAY, V0
+            0x12, 0x00,     // JUMP 200
+    };
+
+    private CentralProcessingUnit cpu;
+
+    @Before
+    public void setUp() {
+        Memory memory = new Memory();
+        cpu = new CentralProcessingUnit(memory, new Keyboard(), new Screen(), true);
+        cpu.setMaxTicks(600);
+        for (int i = 0; i < PROGRAM.length; i++) {
+            memory.write(PROGRAM[i], 0x200 + i);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        cpu.kill();
+    }
+
+    private List<byte[]> recordFrames(RewindBuffer buffer, int frames) {
+        List<byte[]> states = new ArrayList<>();
+        for (int frame = 0; frame < frames; frame++) {
+            cpu.runFrame();
+            buffer.record(cpu);
+            states.add(cpu.saveState());
+        }
+        return states;
+    }
+
+    @Test
+    public void testRewindRestoresEachEarlierFrame() {
+        RewindBuffer buffer = new RewindBuffer(100);
+        List<byte[]> states = recordFrames(buffer, 20);
+        assertEquals(19, buffer.size());
+        for (int frame = 18; frame >= 0; frame--) {
+            assertTrue(buffer.rewind(cpu));
+            assertArrayEquals(states.get(frame), cpu.saveState());
+        }
+        assertFalse(buffer.rewind(cpu));
+        assertArrayEquals(states.get(0), cpu.saveState());
+        assertEquals(0, buffer.getBytes());
+    }
+
+    @Test
+    public void testRecordAfterRewindContinuesFromRewoundFrame() {
+        RewindBuffer buffer = new RewindBuffer(100);
+        List<byte[]> states = recordFrames(buffer, 10);
+        buffer.rewind(cpu);
+        buffer.rewind(cpu);
+        cpu.runFrame();
+        buffer.record(cpu);
+        assertArrayEquals(states.get(8), cpu.saveState());
+        assertTrue(buffer.rewind(cpu));
+        assertArrayEquals(states.get(7), cpu.saveState());
+    }
+
+    @Test
+    public void testDeltasAreMuchSmallerThanStates() {
+        RewindBuffer buffer = new RewindBuffer(100);
+        recordFrames(buffer, 50);
+        assertTrue(buffer.getBytes() < 49L * 200);
+    }
+
+    @Test
+    public void testOldestFramesAreDroppedAtCapacity() {
+        RewindBuffer buffer = new RewindBuffer(5);
+        List<byte[]> states = recordFrames(buffer, 12);
+        assertEquals(5, buffer.size());
+        for (int i = 0; i < 5; i++) {
+            assertTrue(buffer.rewind(cpu));
+        }
+        assertFalse(buffer.rewind(cpu));
+        assertArrayEquals(states.get(6), cpu.saveState());
+    }
+
+    @Test
+    public void testOldestFramesAreDroppedAtByteLimit() {
+        RewindBuffer buffer = new RewindBuffer(100, 100);
+        recordFrames(buffer, 30);
+        assertTrue(buffer.getBytes() <= 100);
+        assertTrue(buffer.size() < 29);
+    }
+
+    @Test
+    public void testClearForgetsEveryFrame() {
+        RewindBuffer buffer = new RewindBuffer(100);
+        recordFrames(buffer, 5);
+        buffer.clear();
+        assertEquals(0, buffer.size());
+        assertFalse(buffer.rewind(cpu));
+    }
+}
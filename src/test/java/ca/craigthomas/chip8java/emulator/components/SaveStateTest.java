@@ -0,0 +1,259 @@
+/*
+ * Copyright (C) 2013-2025 Craig Thomas
+ * This project uses an MIT style license - see LICENSE for details.
+ */
+package ca.craigthomas.chip8java.emulator.components;
+
+import static org.junit.Assert.*;
+
+import static org.mockito.Mockito.*;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import javax.sound.sampled.LineUnavailableException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for saving and restoring the state of the machine.
+ */
+public class SaveStateTest
+{
+    // Draws a moving sprite, stores BCD values and counts the delay timer down
+    private static final int[] PROGRAM = {
+            0xA0, 0x00,     // LOAD I, 000
+            0xD0, 0x15,     // DRAW V0, V1, 5
+            0x70, 0x03,     // ADD V0, 03
+            0x71, 0x01,     // ADD V1, 01
+            0xA3, 0x00,     // LOAD I, 300
+            0xF0, 0x33,     // BCD V0
+            0xF0, 0x15,     // LOAD DELAY, V0
+            0x22, 0x14,     // CALL 214
+            0x12, 0x00,     // JUMP 200
+            0x00, 0x00,
+            0x72, 0x01,     // ADD V2, 01
+            0x00, 0xEE,     // RTS
+    };
+
+    private Memory memory;
+    private Screen screen;
+    private CentralProcessingUnit cpu;
+
+    @Before
+    public void setUp() {
+        memory = new Memory();
+        screen = new Screen();
+        cpu = new CentralProcessingUnit(memory, new Keyboard(), screen, true);
+        cpu.setMaxTicks(600);
+        for (int i = 0; i < PROGRAM.length; i++) {
+            memory.write(PROGRAM[i], 0x200 + i);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        cpu.kill();
+    }
+
+    private String describeMachine() {
+        long[] bitplanes = new long[Screen.BITPLANE_WORDS];
+        screen.copyBitplanes(bitplanes, 0);
+        StringBuilder description = new StringBuilder();
+        description.append(cpu.cpuStatusLine1()).append(cpu.cpuStatusLine2()).append(cpu.cpuStatusLine3());
+        description.append(Arrays.hashCode(bitplanes));
+        description.append(Arrays.hashCode(memory.memory));
+        return description.toString();
+    }
+
+    private void runFrames(int frames) {
+        for (int frame = 0; frame < frames; frame++) {
+            cpu.runFrame();
+        }
+    }
+
+    @Test
+    public void testSaveStateHasExpectedSize() {
+        assertEquals(SaveState.getSize(Memory.MEMORY_64K), cpu.saveState().length);
+        assertEquals(SaveState.HEADER_BYTES + CentralProcessingUnit.STATE_BYTES + Screen.STATE_BYTES +
+                Memory.MEMORY_64K, cpu.saveState().length);
+    }
+
+    @Test
+    public void testRestoreStateReturnsToSavedMachine() {
+        runFrames(7);
+        byte[] state = cpu.saveState();
+        String saved = describeMachine();
+        runFrames(5);
+        String continued = describeMachine();
+        assertNotEquals(saved, continued);
+
+        cpu.restoreState(state);
+        assertEquals(saved, describeMachine());
+        runFrames(5);
+        assertEquals(continued, describeMachine());
+    }
+
+    @Test
+    public void testRestoreStateRestoresExtendedModeAndRegisters() {
+        cpu.mode = CentralProcessingUnit.MODE_EXTENDED;
+        screen.setExtendedScreenMode();
+        cpu.v[3] = 0xFE;
+        cpu.rpl[4] = 0x12;
+        cpu.index = 0x1234;
+        cpu.pitch = 100;
+        cpu.bitplane = 3;
+        cpu.audioPatternBuffer[15] = 0xAA;
+        byte[] state = cpu.saveState();
+
+        cpu.reset();
+        cpu.mode = CentralProcessingUnit.MODE_NORMAL;
+        screen.setNormalScreenMode();
+        cpu.restoreState(state);
+        assertEquals(CentralProcessingUnit.MODE_EXTENDED, cpu.mode);
+        assertEquals(128, screen.getWidth());
+        assertEquals(0xFE, cpu.v[3]);
+        assertEquals(0x12, cpu.rpl[4]);
+        assertEquals(0x1234, cpu.index);
+        assertEquals(100, cpu.pitch);
+        assertEquals(3, cpu.bitplane);
+        assertEquals(0xAA, cpu.audioPatternBuffer[15]);
+    }
+
+    @Test
+    public void testRestoreStateDiscardsCompiledBlocks() {
+        byte[] state = cpu.saveState();
+        memory.write(0x71, 0x206);
+        memory.write(0x05, 0x207);
+        runFrames(1);
+        assertEquals(5, cpu.v[1]);
+        cpu.restoreState(state);
+        runFrames(1);
+        assertEquals(3, cpu.v[0]);
+        assertEquals(1, cpu.v[1]);
+    }
+
+    @Test
+    public void testRestoreStateResumesPartOfFrame() {
+        cpu.runInstructions(1005);
+        byte[] state = cpu.saveState();
+        RunResult continued = cpu.runInstructions(5);
+        String expected = describeMachine();
+        assertEquals(1, continued.getFrames());
+
+        cpu.restoreState(state);
+        assertEquals(1, cpu.runInstructions(5).getFrames());
+        assertEquals(expected, describeMachine());
+    }
+
+    @Test
+    public void testRestoreStateRestoresVirtualClock() {
+        byte[] state = cpu.saveState();
+        cpu.setVirtualClock(false);
+        cpu.restoreState(state);
+        assertTrue(cpu.isVirtualClock());
+
+        cpu.setVirtualClock(false);
+        byte[] wallClockState = cpu.saveState();
+        cpu.setVirtualClock(true);
+        cpu.kill();
+        cpu.restoreState(wallClockState);
+        assertFalse(cpu.isVirtualClock());
+        assertFalse(cpu.isHalted());
+    }
+
+    @Test
+    public void testRestoreStateClearsHalted() {
+        byte[] state = cpu.saveState();
+        cpu.kill();
+        cpu.restoreState(state);
+        assertFalse(cpu.isHalted());
+        assertTrue(cpu.runFrame() > 0);
+    }
+
+    @Test
+    public void testRestoreStateRejectsBadStates() {
+        runFrames(3);
+        byte[] state = cpu.saveState();
+        String saved = describeMachine();
+
+        byte[] badMagic = state.clone();
+        badMagic[0] = 0;
+        byte[] badVersion = state.clone();
+        ByteBuffer.wrap(badVersion).putShort(4, (short) (SaveState.VERSION + 1));
+        byte[] truncated = Arrays.copyOf(state, state.length - 1);
+        Memory smallMemory = new Memory(true);
+        CentralProcessingUnit smallCpu = new CentralProcessingUnit(smallMemory, new Keyboard(), new Screen(), true);
+        byte[] smallState = smallCpu.saveState();
+
+        for (byte[] bad : new byte[][] {badMagic, badVersion, truncated, smallState, new byte[3]}) {
+            try {
+                cpu.restoreState(bad);
+                fail("expected IllegalArgumentException");
+            } catch (IllegalArgumentException e) {
+                assertEquals(saved, describeMachine());
+            }
+        }
+    }
+
+    @Test
+    public void testRestoreStateRejectsBadRegisters() {
+        byte[] state = cpu.saveState();
+        runFrames(3);
+        String current = describeMachine();
+
+        // After pc, index, stack, operand, the V and RPL registers, delay, sound and pitch
+        int bitplaneOffset = SaveState.HEADER_BYTES + 4 * 4 + 16 * 2 + 3;
+        byte[] badBitplane = state.clone();
+        badBitplane[bitplaneOffset] = 4;
+        byte[] negativeBitplane = state.clone();
+        negativeBitplane[bitplaneOffset] = -1;
+        byte[] badMode = state.clone();
+        badMode[bitplaneOffset + 1] = 3;
+        byte[] badFrameTicks = state.clone();
+        ByteBuffer.wrap(badFrameTicks).putInt(bitplaneOffset + 3 + 16, -1);
+
+        for (byte[] bad : new byte[][] {badBitplane, negativeBitplane, badMode, badFrameTicks}) {
+            try {
+                cpu.restoreState(bad);
+                fail("expected IllegalArgumentException");
+            } catch (IllegalArgumentException e) {
+                assertEquals(current, describeMachine());
+                assertEquals(1, cpu.bitplane);
+                assertEquals(CentralProcessingUnit.MODE_NORMAL, cpu.mode);
+            }
+        }
+    }
+
+    @Test
+    public void testRestoreStateGeneratesAudioWaveform() throws Exception {
+        CentralProcessingUnit spy = spy(cpu);
+        doNothing().when(spy).calculateAudioWaveform();
+        spy.pitch = 100;
+        spy.audioPatternBuffer[0] = 0xAA;
+        byte[] state = spy.saveState();
+
+        spy.reset();
+        spy.restoreState(state);
+        verify(spy, times(1)).calculateAudioWaveform();
+        assertEquals(100, spy.pitch);
+        assertEquals(0xAA, spy.audioPatternBuffer[0]);
+
+        spy.restoreState(state);
+        verify(spy, times(1)).calculateAudioWaveform();
+    }
+
+    @Test
+    public void testRestoreStateWithoutAudioDevice() throws Exception {
+        CentralProcessingUnit spy = spy(cpu);
+        doThrow(new LineUnavailableException()).when(spy).calculateAudioWaveform();
+        spy.pitch = 100;
+        byte[] state = spy.saveState();
+
+        spy.reset();
+        spy.restoreState(state);
+        assertEquals(100, spy.pitch);
+    }
+}
@@ -6,8 +6,11 @@ package ca.craigthomas.chip8java.emulator.components;
 
 import static org.junit.Assert.*;
 
+import java.awt.Color;
+import java.awt.image.BufferedImage;
 import java.awt.FontFormatException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -279,6 +282,23 @@ public class ScreenTest
         assertTrue(screen.getPixel(4, 0, 2));
     }
 
+    @Test
+    public void testScrollWithOutOfRangeBitplaneUsesLowTwoBits() throws IOException {
+        screen = new Screen(2);
+        screen.drawPixel(0, 0, true, 1);
+        screen.drawPixel(0, 0, true, 2);
+        screen.scrollRight(7);
+        assertTrue(screen.getPixel(4, 0, 1));
+        assertTrue(screen.getPixel(4, 0, 2));
+        screen.scrollDown(1, 5);
+        assertTrue(screen.getPixel(4, 1, 1));
+        assertTrue(screen.getPixel(4, 0, 2));
+        screen.scrollUp(1, 0xD);
+        screen.scrollLeft(0xC);
+        assertTrue(screen.getPixel(4, 0, 1));
+        assertTrue(screen.getPixel(4, 0, 2));
+    }
+
     @Test
     public void testScrollLeft() throws IOException {
         screen = new Screen(2);
@@ -506,6 +526,285 @@ public class ScreenTest
     @Test
     public void testGetBackBufferWorksCorrectly() {
         screen = new Screen(2);
-        assertEquals(screen.backBuffer, screen.getBuffer());
+        assertNull(screen.backBuffer);
+        BufferedImage buffer = screen.getBuffer();
+        assertEquals(screen.backBuffer, buffer);
+        assertEquals(256, buffer.getWidth());
+        assertEquals(128, buffer.getHeight());
+    }
+
+    @Test
+    public void testCopyPixelsUsesRGBColors() {
+        screen = new Screen(3, 0x000000, 0xFF0000, 0x00FF00, 0xFFFFFF);
+        screen.drawPixel(0, 0, true, 1);
+        screen.drawPixel(1, 0, true, 2);
+        screen.drawPixel(2, 0, true, 3);
+        int[] pixels = new int[Screen.WIDTH * Screen.HEIGHT];
+        screen.copyPixels(pixels);
+        assertEquals(0xFFFF0000, pixels[0]);
+        assertEquals(0xFFFF0000, pixels[Screen.WIDTH + 1]);
+        assertEquals(0xFF00FF00, pixels[2]);
+        assertEquals(0xFFFFFFFF, pixels[4]);
+        assertEquals(0xFF000000, pixels[6]);
+        assertNull(screen.backBuffer);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroScaleFactorThrowsIllegalArgument() {
+        screen = new Screen(0);
+    }
+
+    @Test
+    public void testGetBufferRendersBitplaneColors() {
+        screen = new Screen(2, Color.black, Color.red, Color.green, Color.white);
+        screen.drawPixel(0, 0, true, 1);
+        screen.drawPixel(1, 0, true, 2);
+        screen.drawPixel(2, 0, true, 3);
+        assertEquals(Color.red.getRGB(), screen.getBuffer().getRGB(0, 0));
+        assertEquals(Color.red.getRGB(), screen.getBuffer().getRGB(3, 3));
+        assertEquals(Color.green.getRGB(), screen.getBuffer().getRGB(4, 0));
+        assertEquals(Color.white.getRGB(), screen.getBuffer().getRGB(8, 0));
+        assertEquals(Color.black.getRGB(), screen.getBuffer().getRGB(12, 0));
+    }
+
+    @Test
+    public void testGetBufferRendersChangesAfterFirstRender() {
+        screen = new Screen(1, Color.black, Color.red, Color.green, Color.white);
+        assertEquals(Color.black.getRGB(), screen.getBuffer().getRGB(0, 0));
+        screen.drawPixel(0, 0, true, 1);
+        assertEquals(Color.red.getRGB(), screen.getBuffer().getRGB(0, 0));
+        screen.clearScreen(3);
+        assertEquals(Color.black.getRGB(), screen.getBuffer().getRGB(0, 0));
+    }
+
+    @Test
+    public void testGetBufferScalesEveryPixelToABlock() {
+        screen = new Screen(3, Color.black, Color.red, Color.green, Color.white);
+        screen.setExtendedScreenMode();
+        screen.drawPixel(127, 63, true, 3);
+        screen.drawPixel(64, 0, true, 2);
+        BufferedImage buffer = screen.getBuffer();
+        assertEquals(BufferedImage.TYPE_INT_RGB, buffer.getType());
+        for (int offset = 0; offset < 3; offset++) {
+            assertEquals(Color.white.getRGB(), buffer.getRGB(381 + offset, 189 + offset));
+            assertEquals(Color.green.getRGB(), buffer.getRGB(192 + offset, 2 - offset));
+        }
+        assertEquals(Color.black.getRGB(), buffer.getRGB(380, 189));
+        assertEquals(Color.black.getRGB(), buffer.getRGB(381, 188));
+        assertEquals(Color.black.getRGB(), buffer.getRGB(191, 0));
+        assertEquals(Color.black.getRGB(), buffer.getRGB(195, 0));
+    }
+
+    @Test
+    public void testScrollRightAndLeftCrossWordBoundary() {
+        screen.setExtendedScreenMode();
+        screen.drawPixel(62, 10, true, 1);
+        screen.drawPixel(127, 11, true, 1);
+        screen.scrollRight(1);
+        assertTrue(screen.getPixel(66, 10, 1));
+        assertFalse(screen.getPixel(62, 10, 1));
+        for (int x = 0; x < Screen.WIDTH; x++) {
+            assertFalse(screen.getPixel(x, 11, 1));
+        }
+
+        screen.scrollLeft(1);
+        assertTrue(screen.getPixel(62, 10, 1));
+        assertFalse(screen.getPixel(66, 10, 1));
+        assertFalse(screen.getPixel(127, 11, 1));
+    }
+
+    @Test
+    public void testScrollInNormalModeMovesWholePixels() {
+        screen.drawPixel(30, 3, true, 3);
+        screen.scrollRight(3);
+        assertTrue(screen.getPixel(34, 3, 1));
+        assertTrue(screen.getPixel(34, 3, 2));
+        screen.scrollDown(2, 3);
+        assertTrue(screen.getPixel(34, 5, 3));
+        screen.setExtendedScreenMode();
+        assertTrue(screen.getPixel(69, 11, 3));
+        assertFalse(screen.getPixel(69, 12, 3));
+    }
+
+    @Test
+    public void testScrollByZeroOrWholeScreen() {
+        screen.setExtendedScreenMode();
+        screen.drawPixel(5, 5, true, 2);
+        screen.scrollDown(0, 2);
+        assertTrue(screen.getPixel(5, 5, 2));
+        screen.scrollUp(Screen.HEIGHT, 2);
+        for (int y = 0; y < Screen.HEIGHT; y++) {
+            assertFalse(screen.getPixel(5, y, 2));
+        }
+    }
+
+    @Test
+    public void testScrollOnlyChangesSelectedBitplane() {
+        screen.drawPixel(10, 10, true, 3);
+        screen.scrollUp(4, 2);
+        assertTrue(screen.getPixel(10, 10, 1));
+        assertFalse(screen.getPixel(10, 10, 2));
+        assertTrue(screen.getPixel(10, 6, 2));
+        assertFalse(screen.getPixel(10, 6, 1));
+    }
+
+    @Test
+    public void testFrameHashDependsOnlyOnContents() {
+        Screen other = new Screen();
+        assertEquals(0L, screen.getFrameHash());
+
+        screen.drawPixel(3, 4, true, 1);
+        screen.xorSpriteRow(10, 20, 0xF0, 8, 2);
+        other.xorSpriteRow(10, 20, 0xF0, 8, 2);
+        other.drawPixel(3, 4, true, 1);
+        assertNotEquals(0L, screen.getFrameHash());
+        assertEquals(screen.getFrameHash(), other.getFrameHash());
+
+        other.scrollRight(3);
+        assertNotEquals(screen.getFrameHash(), other.getFrameHash());
+        other.scrollLeft(3);
+        assertEquals(screen.getFrameHash(), other.getFrameHash());
+
+        other.xorSpriteRow(10, 20, 0xF0, 8, 2);
+        assertNotEquals(screen.getFrameHash(), other.getFrameHash());
+        other.clearScreen(3);
+        assertEquals(0L, other.getFrameHash());
+    }
+
+    @Test
+    public void testFrameHashDistinguishesBitplanesAndPositions() {
+        Screen other = new Screen();
+        screen.drawPixel(3, 4, true, 1);
+        other.drawPixel(3, 4, true, 2);
+        assertNotEquals(screen.getFrameHash(), other.getFrameHash());
+
+        other.clearScreen(2);
+        other.drawPixel(4, 3, true, 1);
+        assertNotEquals(screen.getFrameHash(), other.getFrameHash());
+    }
+
+    @Test
+    public void testFrameHashFollowsCopyAndSaveState() {
+        Screen other = new Screen();
+        screen.xorSpriteRow(40, 9, 0xAA, 8, 1);
+        screen.copyTo(other);
+        assertEquals(screen.getFrameHash(), other.getFrameHash());
+
+        ByteBuffer buffer = ByteBuffer.allocate(Screen.STATE_BYTES);
+        screen.writeState(buffer);
+        buffer.flip();
+        Screen restored = new Screen();
+        restored.readState(buffer);
+        assertEquals(screen.getFrameHash(), restored.getFrameHash());
+    }
+
+    @Test
+    public void testCopyToCopiesFrameAndFlagsChangedRows() {
+        screen = new Screen(2);
+        Screen target = new Screen(2);
+        target.updateBuffer();
+        screen.setExtendedScreenMode();
+        screen.drawPixel(70, 5, true, 2);
+        screen.copyTo(target);
+        assertTrue(target.getPixel(70, 5, 2));
+        assertEquals(128, target.getWidth());
+        assertEquals(1L << 5, target.updateBuffer());
+
+        screen.copyTo(target);
+        assertEquals(0L, target.updateBuffer());
+    }
+
+    @Test
+    public void testUpdateBufferRendersOnlyChangedRows() {
+        screen = new Screen(2);
+        assertEquals(-1L, screen.updateBuffer());
+        assertEquals(0L, screen.updateBuffer());
+
+        screen.xorSpriteRow(0, 3, 0x80, 8, 1);
+        assertEquals(3L << 6, screen.updateBuffer());
+
+        screen.setExtendedScreenMode();
+        screen.xorSpriteRow(0, 40, 0x80, 8, 2);
+        screen.drawPixel(5, 9, true, 1);
+        assertEquals((1L << 40) | (1L << 9), screen.updateBuffer());
+
+        screen.clearScreen(1);
+        assertEquals(-1L, screen.updateBuffer());
+        assertEquals(0L, screen.updateBuffer());
+    }
+
+    @Test
+    public void testNormalModePixelCoversExtendedModeBlock() {
+        screen.drawPixel(1, 1, true, 1);
+        screen.setExtendedScreenMode();
+        assertTrue(screen.getPixel(2, 2, 1));
+        assertTrue(screen.getPixel(3, 2, 1));
+        assertTrue(screen.getPixel(2, 3, 1));
+        assertTrue(screen.getPixel(3, 3, 1));
+        assertFalse(screen.getPixel(1, 1, 1));
+        assertFalse(screen.getPixel(4, 2, 1));
+        assertFalse(screen.getPixel(2, 2, 2));
+    }
+
+    @Test
+    public void testXorSpriteRowWrapsAroundRightEdge() {
+        screen.setExtendedScreenMode();
+        assertEquals(0, screen.xorSpriteRow(124, 3, 0xFFFF, 16, 1));
+        for (int x = 0; x < 128; x++) {
+            assertEquals(x >= 124 || x < 12, screen.getPixel(x, 3, 1));
+            assertFalse(screen.getPixel(x, 3, 2));
+        }
+    }
+
+    @Test
+    public void testXorSpriteRowReturnsNumberOfPixelsTurnedOff() {
+        screen.setExtendedScreenMode();
+        screen.xorSpriteRow(60, 0, 0xF0, 8, 2);
+        assertEquals(2, screen.xorSpriteRow(62, 0, 0xC3, 8, 2));
+        assertTrue(screen.getPixel(60, 0, 2));
+        assertTrue(screen.getPixel(61, 0, 2));
+        assertFalse(screen.getPixel(62, 0, 2));
+        assertFalse(screen.getPixel(63, 0, 2));
+        assertFalse(screen.getPixel(64, 0, 2));
+        assertTrue(screen.getPixel(68, 0, 2));
+        assertTrue(screen.getPixel(69, 0, 2));
+    }
+
+    @Test
+    public void testXorSpriteRowNormalModeDrawsPixelBlocks() {
+        assertEquals(0, screen.xorSpriteRow(62, 31, 0xF0, 8, 1));
+        assertTrue(screen.getPixel(62, 31, 1));
+        assertTrue(screen.getPixel(63, 31, 1));
+        assertTrue(screen.getPixel(0, 31, 1));
+        assertTrue(screen.getPixel(1, 31, 1));
+        assertFalse(screen.getPixel(2, 31, 1));
+        screen.setExtendedScreenMode();
+        assertTrue(screen.getPixel(124, 62, 1));
+        assertTrue(screen.getPixel(127, 63, 1));
+        assertTrue(screen.getPixel(3, 63, 1));
+        assertFalse(screen.getPixel(4, 63, 1));
+        assertEquals(4, screen.xorSpriteRow(0, 63, 0xF000, 16, 1));
+    }
+
+    @Test
+    public void testXorSpriteRowOnBitplane0DoesNothing() {
+        assertEquals(0, screen.xorSpriteRow(0, 0, 0xFF, 8, 0));
+        assertFalse(screen.getPixel(0, 0, 1));
+        assertFalse(screen.getPixel(0, 0, 2));
+    }
+
+    @Test
+    public void testCopyBitplanesCopiesBothPlanes() {
+        screen.setExtendedScreenMode();
+        screen.drawPixel(0, 0, true, 1);
+        screen.drawPixel(127, 63, true, 2);
+        long[] packed = new long[Screen.BITPLANE_WORDS + 1];
+        screen.copyBitplanes(packed, 1);
+        assertEquals(0L, packed[0]);
+        assertEquals(0x8000000000000000L, packed[1]);
+        assertEquals(1L, packed[Screen.BITPLANE_WORDS]);
+        for (int i = 2; i < Screen.BITPLANE_WORDS; i++) {
+            assertEquals(0L, packed[i]);
+        }
     }
 }
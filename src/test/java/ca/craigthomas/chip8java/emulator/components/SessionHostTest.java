@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2013-2025 Craig Thomas
+ * This project uses an MIT style license - see LICENSE for details.
+ */
+package ca.craigthomas.chip8java.emulator.components;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the SessionHost.
+ */
+public class SessionHostTest
+{
+    // Counts up in V0 forever
+    private static final byte[] COUNTER_ROM = {
+            0x70, 0x01,             // ADD V0, 01
+            0x12, 0x00,             // JUMP 200
+    };
+
+    // Exits straight away
+    private static final byte[] EXIT_ROM = {
+            0x00, (byte) 0xFD,      // EXIT
+    };
+
+    private SessionHost host;
+
+    @Before
+    public void setUp() {
+        host = new SessionHost(2, 2000);
+    }
+
+    @After
+    public void tearDown() {
+        host.close();
+    }
+
+    @Test
+    public void testCreateSessionLoadsFontAndRom() {
+        EmulatorSession session = host.createSession(COUNTER_ROM);
+        assertEquals(0xF0, session.getMemory().read(0));
+        assertEquals(0x70, session.getMemory().read(CentralProcessingUnit.PROGRAM_COUNTER_START));
+        assertEquals(Memory.MEMORY_4K, session.getMemory().getSize());
+        assertTrue(session.getCPU().isVirtualClock());
+        assertNull(session.getScreen().backBuffer);
+    }
+
+    @Test
+    public void testCreateSessionGivesUniqueIds() {
+        EmulatorSession first = host.createSession(COUNTER_ROM);
+        EmulatorSession second = host.createSession(COUNTER_ROM);
+        assertNotEquals(first.getId(), second.getId());
+        assertEquals(2, host.getSessions().size());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testCreateSessionFailsWhenHostIsFull() {
+        host.close();
+        host = new SessionHost(1, 1);
+        host.createSession(COUNTER_ROM);
+        host.createSession(COUNTER_ROM);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCreateSessionFailsWhenRomDoesNotFit() {
+        host.createSession(new byte[Memory.MEMORY_4K]);
+    }
+
+    @Test
+    public void testRunFramesRunsEverySessionForEveryFrame() throws InterruptedException {
+        for (int i = 0; i < 1000; i++) {
+            host.createSession(COUNTER_ROM);
+        }
+        host.setSliceFrames(3);
+        long executed = host.runFrames(10);
+        long expected = 0;
+        for (EmulatorSession session : host.getSessions()) {
+            assertEquals(10, session.getFrames());
+            assertEquals(HaltReason.COMPLETED, session.getHaltReason());
+            assertTrue(session.getInstructionsPerSecond() > 0.0);
+            assertTrue(session.getFramesPerSecond() > 0.0);
+            expected += session.getInstructions();
+        }
+        assertEquals(expected, executed);
+        assertEquals(10L * 1000 * host.getSessions().get(0).getCPU().getTicksPerFrame(), executed);
+    }
+
+    @Test
+    public void testSessionsAreIndependent() throws InterruptedException {
+        EmulatorSession slow = host.createSession(COUNTER_ROM, 600, 0, true);
+        EmulatorSession fast = host.createSession(COUNTER_ROM, 1200, 0, false);
+        host.runFrames(2);
+        assertEquals(10, slow.getCPU().v[0]);
+        assertEquals(20, fast.getCPU().v[0]);
+    }
+
+    @Test
+    public void testHaltedSessionsDropOut() throws InterruptedException {
+        EmulatorSession exits = host.createSession(EXIT_ROM);
+        EmulatorSession counts = host.createSession(COUNTER_ROM);
+        host.runFrames(5);
+        assertTrue(exits.isHalted());
+        assertEquals(HaltReason.EXIT, exits.getHaltReason());
+        assertEquals(1, exits.getInstructions());
+        assertEquals(0, exits.getFrames());
+        assertEquals(5, counts.getFrames());
+    }
+
+    @Test
+    public void testFailingSessionKeepsError() throws InterruptedException {
+        EmulatorSession fails = host.createSession(COUNTER_ROM);
+        EmulatorSession counts = host.createSession(COUNTER_ROM);
+        fails.setFrameListener(screen -> {
+            throw new IllegalStateException("listener failed");
+        });
+        host.runFrames(3);
+        assertTrue(fails.isHalted());
+        assertTrue(fails.getError() instanceof IllegalStateException);
+        assertNull(counts.getError());
+        assertEquals(3, counts.getFrames());
+    }
+
+    @Test(expected = StackOverflowError.class)
+    public void testRunFramesRethrowsErrorsFromSessions() throws InterruptedException {
+        host.createSession(COUNTER_ROM);
+        EmulatorSession fails = host.createSession(COUNTER_ROM);
+        fails.setFrameListener(screen -> {
+            throw new StackOverflowError();
+        });
+        host.runFrames(3);
+    }
+
+    @Test
+    public void testRemoveSessionHaltsIt() throws InterruptedException {
+        EmulatorSession session = host.createSession(COUNTER_ROM);
+        host.removeSession(session);
+        assertTrue(session.isHalted());
+        assertEquals(0, host.runFrames(1));
+        List<EmulatorSession> sessions = host.getSessions();
+        assertTrue(sessions.isEmpty());
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2013-2025 Craig Thomas
+ * This project uses an MIT style license - see LICENSE for details.
+ */
+package ca.craigthomas.chip8java.emulator.components;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the TripleBuffer.
+ */
+public class TripleBufferTest
+{
+    private TripleBuffer<long[]> buffer;
+
+    @Before
+    public void setUp() {
+        buffer = new TripleBuffer<>(() -> new long[16]);
+    }
+
+    private void publish(long value) {
+        java.util.Arrays.fill(buffer.getBack(), value);
+        buffer.publish();
+    }
+
+    @Test
+    public void testAcquireReturnsNullUntilPublished() {
+        assertNull(buffer.acquire());
+        publish(1);
+        assertEquals(1, buffer.acquire()[0]);
+        assertNull(buffer.acquire());
+    }
+
+    @Test
+    public void testAcquireReturnsLatestPublished() {
+        publish(1);
+        publish(2);
+        publish(3);
+        assertEquals(3, buffer.acquire()[0]);
+        assertNull(buffer.acquire());
+    }
+
+    @Test
+    public void testProducerNeverWritesAcquiredSlot() {
+        publish(1);
+        long[] acquired = buffer.acquire();
+        for (int value = 2; value < 10; value++) {
+            assertNotSame(acquired, buffer.getBack());
+            publish(value);
+        }
+        assertEquals(1, acquired[0]);
+        assertEquals(9, buffer.acquire()[0]);
+    }
+
+    @Test
+    public void testConcurrentHandoffNeverTearsOrGoesBackwards() throws InterruptedException {
+        AtomicBoolean done = new AtomicBoolean();
+        Thread producer = new Thread(() -> {
+            for (long value = 1; value <= 200_000; value++) {
+                publish(value);
+            }
+            done.set(true);
+        });
+        producer.start();
+
+        long last = 0;
+        while (!done.get() || last < 200_000) {
+            long[] acquired = buffer.acquire();
+            if (acquired == null) {
+                continue;
+            }
+            for (long word : acquired) {
+                assertEquals(acquired[0], word);
+            }
+            assertTrue(acquired[0] > last);
+            last = acquired[0];
+        }
+        producer.join();
+        assertEquals(200_000, last);
+    }
+}
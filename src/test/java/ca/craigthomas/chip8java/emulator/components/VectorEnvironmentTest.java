@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2013-2025 Craig Thomas
+ * This project uses an MIT style license - see LICENSE for details.
+ */
+package ca.craigthomas.chip8java.emulator.components;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests for the VectorEnvironment.
+ */
+public class VectorEnvironmentTest
+{
+    // Waits for key 5, then draws the 0 character and spins
+    private static final byte[] DRAW_ON_KEY_ROM = {
+            0x60, 0x05,             // LOAD V0, 05
+            (byte) 0xE0, (byte) 0x9E, // SKPR V0
+            0x12, 0x02,             // JUMP 202
+            (byte) 0xA0, 0x00,      // LOAD I, 000
+            (byte) 0xD1, 0x25,      // DRAW V1, V2, 5
+            0x12, 0x0A,             // JUMP 20A
+    };
+
+    // Counts once and exits
+    private static final byte[] EXIT_ROM = {
+            0x70, 0x01,             // ADD V0, 01
+            0x00, (byte) 0xFD,      // EXIT
+    };
+
+    private VectorEnvironment environment;
+
+    @After
+    public void tearDown() {
+        environment.close();
+    }
+
+    private static boolean isObservationBlank(long[] observations, int session) {
+        for (int i = 0; i < Screen.BITPLANE_WORDS; i++) {
+            if (observations[session * Screen.BITPLANE_WORDS + i] != 0L) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Test
+    public void testStepAppliesActionsToEachSession() throws InterruptedException {
+        environment = new VectorEnvironment(DRAW_ON_KEY_ROM, 2, 1, 600, 0, null, 2);
+        long[] observations = environment.step(new int[] {1 << 5, 0});
+        assertEquals(2 * Screen.BITPLANE_WORDS, observations.length);
+        assertEquals(0xFF00000000000000L, observations[0]);
+        assertEquals(0xFF00000000000000L, observations[Screen.WORDS_PER_ROW]);
+        assertTrue(isObservationBlank(observations, 1));
+        assertSame(observations, environment.step(new int[] {0, 0}));
+        assertSame(observations, environment.getObservations());
+    }
+
+    @Test
+    public void testStepComputesRewards() throws InterruptedException {
+        environment = new VectorEnvironment(DRAW_ON_KEY_ROM, 3, 1, 600, 0,
+                session -> session.getCPU().v[0] + session.getId(), 1);
+        environment.step(new int[] {0, 0, 0});
+        assertArrayEquals(new double[] {5.0, 6.0, 7.0}, environment.getRewards(), 0.0);
+    }
+
+    @Test
+    public void testDoneSessionsRestart() throws InterruptedException {
+        environment = new VectorEnvironment(EXIT_ROM, 2, 1, 600, 0, session -> session.getCPU().v[0], 2);
+        environment.step(new int[] {0, 0});
+        assertArrayEquals(new boolean[] {true, true}, environment.getDones());
+        assertArrayEquals(new double[] {1.0, 1.0}, environment.getRewards(), 0.0);
+        EmulatorSession session = environment.getSession(0);
+        assertFalse(session.isHalted());
+        assertEquals(CentralProcessingUnit.PROGRAM_COUNTER_START, session.getCPU().pc);
+        assertEquals(0, session.getCPU().v[0]);
+    }
+
+    @Test
+    public void testResetRestartsEverySession() throws InterruptedException {
+        environment = new VectorEnvironment(DRAW_ON_KEY_ROM, 2, 2, 600, 0, null, 1);
+        environment.step(new int[] {1 << 5, 1 << 5});
+        assertFalse(isObservationBlank(environment.getObservations(), 1));
+        long[] observations = environment.reset();
+        assertTrue(isObservationBlank(observations, 0));
+        assertTrue(isObservationBlank(observations, 1));
+        assertEquals(CentralProcessingUnit.PROGRAM_COUNTER_START, environment.getSession(1).getCPU().pc);
+        assertFalse(environment.getSession(1).getKeyboard().isKeyPressed(5));
+    }
+
+    @Test
+    public void testParallelStepsMatchSequentialSteps() throws InterruptedException {
+        environment = new VectorEnvironment(DRAW_ON_KEY_ROM, 7, 1, 600, 0, null, 1);
+        VectorEnvironment parallel = new VectorEnvironment(DRAW_ON_KEY_ROM, 7, 1, 600, 0, null, 3);
+        Random random = new Random(17);
+        int[] actions = new int[7];
+        for (int step = 0; step < 10; step++) {
+            for (int i = 0; i < actions.length; i++) {
+                actions[i] = random.nextInt(4) == 0 ? 1 << 5 : 0;
+            }
+            assertArrayEquals(environment.step(actions), parallel.step(actions));
+        }
+        parallel.close();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testStepRethrowsRewardFunctionFailureFromWorkers() throws InterruptedException {
+        environment = new VectorEnvironment(DRAW_ON_KEY_ROM, 4, 1, 600, 0, session -> {
+            throw new IllegalStateException("reward failed");
+        }, 2);
+        environment.step(new int[4]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testStepFailsOnWrongNumberOfActions() throws InterruptedException {
+        environment = new VectorEnvironment(DRAW_ON_KEY_ROM, 2, 1, 600, 0, null, 1);
+        environment.step(new int[1]);
+    }
+}
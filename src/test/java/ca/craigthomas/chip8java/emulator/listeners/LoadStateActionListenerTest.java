@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2013-2025 Craig Thomas
+ * This project uses an MIT style license - see LICENSE for details.
+ */
+package ca.craigthomas.chip8java.emulator.listeners;
+
+import ca.craigthomas.chip8java.emulator.components.Emulator;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.swing.*;
+import java.awt.event.ActionEvent;
+import java.io.File;
+import java.io.IOException;
+
+import static org.mockito.Mockito.*;
+
+public class LoadStateActionListenerTest
+{
+    private static final byte[] STATE = {1, 2, 3};
+
+    private Emulator emulator;
+    private LoadStateActionListener listenerSpy;
+    private ActionEvent mockItemEvent;
+    private JFileChooser fileChooser;
+
+    @Before
+    public void setUp() throws IOException {
+        emulator = mock(Emulator.class);
+
+        File file = new File("test.c8s");
+        fileChooser = mock(JFileChooser.class);
+        when(fileChooser.getSelectedFile()).thenReturn(file);
+        when(fileChooser.showOpenDialog(any())).thenReturn(JFileChooser.APPROVE_OPTION);
+
+        LoadStateActionListener listener = new LoadStateActionListener(emulator);
+        listenerSpy = spy(listener);
+        mockItemEvent = mock(ActionEvent.class);
+        when(listenerSpy.createFileChooser()).thenReturn(fileChooser);
+        doReturn(STATE).when(listenerSpy).readState(file);
+    }
+
+    @Test
+    public void testLoadStateRestoresStateFromChosenFile() {
+        listenerSpy.actionPerformed(mockItemEvent);
+        verify(fileChooser, times(1)).showOpenDialog(any());
+        verify(emulator, times(1)).restoreState(STATE);
+    }
+
+    @Test
+    public void testLoadStateRestoresNothingWhenCancelled() {
+        when(fileChooser.showOpenDialog(any())).thenReturn(JFileChooser.CANCEL_OPTION);
+        listenerSpy.actionPerformed(mockItemEvent);
+        verify(emulator, never()).restoreState(any());
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2013-2025 Craig Thomas
+ * This project uses an MIT style license - see LICENSE for details.
+ */
+package ca.craigthomas.chip8java.emulator.listeners;
+
+import ca.craigthomas.chip8java.emulator.components.CentralProcessingUnit;
+import ca.craigthomas.chip8java.emulator.components.Emulator;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.swing.*;
+import java.awt.event.ActionEvent;
+
+import static org.mockito.Mockito.*;
+
+public class QuirkMenuItemActionListenerTest
+{
+    private QuirkMenuItemActionListener listener;
+    private ButtonModel buttonModel;
+    private ActionEvent mockItemEvent;
+    private Emulator emulator;
+
+    @Before
+    public void setUp() {
+        emulator = mock(Emulator.class);
+        listener = new QuirkMenuItemActionListener(emulator, CentralProcessingUnit.CLIP_QUIRKS);
+        buttonModel = mock(ButtonModel.class);
+        AbstractButton button = mock(AbstractButton.class);
+        when(button.getModel()).thenReturn(buttonModel);
+        mockItemEvent = mock(ActionEvent.class);
+        when(mockItemEvent.getSource()).thenReturn(button);
+    }
+
+    @Test
+    public void testQuirkTurnedOnWhenSelected() {
+        when(buttonModel.isSelected()).thenReturn(true);
+        listener.actionPerformed(mockItemEvent);
+        verify(emulator, times(1)).setQuirk(CentralProcessingUnit.CLIP_QUIRKS, true);
+    }
+
+    @Test
+    public void testQuirkTurnedOffWhenDeselected() {
+        when(buttonModel.isSelected()).thenReturn(false);
+        listener.actionPerformed(mockItemEvent);
+        verify(emulator, times(1)).setQuirk(CentralProcessingUnit.CLIP_QUIRKS, false);
+    }
+}
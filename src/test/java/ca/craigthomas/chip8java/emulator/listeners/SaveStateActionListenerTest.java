@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2013-2025 Craig Thomas
+ * This project uses an MIT style license - see LICENSE for details.
+ */
+package ca.craigthomas.chip8java.emulator.listeners;
+
+import ca.craigthomas.chip8java.emulator.components.Emulator;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.swing.*;
+import java.awt.event.ActionEvent;
+import java.io.File;
+import java.io.IOException;
+
+import static org.mockito.Mockito.*;
+
+public class SaveStateActionListenerTest
+{
+    private static final byte[] STATE = {1, 2, 3};
+
+    private SaveStateActionListener listenerSpy;
+    private ActionEvent mockItemEvent;
+    private JFileChooser fileChooser;
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        Emulator emulator = mock(Emulator.class);
+        when(emulator.saveState()).thenReturn(STATE);
+
+        file = new File("test.c8s");
+        fileChooser = mock(JFileChooser.class);
+        when(fileChooser.getSelectedFile()).thenReturn(file);
+        when(fileChooser.showSaveDialog(any())).thenReturn(JFileChooser.APPROVE_OPTION);
+
+        SaveStateActionListener listener = new SaveStateActionListener(emulator);
+        listenerSpy = spy(listener);
+        mockItemEvent = mock(ActionEvent.class);
+        when(listenerSpy.createFileChooser()).thenReturn(fileChooser);
+        doNothing().when(listenerSpy).writeState(any(), any());
+    }
+
+    @Test
+    public void testSaveStateWritesStateToChosenFile() throws IOException {
+        listenerSpy.actionPerformed(mockItemEvent);
+        verify(fileChooser, times(1)).showSaveDialog(any());
+        verify(listenerSpy, times(1)).writeState(file, STATE);
+    }
+
+    @Test
+    public void testSaveStateWritesNothingWhenCancelled() throws IOException {
+        when(fileChooser.showSaveDialog(any())).thenReturn(JFileChooser.CANCEL_OPTION);
+        listenerSpy.actionPerformed(mockItemEvent);
+        verify(listenerSpy, never()).writeState(any(), any());
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2013-2025 Craig Thomas
+ * This project uses an MIT style license - see LICENSE for details.
+ */
+package ca.craigthomas.chip8java.emulator.listeners;
+
+import ca.craigthomas.chip8java.emulator.components.Emulator;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.swing.*;
+import java.awt.event.ActionEvent;
+
+import static org.mockito.Mockito.*;
+
+public class TurboMenuItemActionListenerTest
+{
+    private TurboMenuItemActionListener listener;
+    private ButtonModel buttonModel;
+    private ActionEvent mockItemEvent;
+    private Emulator emulator;
+
+    @Before
+    public void setUp() {
+        emulator = mock(Emulator.class);
+        listener = new TurboMenuItemActionListener(emulator);
+        buttonModel = mock(ButtonModel.class);
+        AbstractButton button = mock(AbstractButton.class);
+        when(button.getModel()).thenReturn(buttonModel);
+        mockItemEvent = mock(ActionEvent.class);
+        when(mockItemEvent.getSource()).thenReturn(button);
+    }
+
+    @Test
+    public void testTurboTurnedOnWhenSelected() {
+        when(buttonModel.isSelected()).thenReturn(true);
+        listener.actionPerformed(mockItemEvent);
+        verify(emulator, times(1)).setTurbo(true);
+    }
+
+    @Test
+    public void testTurboTurnedOffWhenDeselected() {
+        when(buttonModel.isSelected()).thenReturn(false);
+        listener.actionPerformed(mockItemEvent);
+        verify(emulator, times(1)).setTurbo(false);
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2013-2025 Craig Thomas
+ * This project uses an MIT style license - see LICENSE for details.
+ */
+package ca.craigthomas.chip8java.emulator.runner;
+
+import static org.junit.Assert.*;
+
+import ca.craigthomas.chip8java.emulator.components.CentralProcessingUnit;
+import ca.craigthomas.chip8java.emulator.components.Emulator;
+import ca.craigthomas.chip8java.emulator.components.HaltReason;
+import ca.craigthomas.chip8java.emulator.components.Movie;
+import ca.craigthomas.chip8java.emulator.components.RunResult;
+
+import java.awt.*;
+import java.awt.event.KeyEvent;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the command line Runner.
+ */
+public class RunnerTest
+{
+    // Waits for a key with FX0A, then counts frames in V1
+    private static final int[] WAIT_FOR_KEY_ROM = {
+            0xF0, 0x0A,     // LOAD V0, KEY
+            0x71, 0x01,     // ADD V1, 01
+            0x12, 0x02,     // JUMP 202
+    };
+
+    private Emulator emulator;
+
+    @Before
+    public void setUp() {
+        emulator = new Emulator(1, 600, null, false, "000000", "FF33CC", "33CCFF", "FFFFFF",
+                false, false, false, false, false, true);
+        for (int i = 0; i < WAIT_FOR_KEY_ROM.length; i++) {
+            emulator.getMemory().write(WAIT_FOR_KEY_ROM[i], CentralProcessingUnit.PROGRAM_COUNTER_START + i);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        emulator.kill();
+    }
+
+    @Test
+    public void testReplayMovieRunsFramesSpentWaitingForAKey() throws IOException {
+        Canvas source = new Canvas();
+        emulator.startRecording(3);
+        RunResult waiting = emulator.runFrames(1);
+        RunResult counting = null;
+        for (int frame = 1; frame < 30; frame++) {
+            if (frame == 10) {
+                emulator.getKeyboard().keyPressed(
+                        new KeyEvent(source, KeyEvent.KEY_PRESSED, 0, 0, KeyEvent.VK_X, KeyEvent.CHAR_UNDEFINED));
+            }
+            if (frame == 12) {
+                emulator.getKeyboard().keyReleased(
+                        new KeyEvent(source, KeyEvent.KEY_RELEASED, 0, 0, KeyEvent.VK_X, KeyEvent.CHAR_UNDEFINED));
+            }
+            counting = emulator.runFrames(1);
+        }
+        Movie movie = emulator.stopRecording();
+        byte[] recorded = emulator.saveState();
+        assertEquals(30, movie.getFrameCount());
+        assertEquals(HaltReason.AWAITING_KEYPRESS, waiting.getHaltReason());
+        assertEquals(HaltReason.COMPLETED, counting.getHaltReason());
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        movie.write(output);
+        Movie read = Movie.read(new ByteArrayInputStream(output.toByteArray()));
+        RunResult result = Runner.replayMovie(emulator, read);
+        assertEquals(30, result.getFrames());
+        assertEquals(HaltReason.COMPLETED, result.getHaltReason());
+        assertArrayEquals(recorded, emulator.saveState());
+    }
+}